@@ -0,0 +1,58 @@
+package itc2019.benchmarks;
+
+import itc2019.dataset.Class;
+import itc2019.dataset.ProblemInstance;
+import itc2019.dataset.Timetable;
+import itc2019.dataset.constraints.CompatibilityTable;
+import itc2019.dataset.constraints.DistributionConstraint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class measures the violation count of a single distribution constraint of each type over a fixed random
+ * timetable, with and without the precompiled {@link CompatibilityTable} of the paired constraints.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintBenchmark {
+    @Param({"SameStart", "SameTime", "DifferentTime", "SameDays", "DifferentDays", "SameWeeks", "DifferentWeeks",
+            "Overlap", "NotOverlap", "SameRoom", "DifferentRoom", "SameAttendees", "Precedence", "WorkDay", "MinGap",
+            "MaxDays", "MaxDayLoad", "MaxBreaks", "MaxBlock"})
+    public String type;
+
+    @Param({"2", "10", "50"})
+    public int constraintSize;
+
+    @Param({"false", "true"})
+    public boolean precompiled;
+
+    private DistributionConstraint constraint;
+    private Timetable timetable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProblemInstance instance = SyntheticInstance.create(500, 42);
+        Class[] classes = Arrays.copyOf(instance.classes(), constraintSize);
+        constraint = SyntheticInstance.createConstraint(type, classes, instance.travelTimes());
+        if (precompiled) CompatibilityTable.precompile(constraint, Long.MAX_VALUE);
+        timetable = new Timetable(instance);
+        SyntheticInstance.scheduleRandomly(timetable, new Random(7));
+    }
+
+    @Benchmark
+    public int violationCount() {
+        return constraint.violationCount(timetable);
+    }
+
+    @Benchmark
+    public int localViolationCount() {
+        return constraint.violationCount(timetable, 0);
+    }
+}
@@ -0,0 +1,65 @@
+package itc2019.benchmarks;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.evaluation.Evaluator;
+import itc2019.evaluation.IncrementalEvaluator;
+import itc2019.evaluation.ParallelEvaluator;
+import itc2019.evaluation.PenaltyBreakdown;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class measures the evaluation of a whole random timetable (sequential and parallel) against the incremental
+ * evaluation of a single random move, for problem instances of roughly the sizes of the small, medium and large ITC
+ * 2019 instances.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+    @Param({"500", "2000", "8000"})
+    public int classCount;
+
+    private ProblemInstance instance;
+    private Timetable timetable;
+    private ParallelEvaluator parallelEvaluator;
+    private IncrementalEvaluator incrementalEvaluator;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = SyntheticInstance.create(classCount, 42);
+        timetable = new Timetable(instance);
+        SyntheticInstance.scheduleRandomly(timetable, new Random(7));
+        SyntheticInstance.enrollStudents(instance, timetable);
+        parallelEvaluator = new ParallelEvaluator(instance);
+        incrementalEvaluator = new IncrementalEvaluator(instance, timetable);
+        random = new Random(11);
+    }
+
+    @Benchmark
+    public PenaltyBreakdown fullEvaluation() {
+        return Evaluator.evaluate(instance, timetable);
+    }
+
+    @Benchmark
+    public PenaltyBreakdown parallelEvaluation() {
+        return parallelEvaluator.evaluate(timetable);
+    }
+
+    @Benchmark
+    public int incrementalMove() {
+        Event event = timetable.getEvents()[random.nextInt(timetable.getEvents().length)];
+        Class aClass = event.getTheClass();
+        TimeAssignment time = aClass.possibleTimes()[random.nextInt(aClass.possibleTimes().length)];
+        RoomAssignment room = aClass.possibleRooms()[random.nextInt(aClass.possibleRooms().length)];
+        if (room.room().capacity() < event.getStudentCount()) room = event.getRoomAssignment();
+        return incrementalEvaluator.evaluate(event, time, room);
+    }
+}
@@ -0,0 +1,77 @@
+package itc2019.benchmarks;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class measures the setters of {@link Event} (the record-based setters, which search the possible times and
+ * rooms of the class, against the option-based ones) and a cycle of enrolling and unenrolling a student, on a class
+ * with the largest number of possible times of a synthetic instance.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBenchmark {
+    private Timetable timetable;
+    private Event event;
+    private TimeAssignment[] times;
+    private RoomAssignment[] rooms;
+    private Student student;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProblemInstance instance = SyntheticInstance.create(2000, 42);
+        timetable = new Timetable(instance);
+        SyntheticInstance.scheduleRandomly(timetable, new Random(7));
+        // The first class of a course has no parent, so any student requesting the course can be enrolled in it alone
+        for (Student candidate : instance.students()) {
+            Class aClass = candidate.courses()[0].configs()[0].subparts()[0].classes()[0];
+            if (event == null || aClass.possibleTimes().length > times.length) {
+                event = timetable.getEvent(aClass);
+                times = aClass.possibleTimes();
+                rooms = aClass.possibleRooms();
+                student = candidate;
+            }
+        }
+    }
+
+    @Benchmark
+    public int setTimeAssignment() {
+        event.setTimeAssignment(times[next++ % times.length]);
+        return event.getTimeOption();
+    }
+
+    @Benchmark
+    public int setTimeOption() {
+        event.setTimeOption(next++ % times.length);
+        return event.getTimeOption();
+    }
+
+    @Benchmark
+    public int setRoomAssignment() {
+        event.setRoomAssignment(rooms[next++ % rooms.length]);
+        return event.getRoomOption();
+    }
+
+    @Benchmark
+    public int setRoomOption() {
+        event.setRoomOption(next++ % rooms.length);
+        return event.getRoomOption();
+    }
+
+    @Benchmark
+    public int addRemoveStudent() {
+        event.addStudent(student, timetable);
+        int count = event.getStudentCount();
+        event.removeStudent(student);
+        return count;
+    }
+}
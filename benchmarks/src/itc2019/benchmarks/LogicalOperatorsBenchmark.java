@@ -0,0 +1,69 @@
+package itc2019.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import utils.LogicalOperators;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class compares the boolean array and the bit mask versions of the {@link LogicalOperators}, as used for the
+ * days and weeks of the times.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogicalOperatorsBenchmark {
+    @Param({"7", "16", "80"})
+    public int length;
+
+    private boolean[] array1, array2;
+    private long[] mask1, mask2, result;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        array1 = new boolean[length];
+        array2 = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            array1[i] = random.nextInt(4) == 0;
+            array2[i] = array1[i] || random.nextBoolean();
+        }
+        mask1 = LogicalOperators.pack(array1);
+        mask2 = LogicalOperators.pack(array2);
+        result = new long[mask1.length];
+    }
+
+    @Benchmark
+    public boolean areSubsetsArray() {
+        return LogicalOperators.areSubsets(array1, array2);
+    }
+
+    @Benchmark
+    public boolean areSubsetsMask() {
+        return LogicalOperators.areSubsets(mask1, mask2);
+    }
+
+    @Benchmark
+    public boolean areExclusiveArray() {
+        return LogicalOperators.areExclusive(array1, array2);
+    }
+
+    @Benchmark
+    public boolean areExclusiveMask() {
+        return LogicalOperators.areExclusive(mask1, mask2);
+    }
+
+    @Benchmark
+    public boolean[] logicalOrArray() {
+        return LogicalOperators.logicalOr(array1, array2);
+    }
+
+    @Benchmark
+    public long[] logicalOrMask() {
+        return LogicalOperators.logicalOr(mask1, mask2, result);
+    }
+}
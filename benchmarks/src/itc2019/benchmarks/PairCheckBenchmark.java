@@ -0,0 +1,63 @@
+package itc2019.benchmarks;
+
+import itc2019.dataset.Class;
+import itc2019.dataset.ProblemInstance;
+import itc2019.dataset.Timetable;
+import itc2019.dataset.constraints.CompatibilityTable;
+import itc2019.dataset.constraints.DistributionConstraint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class measures the check of a single pair of events of each type of paired distribution constraint, with and
+ * without the precompiled {@link CompatibilityTable}. The check itself is package-private, so every measured
+ * constraint has exactly two classes and its violation count makes exactly one check. The time is given per pair, over
+ * many constraints on random pairs of classes, so that the result does not depend on the assignments of a single
+ * pair.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PairCheckBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"SameStart", "SameTime", "DifferentTime", "SameDays", "DifferentDays", "SameWeeks", "DifferentWeeks",
+            "Overlap", "NotOverlap", "SameRoom", "DifferentRoom", "SameAttendees", "Precedence", "WorkDay", "MinGap"})
+    public String type;
+
+    @Param({"false", "true"})
+    public boolean precompiled;
+
+    private DistributionConstraint[] constraints;
+    private Timetable timetable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProblemInstance instance = SyntheticInstance.create(2000, 42);
+        Class[] classes = instance.classes();
+        Random random = new Random(13);
+        constraints = new DistributionConstraint[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int first = random.nextInt(classes.length), second = (first + 1 + random.nextInt(classes.length - 1)) % classes.length;
+            constraints[i] = SyntheticInstance.createConstraint(type, new Class[]{classes[first], classes[second]},
+                    instance.travelTimes());
+            if (precompiled) CompatibilityTable.precompile(constraints[i], Long.MAX_VALUE);
+        }
+        timetable = new Timetable(instance);
+        SyntheticInstance.scheduleRandomly(timetable, new Random(7));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int check() {
+        int violations = 0;
+        for (DistributionConstraint constraint : constraints)
+            violations += constraint.violationCount(timetable);
+        return violations;
+    }
+}
@@ -0,0 +1,202 @@
+package itc2019.benchmarks;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.dataset.constraints.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>This class generates random problem instances shaped like the ITC 2019 instances (13 weeks, 5 days, 288 slots,
+ * courses with one configuration of up to three subparts, every distribution type, students requesting a few distinct
+ * courses) for the benchmarks. The possible times of a class differ in their days, start or weeks, as the solution
+ * format cannot tell apart times that only differ in their length. The instances are fully determined by their size and seed, so the numbers of different runs are
+ * comparable.</p>
+ * <p>The sizes used by the benchmarks are roughly the sizes of the small, medium and large competition instances.</p>
+ */
+public class SyntheticInstance {
+    public static final int NR_WEEKS = 13, NR_DAYS = 5;
+    private static final String[] PAIR_TYPES = {"SameStart", "SameTime", "DifferentTime", "SameDays", "DifferentDays",
+            "SameWeeks", "DifferentWeeks", "Overlap", "NotOverlap", "SameRoom", "DifferentRoom", "SameAttendees",
+            "Precedence", "WorkDay", "MinGap"};
+    private static final String[] DAY_TYPES = {"MaxDays", "MaxDayLoad", "MaxBreaks", "MaxBlock"};
+
+    /**
+     * Generates a random problem instance.
+     *
+     * @param classCount The number of classes of the instance.
+     * @param seed       The seed of the random generator.
+     * @return The generated problem instance.
+     */
+    public static ProblemInstance create(int classCount, long seed) {
+        Random random = new Random(seed);
+        Room[] rooms = new Room[Math.max(4, classCount / 8)];
+        for (int i = 0; i < rooms.length; i++)
+            rooms[i] = new Room(i + 1, 20 + random.nextInt(200), random.nextInt(4) == 0 ? new Time[]{randomTime(random)} : new Time[0]);
+        TravelTime travelTimes = new TravelTime(rooms.length);
+        for (int i = 0; i < rooms.length; i++)
+            for (int j = i + 1; j < rooms.length; j++)
+                if (random.nextInt(4) == 0) travelTimes.setTravelTime(rooms[i], rooms[j], 1 + random.nextInt(12));
+        Class[] classes = new Class[classCount];
+        List<Course> courses = new ArrayList<>();
+        for (int id = 1; id <= classCount; ) {
+            int subpartCount = Math.min(1 + random.nextInt(3), classCount - id + 1);
+            Subpart[] subparts = new Subpart[subpartCount];
+            Class parent = null;
+            for (int s = 0; s < subpartCount; s++) {
+                Class aClass = randomClass(random, id, rooms, parent);
+                classes[id - 1] = aClass;
+                subparts[s] = new Subpart(s + 1, new Class[]{aClass});
+                if (random.nextBoolean()) parent = aClass;
+                id++;
+            }
+            courses.add(new Course(courses.size() + 1, new Config[]{new Config(1, subparts)}));
+        }
+        List<HardConstraint> hardConstraints = new ArrayList<>();
+        List<SoftConstraint> softConstraints = new ArrayList<>();
+        for (int i = 0; i < classCount / 2; i++) {
+            boolean dayConstraint = random.nextInt(8) == 0;
+            String type = dayConstraint ? DAY_TYPES[random.nextInt(DAY_TYPES.length)] : PAIR_TYPES[random.nextInt(PAIR_TYPES.length)];
+            Class[] constraintClasses = randomClasses(random, classes, dayConstraint ? 4 + random.nextInt(12) : 2 + random.nextInt(4));
+            DistributionConstraint constraint = createConstraint(type, constraintClasses, travelTimes);
+            if (random.nextInt(3) == 0) hardConstraints.add(new HardConstraint(constraint));
+            else softConstraints.add(new SoftConstraint(constraint, 1 + random.nextInt(10)));
+        }
+        Student[] students = new Student[classCount * 3];
+        for (int i = 0; i < students.length; i++) {
+            Course[] requested = new Course[Math.min(1 + random.nextInt(4), courses.size())];
+            for (int c = 0; c < requested.length; c++)
+                do requested[c] = courses.get(random.nextInt(courses.size()));
+                while (contains(requested, c, requested[c]));
+            students[i] = new Student(i + 1, requested);
+        }
+        return new ProblemInstance("synthetic-" + classCount + "-" + seed, NR_DAYS, NR_WEEKS, 288, 3, 1, 1, 5, rooms,
+                courses.toArray(new Course[0]), classes, hardConstraints.toArray(new HardConstraint[0]),
+                softConstraints.toArray(new SoftConstraint[0]), students, travelTimes);
+    }
+
+    /**
+     * Creates a distribution constraint of the given type (as named in the ITC 2019 format) with typical parameters.
+     *
+     * @param type        The type of the constraint, without its parameters.
+     * @param classes     The classes of the constraint.
+     * @param travelTimes The travel times of the problem instance of the classes.
+     * @return The created constraint.
+     */
+    public static DistributionConstraint createConstraint(String type, Class[] classes, TravelTime travelTimes) {
+        return switch (type) {
+            case "SameStart" -> new SameStart(classes);
+            case "SameTime" -> new SameTime(classes);
+            case "DifferentTime" -> new DifferentTime(classes);
+            case "SameDays" -> new SameDays(classes);
+            case "DifferentDays" -> new DifferentDays(classes);
+            case "SameWeeks" -> new SameWeeks(classes);
+            case "DifferentWeeks" -> new DifferentWeeks(classes);
+            case "Overlap" -> new Overlap(classes);
+            case "NotOverlap" -> new NotOverlap(classes);
+            case "SameRoom" -> new SameRoom(classes);
+            case "DifferentRoom" -> new DifferentRoom(classes);
+            case "SameAttendees" -> new SameAttendees(classes, travelTimes);
+            case "Precedence" -> new Precedence(classes);
+            case "WorkDay" -> new WorkDay(classes, 96);
+            case "MinGap" -> new MinGap(classes, 6);
+            case "MaxDays" -> new MaxDays(classes, 2);
+            case "MaxDayLoad" -> new MaxDayLoad(classes, 72);
+            case "MaxBreaks" -> new MaxBreaks(classes, 1, 12);
+            case "MaxBlock" -> new MaxBlock(classes, 48, 6);
+            default -> throw new IllegalArgumentException("Unknown distribution type " + type + "!");
+        };
+    }
+
+    /**
+     * Gives every event of the given timetable a random time and room from the options of its class.
+     *
+     * @param timetable The timetable to schedule.
+     * @param random    The random generator.
+     */
+    public static void scheduleRandomly(Timetable timetable, Random random) {
+        for (Event event : timetable.getEvents()) {
+            Class aClass = event.getTheClass();
+            event.setTimeAssignment(aClass.possibleTimes()[random.nextInt(aClass.possibleTimes().length)]);
+            event.setRoomAssignment(aClass.possibleRooms()[random.nextInt(aClass.possibleRooms().length)]);
+        }
+    }
+
+    /**
+     * Enrolls every student of the given problem instance in the classes of its courses, as far as the limits of the
+     * classes and the capacities of the rooms allow. A student is not enrolled in a full class, nor in the classes
+     * below it in the parent chain, but still in the other subparts of the course, so some students are only partly
+     * sectioned.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable to enroll the students in.
+     */
+    public static void enrollStudents(ProblemInstance instance, Timetable timetable) {
+        for (Student student : instance.students())
+            for (Course course : student.courses())
+                for (Subpart subpart : course.configs()[0].subparts())
+                    try {
+                        timetable.getEvent(subpart.classes()[0]).addStudent(student, timetable);
+                    } catch (IllegalStateException | IllegalArgumentException ignored) {
+                        // The class is full or its parent was skipped
+                    }
+    }
+
+    private static Class randomClass(Random random, int id, Room[] rooms, Class parent) {
+        TimeAssignment[] times = new TimeAssignment[5 + random.nextInt(16)];
+        for (int i = 0; i < times.length; i++) {
+            Time time;
+            do time = randomTime(random);
+            while (containsMeeting(times, i, time));
+            times[i] = new TimeAssignment(time, random.nextInt(5));
+        }
+        // Every class gets rooms, as the room constraints cannot be evaluated for classes without a room
+        RoomAssignment[] possibleRooms = new RoomAssignment[Math.min(rooms.length, 3 + random.nextInt(6))];
+        int first = random.nextInt(rooms.length);
+        for (int i = 0; i < possibleRooms.length; i++)
+            possibleRooms[i] = new RoomAssignment(rooms[(first + i) % rooms.length], random.nextInt(5));
+        return new Class(id, 20 + random.nextInt(100), times, possibleRooms, parent);
+    }
+
+    private static Time randomTime(Random random) {
+        boolean[] weeks = new boolean[NR_WEEKS], days = new boolean[NR_DAYS];
+        int weekPattern = random.nextInt(3); // All, odd or even weeks
+        for (int w = 0; w < NR_WEEKS; w++)
+            weeks[w] = weekPattern == 0 || w % 2 == weekPattern - 1;
+        int dayCount = 1 + random.nextInt(3);
+        for (int d = random.nextInt(NR_DAYS); dayCount > 0; d = (d + 2) % NR_DAYS, dayCount--)
+            days[d] = true;
+        int duration = 12 * (1 + random.nextInt(3));
+        return new Time(NR_WEEKS, NR_DAYS, weeks, days, 90 + 6 * random.nextInt(24), duration);
+    }
+
+    private static boolean contains(Course[] courses, int count, Course course) {
+        for (int i = 0; i < count; i++)
+            if (courses[i] == course) return true;
+        return false;
+    }
+
+    /**
+     * Checks if one of the first count times meets on the same days, start and weeks as the given time.
+     */
+    private static boolean containsMeeting(TimeAssignment[] times, int count, Time time) {
+        for (int i = 0; i < count; i++) {
+            Time other = times[i].time();
+            if (other.start() == time.start() && other.daysMask() == time.daysMask()
+                    && Arrays.equals(other.weeksMask(), time.weeksMask()))
+                return true;
+        }
+        return false;
+    }
+
+    private static Class[] randomClasses(Random random, Class[] classes, int count) {
+        Class[] result = new Class[Math.min(count, classes.length)];
+        int first = random.nextInt(classes.length);
+        for (int i = 0; i < result.length; i++)
+            result[i] = classes[(first + i * 7) % classes.length];
+        return result;
+    }
+}
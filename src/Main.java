@@ -1,5 +1,40 @@
+import itc2019.io.BatchValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Hello World!");
+    private static final String USAGE = """
+            Usage:
+              validate <directory> [threads]   Validates and scores all the solutions of the directory against the
+                                               problem instances of the directory (threads: the number of instances
+                                               validated at the same time, the number of processors by default).""";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || !args[0].equals("validate") || args.length > 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        Path directory = Path.of(args[1]);
+        if (!Files.isDirectory(directory)) {
+            System.err.println(directory + " is not a directory!");
+            System.exit(2);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length == 3) {
+            try {
+                threads = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.err.println("The number of threads must be a positive integer!");
+                System.exit(2);
+            }
+        }
+        boolean allValid = new BatchValidator(threads).validate(directory, System.out).stream()
+                .allMatch(BatchValidator.Result::isValid);
+        System.exit(allValid ? 0 : 1);
     }
-}
\ No newline at end of file
+}
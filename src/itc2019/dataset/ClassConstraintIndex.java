@@ -0,0 +1,157 @@
+package itc2019.dataset;
+
+import itc2019.dataset.constraints.DistributionConstraint;
+import itc2019.dataset.constraints.HardConstraint;
+import itc2019.dataset.constraints.SoftConstraint;
+
+/**
+ * <p>This class maps each class of a problem instance back to the distribution constraints it appears in, so that the
+ * constraints touching a class can be visited in O(degree) rather than by scanning all the constraints of the problem
+ * instance.</p>
+ * <p>The constraints are identified by a single id space: the hard constraint hardConstraints[i] of the problem instance
+ * has the id i and the soft constraint softConstraints[j] has the id hardConstraints.length + j. The index is stored in
+ * a compressed (CSR) form: the entries of the class with the id c are the entries start(c) (inclusive) to end(c)
+ * (exclusive), and each entry holds a constraint id and the position of the class in the class array of that
+ * constraint.</p>
+ */
+public class ClassConstraintIndex {
+    private final DistributionConstraint[] constraints;
+    private final int hardConstraintCount, maxDegree;
+    private final int[] offsets, constraintIds, positions;
+
+    /**
+     * Constructs the index of the given constraints.
+     *
+     * @param hardConstraints The hard constraints of the problem instance.
+     * @param softConstraints The soft constraints of the problem instance.
+     * @param classCount      The total number of classes of the problem instance.
+     * @throws IndexOutOfBoundsException If a constraint has a class whose id is not in [1, classCount].
+     */
+    public ClassConstraintIndex(HardConstraint[] hardConstraints, SoftConstraint[] softConstraints, int classCount) throws IndexOutOfBoundsException {
+        hardConstraintCount = hardConstraints.length;
+        constraints = new DistributionConstraint[hardConstraints.length + softConstraints.length];
+        for (int i = 0; i < hardConstraints.length; i++)
+            constraints[i] = hardConstraints[i].constraint();
+        for (int i = 0; i < softConstraints.length; i++)
+            constraints[hardConstraintCount + i] = softConstraints[i].constraint();
+        offsets = new int[classCount + 1];
+        for (DistributionConstraint constraint : constraints)
+            for (Class aClass : constraint.getClasses())
+                offsets[aClass.id()]++;
+        int degree = 0;
+        for (int i = 1; i <= classCount; i++) {
+            degree = Math.max(degree, offsets[i]);
+            offsets[i] += offsets[i - 1];
+        }
+        maxDegree = degree;
+        constraintIds = new int[offsets[classCount]];
+        positions = new int[offsets[classCount]];
+        int[] next = new int[classCount];
+        System.arraycopy(offsets, 0, next, 0, classCount);
+        for (int c = 0; c < constraints.length; c++) {
+            Class[] classes = constraints[c].getClasses();
+            for (int p = 0; p < classes.length; p++) {
+                int entry = next[classes[p].id() - 1]++;
+                constraintIds[entry] = c;
+                positions[entry] = p;
+            }
+        }
+    }
+
+    /**
+     * Gets the first entry of the given class.
+     *
+     * @param aClass The class.
+     * @return The index of the first entry of the class.
+     */
+    public int start(Class aClass) {
+        return offsets[aClass.id() - 1];
+    }
+
+    /**
+     * Gets the end (exclusive) of the entries of the given class.
+     *
+     * @param aClass The class.
+     * @return The index after the last entry of the class.
+     */
+    public int end(Class aClass) {
+        return offsets[aClass.id()];
+    }
+
+    /**
+     * Gets the number of constraints the given class appears in.
+     *
+     * @param aClass The class.
+     * @return The number of entries of the class.
+     */
+    public int degree(Class aClass) {
+        return offsets[aClass.id()] - offsets[aClass.id() - 1];
+    }
+
+    /**
+     * Gets the largest number of constraints any class appears in.
+     *
+     * @return The maximal degree of a class.
+     */
+    public int maxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Gets the constraint id of an entry.
+     *
+     * @param entry The index of the entry.
+     * @return The id of the constraint of the entry.
+     */
+    public int constraintId(int entry) {
+        return constraintIds[entry];
+    }
+
+    /**
+     * Gets the position of the class of an entry in the class array of the constraint of the entry.
+     *
+     * @param entry The index of the entry.
+     * @return The position of the class in {@link DistributionConstraint#getClasses()}.
+     */
+    public int position(int entry) {
+        return positions[entry];
+    }
+
+    /**
+     * Gets the distribution constraint with the given id.
+     *
+     * @param constraintId The id of the constraint.
+     * @return The distribution constraint.
+     */
+    public DistributionConstraint constraint(int constraintId) {
+        return constraints[constraintId];
+    }
+
+    /**
+     * Checks if the constraint with the given id is hard.
+     *
+     * @param constraintId The id of the constraint.
+     * @return true if the constraint is a hard constraint; false if it is a soft constraint.
+     */
+    public boolean isHard(int constraintId) {
+        return constraintId < hardConstraintCount;
+    }
+
+    /**
+     * Gets the number of hard constraints, which is also the id of the first soft constraint.
+     *
+     * @return The number of hard constraints.
+     */
+    public int hardConstraintCount() {
+        return hardConstraintCount;
+    }
+
+    /**
+     * Gets the total number of constraints.
+     *
+     * @return The number of hard and soft constraints.
+     */
+    public int constraintCount() {
+        return constraints.length;
+    }
+}
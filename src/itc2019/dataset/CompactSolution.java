@@ -0,0 +1,288 @@
+package itc2019.dataset;
+
+import java.util.Arrays;
+
+/**
+ * <p>This class represents a timetable (candidate solution) in a compact form made of primitive arrays only, so that
+ * solutions can be copied and stored (e.g. as the best solution found so far or as the members of a population) without
+ * creating any objects. For the class with the id of i + 1 it stores the index of its assigned time in
+ * {@link Class#possibleTimes()} and of its assigned room in {@link Class#possibleRooms()} (-1 if unassigned), and for
+ * the student with the id of s + 1 the indices (class id - 1) of the classes the student is enrolled in.</p>
+ * <p>The enrollments are stored in a compressed (CSR) form: the classes of the student s are
+ * enrolledClasses[studentOffsets[s]..studentOffsets[s + 1]), ordered so that a parent class always comes before its
+ * child classes. Two compact solutions are equal if they have the same assignments and enrollments.</p>
+ */
+public class CompactSolution {
+    private final int[] depths; // The number of ancestors of each class, shared by all the solutions of an instance
+    private final int[] timeOptions, roomOptions;
+    private final int[] studentOffsets;
+    private int[] enrolledClasses;
+
+    /**
+     * Constructs an empty (not scheduled) compact solution of the given problem instance.
+     *
+     * @param instance The problem instance.
+     */
+    public CompactSolution(ProblemInstance instance) {
+        Class[] classes = instance.classes();
+        depths = new int[classes.length];
+        for (Class aClass : classes)
+            for (Class parent = aClass.parent(); parent != null; parent = parent.parent())
+                depths[aClass.id() - 1]++;
+        timeOptions = new int[classes.length];
+        roomOptions = new int[classes.length];
+        Arrays.fill(timeOptions, -1);
+        Arrays.fill(roomOptions, -1);
+        studentOffsets = new int[instance.students().length + 1];
+        enrolledClasses = new int[0];
+    }
+
+    /**
+     * Constructs the compact form of the given timetable.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable.
+     */
+    public CompactSolution(ProblemInstance instance, Timetable timetable) {
+        this(instance);
+        copyFrom(timetable);
+    }
+
+    /**
+     * Constructs a copy of the given compact solution.
+     *
+     * @param other The compact solution to copy.
+     */
+    public CompactSolution(CompactSolution other) {
+        depths = other.depths;
+        timeOptions = other.timeOptions.clone();
+        roomOptions = other.roomOptions.clone();
+        studentOffsets = other.studentOffsets.clone();
+        enrolledClasses = Arrays.copyOf(other.enrolledClasses, other.enrollmentCount());
+    }
+
+    /**
+     * Copies this solution into the given solution of the same problem instance in O(n), without allocating anything
+     * unless the target has less room for enrollments than needed.
+     *
+     * @param target The compact solution to overwrite.
+     * @throws IllegalArgumentException If the target solution is of a problem instance of a different size.
+     */
+    public void copyInto(CompactSolution target) throws IllegalArgumentException {
+        if (target.timeOptions.length != timeOptions.length || target.studentOffsets.length != studentOffsets.length)
+            throw new IllegalArgumentException("The target solution is of a different problem instance!");
+        System.arraycopy(timeOptions, 0, target.timeOptions, 0, timeOptions.length);
+        System.arraycopy(roomOptions, 0, target.roomOptions, 0, roomOptions.length);
+        System.arraycopy(studentOffsets, 0, target.studentOffsets, 0, studentOffsets.length);
+        int count = enrollmentCount();
+        if (target.enrolledClasses.length < count) target.enrolledClasses = new int[count];
+        System.arraycopy(enrolledClasses, 0, target.enrolledClasses, 0, count);
+    }
+
+    /**
+     * Overwrites this solution with the assignments and enrollments of the given timetable.
+     *
+     * @param timetable A timetable of the problem instance of this solution.
+     * @throws IllegalArgumentException If the timetable is of a problem instance of a different size.
+     */
+    public void copyFrom(Timetable timetable) throws IllegalArgumentException {
+        Event[] events = timetable.getEvents();
+        if (events.length != timeOptions.length)
+            throw new IllegalArgumentException("The timetable is of a different problem instance!");
+        int studentCount = studentOffsets.length - 1;
+        Arrays.fill(studentOffsets, 0);
+        for (int i = 0; i < events.length; i++) {
+            timeOptions[i] = events[i].getTimeOption();
+            roomOptions[i] = events[i].getRoomOption();
+            for (int j = 0; j < events[i].getStudentCount(); j++)
+                studentOffsets[events[i].getStudent(j).id()]++;
+        }
+        for (int s = 0; s < studentCount; s++)
+            studentOffsets[s + 1] += studentOffsets[s];
+        int total = studentOffsets[studentCount];
+        if (enrolledClasses.length < total) enrolledClasses = new int[total];
+        // Filling every student from its end, then moving the offsets back to the starts
+        for (int i = events.length - 1; i >= 0; i--)
+            for (int j = 0; j < events[i].getStudentCount(); j++)
+                enrolledClasses[--studentOffsets[events[i].getStudent(j).id()]] = i;
+        System.arraycopy(studentOffsets, 1, studentOffsets, 0, studentCount);
+        studentOffsets[studentCount] = total;
+        for (int s = 0; s < studentCount; s++)
+            sortByDepth(studentOffsets[s], studentOffsets[s + 1]);
+    }
+
+    /**
+     * Sorts the given range of the enrolled classes by depth (parents first) and index, using insertion sort as the
+     * ranges are very short.
+     */
+    private void sortByDepth(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int aClass = enrolledClasses[i], j = i - 1;
+            while (j >= from && isBefore(aClass, enrolledClasses[j])) {
+                enrolledClasses[j + 1] = enrolledClasses[j];
+                j--;
+            }
+            enrolledClasses[j + 1] = aClass;
+        }
+    }
+
+    private boolean isBefore(int class1, int class2) {
+        return depths[class1] < depths[class2] || depths[class1] == depths[class2] && class1 < class2;
+    }
+
+    /**
+     * Creates a new timetable with the assignments and enrollments of this solution.
+     *
+     * @param instance The problem instance of this solution.
+     * @return The created timetable.
+     * @throws IllegalStateException    If a class or a room of this solution is over its limit or capacity.
+     * @throws IllegalArgumentException If an enrollment of this solution is invalid (e.g. without the parent class).
+     */
+    public Timetable toTimetable(ProblemInstance instance) throws IllegalStateException, IllegalArgumentException {
+        Timetable timetable = new Timetable(instance);
+        applyAssignments(timetable);
+        Event[] events = timetable.getEvents();
+        Student[] students = instance.students();
+        for (int s = 0; s < students.length; s++)
+            for (int e = studentOffsets[s]; e < studentOffsets[s + 1]; e++)
+                events[enrolledClasses[e]].addStudent(students[s], timetable);
+        return timetable;
+    }
+
+    /**
+     * Sets the times and rooms of the events of the given timetable to the assignments of this solution. <strong>The
+     * students of the events are not changed.</strong>
+     *
+     * @param timetable A timetable of the problem instance of this solution.
+     * @throws IllegalArgumentException If an assigned room is too small for the students of its event.
+     */
+    public void applyAssignments(Timetable timetable) throws IllegalArgumentException {
+        Event[] events = timetable.getEvents();
+        for (int i = 0; i < events.length; i++) {
+            if (timeOptions[i] >= 0) events[i].setTimeOption(timeOptions[i]);
+            if (roomOptions[i] >= 0) events[i].setRoomOption(roomOptions[i]);
+        }
+    }
+
+    /**
+     * Gets the number of classes (events) of this solution.
+     *
+     * @return The number of classes.
+     */
+    public int classCount() {
+        return timeOptions.length;
+    }
+
+    /**
+     * Gets the number of students of this solution.
+     *
+     * @return The number of students.
+     */
+    public int studentCount() {
+        return studentOffsets.length - 1;
+    }
+
+    /**
+     * Gets the total number of enrollments (student-class pairs) of this solution.
+     *
+     * @return The number of enrollments.
+     */
+    public int enrollmentCount() {
+        return studentOffsets[studentOffsets.length - 1];
+    }
+
+    /**
+     * Gets the assigned time of a class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return The index of the time in the possible times of the class (-1 if unassigned).
+     */
+    public int getTimeOption(int classIndex) {
+        return timeOptions[classIndex];
+    }
+
+    /**
+     * Sets the assigned time of a class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param option     The index of the time in the possible times of the class (-1 to unassign).
+     */
+    public void setTimeOption(int classIndex, int option) {
+        timeOptions[classIndex] = option;
+    }
+
+    /**
+     * Gets the assigned room of a class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return The index of the room in the possible rooms of the class (-1 if unassigned or not needed).
+     */
+    public int getRoomOption(int classIndex) {
+        return roomOptions[classIndex];
+    }
+
+    /**
+     * Sets the assigned room of a class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param option     The index of the room in the possible rooms of the class (-1 to unassign).
+     */
+    public void setRoomOption(int classIndex, int option) {
+        roomOptions[classIndex] = option;
+    }
+
+    /**
+     * Gets the first enrollment of a student.
+     *
+     * @param studentIndex The index (id - 1) of the student.
+     * @return The index of the first enrollment of the student in {@link #getEnrolledClass(int)}.
+     */
+    public int enrollmentStart(int studentIndex) {
+        return studentOffsets[studentIndex];
+    }
+
+    /**
+     * Gets the end (exclusive) of the enrollments of a student.
+     *
+     * @param studentIndex The index (id - 1) of the student.
+     * @return The index after the last enrollment of the student.
+     */
+    public int enrollmentEnd(int studentIndex) {
+        return studentOffsets[studentIndex + 1];
+    }
+
+    /**
+     * Gets the class of an enrollment.
+     *
+     * @param enrollment The index of the enrollment.
+     * @return The index (id - 1) of the enrolled class.
+     */
+    public int getEnrolledClass(int enrollment) {
+        return enrolledClasses[enrollment];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompactSolution that)) return false;
+        return Arrays.equals(timeOptions, that.timeOptions) && Arrays.equals(roomOptions, that.roomOptions)
+                && Arrays.equals(studentOffsets, that.studentOffsets)
+                && Arrays.equals(enrolledClasses, 0, enrollmentCount(), that.enrolledClasses, 0, that.enrollmentCount());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(timeOptions);
+        result = 31 * result + Arrays.hashCode(roomOptions);
+        result = 31 * result + Arrays.hashCode(studentOffsets);
+        for (int i = 0; i < enrollmentCount(); i++)
+            result = 31 * result + enrolledClasses[i];
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactSolution{" + "timeOptions=" + Arrays.toString(timeOptions) + ", roomOptions="
+                + Arrays.toString(roomOptions) + ", enrollments=" + enrollmentCount() + '}';
+    }
+}
@@ -1,7 +1,11 @@
 package itc2019.dataset;
 
-import java.util.ArrayList;
+import itc2019.metrics.EvaluationMetrics;
+import utils.IntIntHashMap;
+
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * <p>This class represents an event. Event is simply defined as a scheduled class, i.e. a class that has been assigned
@@ -13,7 +17,11 @@ public class Event {
     private final Class theClass;
     private TimeAssignment timeAssignment;
     private RoomAssignment roomAssignment;
-    private final ArrayList<Student> students;
+    private int timeOption = -1, roomOption = -1; // Indices of the assignments in the possible times and rooms
+    private Student[] students; // The enrolled students are students[0..studentCount)
+    private int studentCount;
+    private final IntIntHashMap studentPositions; // The position of each enrolled student in students, by student id
+    Timetable timetable; // The timetable this event belongs to, whose room occupancy is kept up to date
 
     /**
      * Constructs an empty (not scheduled) event object for the given class.
@@ -22,7 +30,8 @@ public class Event {
      */
     public Event(Class theClass) {
         this.theClass = theClass;
-        students = new ArrayList<>();
+        students = new Student[4];
+        studentPositions = new IntIntHashMap();
     }
 
     /**
@@ -50,11 +59,56 @@ public class Event {
      * @throws IllegalArgumentException If the passed time is invalid for this event.
      */
     public void setTimeAssignment(TimeAssignment timeAssignment) throws IllegalArgumentException {
-        //TODO OPTIMIZATION: For faster running time, comment the following if. However, doing so will allow invalid (not included in the possible time assignments of this event's class) time assignments.
-        if (!Arrays.asList(theClass.possibleTimes()).contains(timeAssignment))
+        int option = indexOf(theClass.possibleTimes(), timeAssignment);
+        if (option < 0)
             throw new IllegalArgumentException("The passed time does not exist in the possible time assignments of this class!");
-        // COMMENT UNTIL HERE!
-        this.timeAssignment = timeAssignment;
+        setTimeOption(option);
+    }
+
+    /**
+     * Sets the time of this event by its index in the possible times of its class, which is validated in O(1).
+     *
+     * @param option The index of the time to be assigned to this event in {@link Class#possibleTimes()}.
+     * @throws IllegalArgumentException If the passed index is out of the possible times of this event's class.
+     */
+    public void setTimeOption(int option) throws IllegalArgumentException {
+        TimeAssignment[] possibleTimes = theClass.possibleTimes();
+        if (option < 0 || option >= possibleTimes.length)
+            throw new IllegalArgumentException("The passed time option is out of the possible time assignments of this class!");
+        TimeAssignment oldTime = timeAssignment;
+        timeAssignment = possibleTimes[option];
+        timeOption = option;
+        if (timetable != null) timetable.getRoomOccupancy().update(this, oldTime, roomAssignment);
+    }
+
+    /**
+     * Gets the index of the current time of this event in the possible times of its class.
+     *
+     * @return The time option of this event. Returns -1 if this event is not assigned a time.
+     */
+    public int getTimeOption() {
+        return timeOption;
+    }
+
+    /**
+     * Gets the index of the current room of this event in the possible rooms of its class.
+     *
+     * @return The room option of this event. Returns -1 if this event is not assigned a room.
+     */
+    public int getRoomOption() {
+        return roomOption;
+    }
+
+    /**
+     * Finds the index of the passed assignment in the passed possible assignments. The assignment is first searched by
+     * identity, which is how the assignments of a loaded problem instance are always passed around.
+     */
+    private static int indexOf(Object[] possibleAssignments, Object assignment) {
+        for (int i = 0; i < possibleAssignments.length; i++)
+            if (possibleAssignments[i] == assignment) return i;
+        for (int i = 0; i < possibleAssignments.length; i++)
+            if (possibleAssignments[i].equals(assignment)) return i;
+        return -1;
     }
 
     /**
@@ -76,19 +130,77 @@ public class Event {
      *                                  a room.
      */
     public void setRoomAssignment(RoomAssignment roomAssignment) throws IllegalArgumentException {
-        //TODO OPTIMIZATION: For faster running time, comment the following if statements. However, doing so will allow invalid (not included in the possible room assignments of this event's class) room assignments.
         if (theClass.possibleRooms() == null) throw new IllegalArgumentException("This event does not require a room!");
-        if (students.size() > roomAssignment.room().capacity())
-            throw new IllegalArgumentException("The passed room does not have enough capacity for the current participant size of this event!");
-        if (!Arrays.asList(theClass.possibleRooms()).contains(roomAssignment))
+        int option = indexOf(theClass.possibleRooms(), roomAssignment);
+        if (option < 0)
             throw new IllegalArgumentException("The passed room does not exist in the possible room assignments of this class!");
-        // COMMENT UNTIL HERE!
-        this.roomAssignment = roomAssignment;
+        setRoomOption(option);
+    }
+
+    /**
+     * Sets the room of this event by its index in the possible rooms of its class, which is validated in O(1).
+     *
+     * @param option The index of the room to be assigned to this event in {@link Class#possibleRooms()}.
+     * @throws IllegalArgumentException If this event's class does not need a room, the passed index is out of its
+     *                                  possible rooms, or the room does not have enough capacity for the students of
+     *                                  this event.
+     */
+    public void setRoomOption(int option) throws IllegalArgumentException {
+        RoomAssignment[] possibleRooms = theClass.possibleRooms();
+        if (possibleRooms == null) throw new IllegalArgumentException("This event does not require a room!");
+        if (option < 0 || option >= possibleRooms.length)
+            throw new IllegalArgumentException("The passed room option is out of the possible room assignments of this class!");
+        if (studentCount > possibleRooms[option].room().capacity())
+            throw new IllegalArgumentException("The passed room does not have enough capacity for the current participant size of this event!");
+        RoomAssignment oldRoom = roomAssignment;
+        roomAssignment = possibleRooms[option];
+        roomOption = option;
+        if (timetable != null) timetable.getRoomOccupancy().update(this, timeAssignment, oldRoom);
+    }
+
+    /**
+     * Gets the students enrolled in this event.
+     *
+     * @return An unmodifiable view of the students of this event, valid until the students of this event change.
+     */
+    public List<Student> getStudents() {
+        return Collections.unmodifiableList(Arrays.asList(students).subList(0, studentCount));
+    }
+
+    /**
+     * Gets the number of students enrolled in this event.
+     *
+     * @return The number of students of this event.
+     */
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    /**
+     * Gets an enrolled student of this event. The order of the students changes when a student is removed.
+     *
+     * @param index The index of the student, in [0, {@link #getStudentCount()}).
+     * @return The student with the given index.
+     * @throws IndexOutOfBoundsException If the index is out of the students of this event.
+     */
+    public Student getStudent(int index) throws IndexOutOfBoundsException {
+        if (index >= studentCount) throw new IndexOutOfBoundsException(index);
+        return students[index];
+    }
+
+    /**
+     * Checks in O(1) if the passed student is enrolled in this event.
+     *
+     * @param student The student.
+     * @return true if the student is enrolled in this event; false otherwise.
+     */
+    public boolean hasStudent(Student student) {
+        return studentPositions.containsKey(student.id());
     }
 
     @Override
     public String toString() {
-        return "Event{" + "theClass=" + theClass + ", timeAssignment=" + timeAssignment + ", roomAssignment=" + roomAssignment + ", students=" + students + '}';
+        return "Event{" + "theClass=" + theClass + ", timeAssignment=" + timeAssignment + ", roomAssignment=" + roomAssignment + ", students=" + getStudents() + '}';
     }
 
     /**
@@ -101,25 +213,44 @@ public class Event {
      *                  event of the parent class of this event's class.
      * @throws IllegalStateException    If the class or the current room of this event is at max size.
      * @throws IllegalArgumentException If the student is already enrolled in this event, did not request this class in
-     *                                  the first place, or has not taken the parent class first. <strong>To
-     *                                  significantly reduce the running time of this method from O(n^4) to O(n), the
-     *                                  student needing this event check has been commented in this method. MAKE SURE
-     *                                  THE PASSED STUDENT HAS THE CLASS OF THIS EVENT IN HIS/HER REQUESTED COURSES.
-     *                                  OTHERWISE, UNCOMMENT THE RESPONSIBLE IF STATEMENT IN THIS METHOD</strong>
+     *                                  the first place, or has not taken the parent class first. <strong>The request
+     *                                  is only checked (in O(log k) for a student requesting k courses) if the
+     *                                  timetable was constructed from a problem instance, i.e. has a
+     *                                  {@link StudentClassIndex}.</strong>
      */
     public void addStudent(Student student, Timetable timetable) throws IllegalStateException, IllegalArgumentException {
-        //TODO OPTIMIZATION: For faster running time, comment the following if statements. However, doing so will allow invalid student enrollments.
-        if (students.contains(student))
+        if (hasStudent(student))
             throw new IllegalArgumentException("The passed student is already in this event!");
-        if (students.size() == theClass.limit())
+        if (studentCount == theClass.limit())
             throw new IllegalStateException("The corresponding class of this event has reached its limit size!");
-        if (roomAssignment != null && students.size() == roomAssignment.room().capacity())
+        if (roomAssignment != null && studentCount == roomAssignment.room().capacity())
             throw new IllegalStateException("The current assigned room to this event has reached its maximum capacity!");
-        if (theClass.parent() != null && !timetable.getEvent(theClass.parent()).students.contains(student))
+        if (theClass.parent() != null && !timetable.getEvent(theClass.parent()).hasStudent(student))
             throw new IllegalArgumentException("The passed student needs to take the parent class first!");
-//        if (!student.needsClass(theClass))
-//            throw new IllegalArgumentException("The student did not request this class!");
-        // COMMENT UNTIL HERE!
-        students.add(student);
+        if (timetable.getStudentClassIndex() != null && !timetable.getStudentClassIndex().needsClass(student, theClass))
+            throw new IllegalArgumentException("The student did not request this class!");
+        if (studentCount == students.length) students = Arrays.copyOf(students, studentCount * 2);
+        studentPositions.put(student.id(), studentCount);
+        students[studentCount++] = student;
+        EvaluationMetrics.recordEnrollment();
+    }
+
+    /**
+     * Removes (unenrolls) the passed student from this event in O(1). <strong>This method does not check the child
+     * classes of this event's class. Remove the student from the events of the child classes first.</strong>
+     *
+     * @param student The student to be removed from this event.
+     * @throws IllegalArgumentException If the student is not enrolled in this event.
+     */
+    public void removeStudent(Student student) throws IllegalArgumentException {
+        int position = studentPositions.remove(student.id(), -1);
+        if (position < 0)
+            throw new IllegalArgumentException("The passed student is not in this event!");
+        Student last = students[--studentCount];
+        students[studentCount] = null;
+        if (position < studentCount) { // Moving the last student into the emptied position
+            students[position] = last;
+            studentPositions.put(last.id(), position);
+        }
     }
 }
\ No newline at end of file
@@ -8,8 +8,9 @@ import itc2019.dataset.constraints.SoftConstraint;
  */
 public record ProblemInstance(String instanceName, int nrDays, int nrWeeks, int slotsPerDay, int timePenaltyWeight,
                               int roomPenaltyWeight, int distributionPenaltyWeight, int studentPenaltyWeight,
-                              Room[] rooms, Course[] courses, HardConstraint[] hardConstraints,
-                              SoftConstraint[] softConstraints, Student[] students, TravelTime travelTimes) {
+                              Room[] rooms, Course[] courses, Class[] classes, HardConstraint[] hardConstraints,
+                              SoftConstraint[] softConstraints, Student[] students, TravelTime travelTimes,
+                              ClassConstraintIndex constraintIndex, StudentClassIndex studentClassIndex) {
     /**
      * Constructs a new problem instance object with the provided parameters and performs validation checks.
      *
@@ -23,10 +24,14 @@ public record ProblemInstance(String instanceName, int nrDays, int nrWeeks, int
      * @param studentPenaltyWeight      The weight for student-related penalties.
      * @param rooms                     An array of rooms available for scheduling.
      * @param courses                   An array of courses to be scheduled.
+     * @param classes                   An array of all the classes of the courses, where classes[i] is the class with
+     *                                  the id of i + 1.
      * @param hardConstraints           An array of hard constraints to be satisfied.
      * @param softConstraints           An array of soft constraints to be optimized.
      * @param students                  An array of students and their preferences.
-     * @param travelTimes               The travel time matrix between rooms.
+     * @param travelTimes               The travel times between rooms.
+     * @param constraintIndex           The index of the hard and soft constraints of each class.
+     * @param studentClassIndex         The index of the classes each student may take.
      * @throws IllegalArgumentException If the provided parameters violate the specified constraints.
      **/
     public ProblemInstance {
@@ -42,7 +47,42 @@ public record ProblemInstance(String instanceName, int nrDays, int nrWeeks, int
             throw new IllegalArgumentException("The distribution penalty weight cannot be negative!");
         if (studentPenaltyWeight < 0)
             throw new IllegalArgumentException("The student penalty weight cannot be negative!");
-        if (travelTimes.getRowCount() != rooms.length)
+        for (int i = 0; i < classes.length; i++)
+            if (classes[i].id() != i + 1)
+                throw new IllegalArgumentException("The passed classes are not sorted by their sequential ids!");
+        if (travelTimes.getRoomCount() != rooms.length)
             throw new IllegalArgumentException("The passed travel times is not of the size of total number of rooms in the problem instance!");
     }
-}
\ No newline at end of file
+
+    /**
+     * Constructs a new problem instance object with the provided parameters and builds its class to constraint and
+     * student to class indices.
+     *
+     * @param instanceName              The name of the problem instance.
+     * @param nrDays                    The number of days in a week.
+     * @param nrWeeks                   The number of weeks in a semester.
+     * @param slotsPerDay               The number of time slots per day.
+     * @param timePenaltyWeight         The weight for time-related penalties.
+     * @param roomPenaltyWeight         The weight for room-related penalties.
+     * @param distributionPenaltyWeight The weight for distribution-related penalties.
+     * @param studentPenaltyWeight      The weight for student-related penalties.
+     * @param rooms                     An array of rooms available for scheduling.
+     * @param courses                   An array of courses to be scheduled.
+     * @param classes                   An array of all the classes of the courses, where classes[i] is the class with
+     *                                  the id of i + 1.
+     * @param hardConstraints           An array of hard constraints to be satisfied.
+     * @param softConstraints           An array of soft constraints to be optimized.
+     * @param students                  An array of students and their preferences.
+     * @param travelTimes               The travel times between rooms.
+     * @throws IllegalArgumentException If the provided parameters violate the specified constraints.
+     **/
+    public ProblemInstance(String instanceName, int nrDays, int nrWeeks, int slotsPerDay, int timePenaltyWeight,
+                           int roomPenaltyWeight, int distributionPenaltyWeight, int studentPenaltyWeight,
+                           Room[] rooms, Course[] courses, Class[] classes, HardConstraint[] hardConstraints,
+                           SoftConstraint[] softConstraints, Student[] students, TravelTime travelTimes) throws IllegalArgumentException {
+        this(instanceName, nrDays, nrWeeks, slotsPerDay, timePenaltyWeight, roomPenaltyWeight, distributionPenaltyWeight,
+                studentPenaltyWeight, rooms, courses, classes, hardConstraints, softConstraints, students, travelTimes,
+                new ClassConstraintIndex(hardConstraints, softConstraints, classes.length),
+                new StudentClassIndex(courses, classes, students));
+    }
+}
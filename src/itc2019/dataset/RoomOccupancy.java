@@ -0,0 +1,213 @@
+package itc2019.dataset;
+
+import utils.LogicalOperators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>This class indexes which events of a timetable take place in each room on each day of each week, so that room
+ * conflicts (two classes placed in the same room at overlapping times) and room unavailability conflicts can be
+ * detected without scanning all the events of the timetable.</p>
+ * <p>For each room and each (week, day) there is a small bucket holding the events placed in the room that meet on
+ * that day. A query for a time visits only the buckets of the days and weeks of the time. The index is kept up to date
+ * by the {@link Timetable} that owns it, whenever the time or room of one of its events changes.</p>
+ * <p>The queries do not write any state of the index (an event found in several buckets of a query is only counted in
+ * the first of them), so the room occupancy of a timetable can be queried by several threads at the same time, as long
+ * as the timetable is not changed.</p>
+ */
+public class RoomOccupancy {
+    private final Event[] events;
+    private final int roomCount, nrWeeks, nrDays;
+    private final int[][] buckets; // Indexed by ((room id - 1) * nrWeeks + week) * nrDays + day, allocated lazily
+    private final int[] bucketSizes;
+
+    /**
+     * Constructs an empty room occupancy index for the events of a timetable.
+     *
+     * @param events The events of the timetable, where events[i] is the event of the class with the id of i + 1.
+     */
+    RoomOccupancy(Event[] events) {
+        this.events = events;
+        int roomCount = 0, weeks = 0, days = 0;
+        for (Event event : events) {
+            Class aClass = event.getTheClass();
+            if (aClass.possibleRooms() != null)
+                for (RoomAssignment roomAssignment : aClass.possibleRooms())
+                    roomCount = Math.max(roomCount, roomAssignment.room().id());
+            for (TimeAssignment timeAssignment : aClass.possibleTimes()) {
+                weeks = Math.max(weeks, timeAssignment.time().weeks().length);
+                days = Math.max(days, timeAssignment.time().days().length);
+            }
+        }
+        this.roomCount = roomCount;
+        nrWeeks = weeks;
+        nrDays = days;
+        buckets = new int[roomCount * nrWeeks * nrDays][];
+        bucketSizes = new int[buckets.length];
+    }
+
+    /**
+     * Updates the index after the time and/or room of the given event has changed.
+     *
+     * @param event   The changed event.
+     * @param oldTime The time of the event before the change (null if it had none).
+     * @param oldRoom The room of the event before the change (null if it had none).
+     */
+    void update(Event event, TimeAssignment oldTime, RoomAssignment oldRoom) {
+        int eventIndex = event.getTheClass().id() - 1;
+        if (oldTime != null && oldRoom != null)
+            forEachBucket(oldRoom.room(), oldTime.time(), eventIndex, false);
+        if (event.getTimeAssignment() != null && event.getRoomAssignment() != null)
+            forEachBucket(event.getRoomAssignment().room(), event.getTimeAssignment().time(), eventIndex, true);
+    }
+
+    private void forEachBucket(Room room, Time time, int eventIndex, boolean add) {
+        int roomBase = (room.id() - 1) * nrWeeks;
+        for (int w = nextSetBit(time.weeksMask(), 0); w >= 0 && w < nrWeeks; w = nextSetBit(time.weeksMask(), w + 1))
+            for (long days = time.daysMask(); days != 0; days &= days - 1) {
+                int bucket = (roomBase + w) * nrDays + Long.numberOfTrailingZeros(days);
+                if (add) add(bucket, eventIndex);
+                else remove(bucket, eventIndex);
+            }
+    }
+
+    private void add(int bucket, int eventIndex) {
+        int[] bucketEvents = buckets[bucket];
+        if (bucketEvents == null) bucketEvents = buckets[bucket] = new int[4];
+        else if (bucketSizes[bucket] == bucketEvents.length)
+            bucketEvents = buckets[bucket] = Arrays.copyOf(bucketEvents, bucketEvents.length * 2);
+        bucketEvents[bucketSizes[bucket]++] = eventIndex;
+    }
+
+    private void remove(int bucket, int eventIndex) {
+        int[] bucketEvents = buckets[bucket];
+        for (int i = 0; i < bucketSizes[bucket]; i++)
+            if (bucketEvents[i] == eventIndex) {
+                bucketEvents[i] = bucketEvents[--bucketSizes[bucket]];
+                return;
+            }
+    }
+
+    /**
+     * Returns the index of the first set bit at or after the given index, or -1 if there is none.
+     */
+    private static int nextSetBit(long[] mask, int from) {
+        int word = from >>> 6;
+        if (word >= mask.length) return -1;
+        long bits = mask[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == mask.length) return -1;
+            bits = mask[word];
+        }
+    }
+
+    /**
+     * Checks if the given room is available (not marked as unavailable) for the whole given time.
+     *
+     * @param room The room.
+     * @param time The time.
+     * @return true if the time does not overlap with any unavailability of the room; false otherwise.
+     */
+    public boolean isAvailable(Room room, Time time) {
+        for (Time unavailable : room.unavailable())
+            if (unavailable.start() < time.end() && time.start() < unavailable.end()
+                    && !LogicalOperators.areExclusive(unavailable.daysMask(), time.daysMask())
+                    && !LogicalOperators.areExclusive(unavailable.weeksMask(), time.weeksMask()))
+                return false;
+        return true;
+    }
+
+    /**
+     * Checks if the given room is available and not used by any event (other than the ignored one) at the given time.
+     *
+     * @param room    The room.
+     * @param time    The time.
+     * @param ignored An event not to be considered as a clash, typically the event to be moved (may be null).
+     * @return true if the given event could be placed in the room at the given time without a room conflict.
+     */
+    public boolean isFree(Room room, Time time, Event ignored) {
+        return isAvailable(room, time) && countClashes(room, time, ignored) == 0;
+    }
+
+    /**
+     * Counts the events (other than the ignored one) placed in the given room at a time overlapping the given time.
+     *
+     * @param room    The room.
+     * @param time    The time.
+     * @param ignored An event not to be counted, typically the event to be moved (may be null).
+     * @return The number of distinct events clashing with the given assignment.
+     */
+    public int countClashes(Room room, Time time, Event ignored) {
+        return visitClashes(room, time, ignored, null);
+    }
+
+    /**
+     * Gets the events (other than the ignored one) placed in the given room at a time overlapping the given time.
+     *
+     * @param room    The room.
+     * @param time    The time.
+     * @param ignored An event not to be reported, typically the event to be moved (may be null).
+     * @return The distinct events clashing with the given assignment.
+     */
+    public List<Event> getClashes(Room room, Time time, Event ignored) {
+        List<Event> clashes = new ArrayList<>();
+        visitClashes(room, time, ignored, clashes);
+        return clashes;
+    }
+
+    private int visitClashes(Room room, Time time, Event ignored, List<Event> clashes) {
+        if (room.id() > roomCount) return 0; // No event can be placed in the room
+        int ignoredIndex = ignored == null ? -1 : ignored.getTheClass().id() - 1;
+        int count = 0, roomBase = (room.id() - 1) * nrWeeks;
+        for (int w = nextSetBit(time.weeksMask(), 0); w >= 0 && w < nrWeeks; w = nextSetBit(time.weeksMask(), w + 1))
+            for (long days = time.daysMask(); days != 0; days &= days - 1) {
+                int day = Long.numberOfTrailingZeros(days), bucket = (roomBase + w) * nrDays + day;
+                int[] bucketEvents = buckets[bucket];
+                for (int i = 0; i < bucketSizes[bucket]; i++) {
+                    int eventIndex = bucketEvents[i];
+                    if (eventIndex == ignoredIndex) continue;
+                    Time other = events[eventIndex].getTimeAssignment().time();
+                    // The event is in the bucket of every week and day it shares with the time, so only the first counts
+                    if (other.start() < time.end() && time.start() < other.end()
+                            && day == Long.numberOfTrailingZeros(other.daysMask() & time.daysMask())
+                            && w == firstCommonBit(other.weeksMask(), time.weeksMask())) {
+                        count++;
+                        if (clashes != null) clashes.add(events[eventIndex]);
+                    }
+                }
+            }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first bit set in both of the given bitmasks, or -1 if there is none.
+     */
+    private static int firstCommonBit(long[] mask1, long[] mask2) {
+        for (int word = 0, words = Math.min(mask1.length, mask2.length); word < words; word++) {
+            long bits = mask1[word] & mask2[word];
+            if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the room conflicts of the whole timetable: every pair of events placed in the same room at overlapping
+     * times, plus every event placed in a room at a time when the room is unavailable.
+     *
+     * @return The number of room conflicts.
+     */
+    public int conflictCount() {
+        int unavailable = 0, clashes = 0;
+        for (Event event : events)
+            if (event.getTimeAssignment() != null && event.getRoomAssignment() != null) {
+                Room room = event.getRoomAssignment().room();
+                Time time = event.getTimeAssignment().time();
+                if (!isAvailable(room, time)) unavailable++;
+                clashes += countClashes(room, time, event);
+            }
+        return unavailable + clashes / 2; // Each clashing pair is counted from both of its events
+    }
+}
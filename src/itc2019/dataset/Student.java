@@ -29,7 +29,7 @@ public record Student(int id, Course[] courses) {
     /**
      * Checks if this student needs the passed class.
      * <p><strong>This method has very high time complexity (O(n^4)). Avoid calling this method unless you have to.
-     * Instead, while assigning a student to a class, search the demanded courses of the student.</strong></p>
+     * Instead, use {@link StudentClassIndex#needsClass(Student, Class)} of the problem instance.</strong></p>
      *
      * @param aClass The class to search for.
      * @return true if the passed class is in the demanded courses of this student; false otherwise.
@@ -0,0 +1,192 @@
+package itc2019.dataset;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>This class flattens the course requests of the students of a problem instance, so that the classes a student may
+ * take and the students who may need a class are found without walking the courses, configurations and subparts (see
+ * {@link Student#needsClass(Class)}).</p>
+ * <p>The courses are identified by their position in the courses of the problem instance, the classes and the students
+ * by their id - 1. The index stores the course of every class, the requested courses of every student (sorted) and the
+ * requesting students of every course, the last two in a compressed (CSR) form. Checking if a student needs a class
+ * searches the few requested courses of the student for the course of the class, which takes O(log k) time for a
+ * student requesting k courses.</p>
+ */
+public class StudentClassIndex {
+    private final int[] classCourses; // The course of each class
+    private final int[] courseOffsets, courseClasses; // The classes of each course
+    private final int[] studentOffsets, studentCourses; // The requested courses of each student, sorted
+    private final int[] requestOffsets, requestStudents; // The students requesting each course
+
+    /**
+     * Constructs the index of the given courses and students.
+     *
+     * @param courses  The courses of the problem instance.
+     * @param classes  The classes of the problem instance, where classes[i] is the class with the id of i + 1.
+     * @param students The students of the problem instance, where students[i] is the student with the id of i + 1.
+     * @throws IllegalArgumentException If a student requests a course that is not in the passed courses or the ids of
+     *                                  the students are not sequential.
+     */
+    public StudentClassIndex(Course[] courses, Class[] classes, Student[] students) throws IllegalArgumentException {
+        Map<Integer, Integer> coursePositions = new HashMap<>();
+        classCourses = new int[classes.length];
+        courseOffsets = new int[courses.length + 1];
+        int classCount = 0;
+        for (int c = 0; c < courses.length; c++) {
+            coursePositions.put(courses[c].id(), c);
+            for (Config config : courses[c].configs())
+                for (Subpart subpart : config.subparts())
+                    for (Class aClass : subpart.classes()) {
+                        classCourses[aClass.id() - 1] = c;
+                        classCount++;
+                    }
+            courseOffsets[c + 1] = classCount;
+        }
+        courseClasses = new int[classCount];
+        for (int c = 0, entry = 0; c < courses.length; c++)
+            for (Config config : courses[c].configs())
+                for (Subpart subpart : config.subparts())
+                    for (Class aClass : subpart.classes())
+                        courseClasses[entry++] = aClass.id() - 1;
+        studentOffsets = new int[students.length + 1];
+        for (int s = 0; s < students.length; s++) {
+            if (students[s].id() != s + 1)
+                throw new IllegalArgumentException("The passed students are not sorted by their sequential ids!");
+            studentOffsets[s + 1] = studentOffsets[s] + students[s].courses().length;
+        }
+        studentCourses = new int[studentOffsets[students.length]];
+        requestOffsets = new int[courses.length + 1];
+        for (int s = 0; s < students.length; s++) {
+            Course[] requested = students[s].courses();
+            for (int i = 0; i < requested.length; i++) {
+                Integer course = coursePositions.get(requested[i].id());
+                if (course == null)
+                    throw new IllegalArgumentException("The student " + students[s].id() + " requests an unknown course!");
+                studentCourses[studentOffsets[s] + i] = course;
+                requestOffsets[course + 1]++;
+            }
+            Arrays.sort(studentCourses, studentOffsets[s], studentOffsets[s + 1]);
+        }
+        for (int c = 0; c < courses.length; c++)
+            requestOffsets[c + 1] += requestOffsets[c];
+        requestStudents = new int[requestOffsets[courses.length]];
+        int[] next = Arrays.copyOf(requestOffsets, courses.length);
+        for (int s = 0; s < students.length; s++)
+            for (int e = studentOffsets[s]; e < studentOffsets[s + 1]; e++)
+                requestStudents[next[studentCourses[e]]++] = s;
+    }
+
+    /**
+     * Checks if the given student needs the given class, i.e. if the student requests the course of the class.
+     *
+     * @param student The student.
+     * @param aClass  The class.
+     * @return true if the class is in the requested courses of the student; false otherwise.
+     */
+    public boolean needsClass(Student student, Class aClass) {
+        int s = student.id() - 1;
+        return Arrays.binarySearch(studentCourses, studentOffsets[s], studentOffsets[s + 1], classCourses[aClass.id() - 1]) >= 0;
+    }
+
+    /**
+     * Gets the course of the given class.
+     *
+     * @param aClass The class.
+     * @return The position of the course of the class in the courses of the problem instance.
+     */
+    public int courseOf(Class aClass) {
+        return classCourses[aClass.id() - 1];
+    }
+
+    /**
+     * Gets the first entry of the requested courses of the given student.
+     *
+     * @param student The student.
+     * @return The index of the first requested course of the student in {@link #requestedCourse(int)}.
+     */
+    public int courseStart(Student student) {
+        return studentOffsets[student.id() - 1];
+    }
+
+    /**
+     * Gets the end (exclusive) of the entries of the requested courses of the given student.
+     *
+     * @param student The student.
+     * @return The index after the last requested course of the student.
+     */
+    public int courseEnd(Student student) {
+        return studentOffsets[student.id()];
+    }
+
+    /**
+     * Gets a requested course.
+     *
+     * @param entry The index of the entry.
+     * @return The position of the requested course in the courses of the problem instance.
+     */
+    public int requestedCourse(int entry) {
+        return studentCourses[entry];
+    }
+
+    /**
+     * Gets the first entry of the classes of the given course.
+     *
+     * @param course The position of the course in the courses of the problem instance.
+     * @return The index of the first class of the course in {@link #courseClass(int)}.
+     */
+    public int classStart(int course) {
+        return courseOffsets[course];
+    }
+
+    /**
+     * Gets the end (exclusive) of the entries of the classes of the given course.
+     *
+     * @param course The position of the course in the courses of the problem instance.
+     * @return The index after the last class of the course.
+     */
+    public int classEnd(int course) {
+        return courseOffsets[course + 1];
+    }
+
+    /**
+     * Gets a class of a course.
+     *
+     * @param entry The index of the entry.
+     * @return The index (id - 1) of the class.
+     */
+    public int courseClass(int entry) {
+        return courseClasses[entry];
+    }
+
+    /**
+     * Gets the first entry of the students who may need the given class (who request its course).
+     *
+     * @param aClass The class.
+     * @return The index of the first candidate student of the class in {@link #candidateStudent(int)}.
+     */
+    public int candidateStart(Class aClass) {
+        return requestOffsets[classCourses[aClass.id() - 1]];
+    }
+
+    /**
+     * Gets the end (exclusive) of the entries of the students who may need the given class.
+     *
+     * @param aClass The class.
+     * @return The index after the last candidate student of the class.
+     */
+    public int candidateEnd(Class aClass) {
+        return requestOffsets[classCourses[aClass.id() - 1] + 1];
+    }
+
+    /**
+     * Gets a candidate student.
+     *
+     * @param entry The index of the entry.
+     * @return The index (id - 1) of the student.
+     */
+    public int candidateStudent(int entry) {
+        return requestStudents[entry];
+    }
+}
@@ -1,5 +1,7 @@
 package itc2019.dataset;
 
+import utils.LogicalOperators;
+
 /**
  * <p>This class represents time as defined in the ITC 2019. Each problem has a certain number of weeks nrWeeks, a
  * number of days nrDays in each week, and a number of time slots per day slotsPerDay. These parameters, together with
@@ -14,14 +16,45 @@ package itc2019.dataset;
  * three times a week (on Monday, Wednesday, and Friday) each week when it is meeting. Similarly, weeks 0101010101010
  * specifies that the class would only meet during even weeks of the semester (during the 2nd, 4th, . . . , and 12th
  * weeks of the semester).</p>
+ * <p>Besides the boolean arrays, the weeks and days are also stored as packed bitmasks (bit i set if and only if week or
+ * day i is set), which are what the distribution constraints use for their checks: weeksMask holds one long word per 64
+ * weeks and daysMask holds all the days of a week in a single long.</p>
  */
-public record Time(boolean[] weeks, boolean[] days, int start, int duration, int end) {
+public record Time(boolean[] weeks, boolean[] days, int start, int duration, int end, long[] weeksMask,
+                   long daysMask) {
+    /**
+     * Constructs a Time object from all its components. <strong>The bitmasks must hold exactly the weeks and days of
+     * the boolean arrays, as the distribution constraints only read the bitmasks.</strong>
+     *
+     * @param weeks     The weeks that this time period takes place.
+     * @param days      The days that this time period takes place (at most 64).
+     * @param start     The starting time slot of this time period.
+     * @param duration  The duration of this time period.
+     * @param end       The time slot right after this time period (start + duration).
+     * @param weeksMask The weeks packed into ceil(weeks.length / 64) long words (at least one).
+     * @param daysMask  The days packed into a single long word.
+     * @throws IllegalArgumentException If the passed parameters are invalid or the bitmasks do not match the arrays.
+     */
+    public Time {
+        if (days.length < 1 || days.length > 64)
+            throw new IllegalArgumentException("The number of days in a week must be in [1, 64]!");
+        if (start < 0 || duration <= 0 || (start + duration > 288) || end != start + duration)
+            throw new IllegalArgumentException("This start and/or length parameter(s) are illegal!");
+        if (weeksMask.length != Math.max(1, (weeks.length + 63) >>> 6))
+            throw new IllegalArgumentException("The passed weeks bitmask does not match the weeks array!");
+        for (int i = 0; i < weeksMask.length; i++)
+            if (weeksMask[i] != packWord(weeks, i))
+                throw new IllegalArgumentException("The passed weeks bitmask does not match the weeks array!");
+        if (daysMask != packWord(days, 0))
+            throw new IllegalArgumentException("The passed days bitmask does not match the days array!");
+    }
+
     /**
      * Constructs a Time object. <strong>To ensure the weeks and days arrays are valid, make sure you pass the nrWeeks
      * and nrDays parameters when creating instances.</strong>
      *
      * @param nrWeeks  The number of weeks in a semester as defined in the problem instance.
-     * @param nrDays   The number of days in a week as defined in the problem instance.
+     * @param nrDays   The number of days in a week as defined in the problem instance (in [1, 64]).
      * @param weeks    The weeks that this time period takes place.
      * @param days     The days that this time period takes place.
      * @param start    The starting time slot of this time period.
@@ -29,12 +62,41 @@ public record Time(boolean[] weeks, boolean[] days, int start, int duration, int
      * @throws IllegalArgumentException If the passed parameters are invalid.
      */
     public Time(int nrWeeks, int nrDays, boolean[] weeks, boolean[] days, int start, int duration) throws IllegalArgumentException {
-        this(weeks, days, start, duration, start + duration);
+        this(weeks, days, start, duration, start + duration, packWeeks(nrWeeks, weeks), packDays(nrDays, days));
+    }
+
+    private static long[] packWeeks(int nrWeeks, boolean[] weeks) throws IllegalArgumentException {
         if (weeks.length != nrWeeks)
             throw new IllegalArgumentException("The passed weeks array is not of the same as the number of weeks in a semester defined in the problem instance!");
+        return LogicalOperators.pack(weeks);
+    }
+
+    private static long packDays(int nrDays, boolean[] days) throws IllegalArgumentException {
+        if (nrDays < 1 || nrDays > 64)
+            throw new IllegalArgumentException("The number of days in a week must be in [1, 64]!");
         if (days.length != nrDays)
             throw new IllegalArgumentException("The passed days array is not of the same as the number of days in a week defined in the problem instance");
-        if (start < 0 || duration <= 0 || (start + duration > 288))
-            throw new IllegalArgumentException("This start and/or length parameter(s) are illegal!");
+        return LogicalOperators.pack(days)[0];
+    }
+
+    /**
+     * Packs the given 64-element word of a boolean array into a long, without allocating.
+     */
+    private static long packWord(boolean[] booleanArray, int word) {
+        long bits = 0;
+        for (int i = word << 6, end = Math.min(booleanArray.length, i + 64); i < end; i++)
+            if (booleanArray[i]) bits |= 1L << i;
+        return bits;
+    }
+
+    /**
+     * Checks if this time period takes place in the given week and day.
+     *
+     * @param week The week index (starting from 0).
+     * @param day  The day index (starting from 0).
+     * @return true if this time period meets on the given day of the given week; false otherwise.
+     */
+    public boolean meetsOn(int week, int day) {
+        return (weeksMask[week >>> 6] & (1L << week)) != 0 && (daysMask & (1L << day)) != 0;
     }
 }
\ No newline at end of file
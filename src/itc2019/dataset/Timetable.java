@@ -14,6 +14,8 @@ import java.util.Arrays;
  */
 public class Timetable {
     private final Event[] events;
+    private final RoomOccupancy roomOccupancy;
+    private final StudentClassIndex studentClassIndex;
 
     /**
      * Constructs an empty timetable (a group of unscheduled events) based on the passed classes. <strong>Make sure the
@@ -25,12 +27,30 @@ public class Timetable {
      * @throws IndexOutOfBoundsException When the ids of the passed classes are not sequential.
      */
     public Timetable(Class[] classes) throws IllegalArgumentException, IndexOutOfBoundsException {
+        this(classes, null);
+    }
+
+    /**
+     * Constructs an empty timetable (a group of unscheduled events) of the passed problem instance. Unlike a timetable
+     * constructed from the classes only, this timetable also checks that the students enrolled in its events have
+     * requested the classes of the events.
+     *
+     * @param instance The problem instance.
+     */
+    public Timetable(ProblemInstance instance) {
+        this(instance.classes(), instance.studentClassIndex());
+    }
+
+    private Timetable(Class[] classes, StudentClassIndex studentClassIndex) throws IllegalArgumentException, IndexOutOfBoundsException {
+        this.studentClassIndex = studentClassIndex;
         events = new Event[classes.length];
         for (Class aClass : classes) {
             if (events[aClass.id() - 1] != null)
                 throw new IllegalArgumentException("Multiple classes with the same id have been found!");
             events[aClass.id() - 1] = new Event(aClass);
+            events[aClass.id() - 1].timetable = this;
         }
+        roomOccupancy = new RoomOccupancy(events);
     }
 
     /**
@@ -42,6 +62,25 @@ public class Timetable {
         return events;
     }
 
+    /**
+     * Gets the room occupancy index of this timetable, which is updated whenever the time or room of an event changes.
+     *
+     * @return The room occupancy of this timetable.
+     */
+    public RoomOccupancy getRoomOccupancy() {
+        return roomOccupancy;
+    }
+
+    /**
+     * Gets the index of the classes each student may take, used to check the enrollments of the events.
+     *
+     * @return The student to class index of the problem instance; null if this timetable was constructed from the
+     * classes only.
+     */
+    public StudentClassIndex getStudentClassIndex() {
+        return studentClassIndex;
+    }
+
     @Override
     public String toString() {
         return "Timetable{" + "events=" + Arrays.toString(events) + '}';
@@ -3,53 +3,49 @@ package itc2019.dataset;
 import java.util.Arrays;
 
 /**
- * This singleton class represents the travel time between the rooms of the ITC 2019 dataset, which expresses the number
- * of timeslots needed to get from one room to other rooms.
+ * <p>This class represents the travel time between the rooms of a problem instance, which expresses the number of
+ * timeslots needed to get from one room to other rooms. Every problem instance owns its travel times, so any number of
+ * instances can be loaded and solved at the same time in one JVM.</p>
+ * <p>As the travel times are symmetric and a room is always reachable from itself, only the travel times between two
+ * different rooms are stored, in a lower triangular matrix flattened into a short array: the travel time between the
+ * rooms with the indices (id - 1) i &gt; j is at i * (i - 1) / 2 + j. This takes a quarter of the memory of a full int
+ * matrix, and the lookups stay O(1).</p>
  */
 public class TravelTime {
-    private static TravelTime travelTimeInstance = null;
-    private final int[][] travelTimes;
+    private final int roomCount;
+    private final short[] travelTimes;
 
     /**
-     * Private constructor to initialize the travel times matrix with 0.
+     * Constructs the travel times between the given number of rooms, all initialized with 0.
      *
      * @param roomCount The total number of rooms in the problem instance.
-     * @throws NegativeArraySizeException If the provided room count is negative.
+     * @throws IllegalArgumentException If the provided room count is negative or too large for the travel times to fit
+     *                                  in a single array.
      */
-    private TravelTime(int roomCount) throws NegativeArraySizeException {
-        travelTimes = new int[roomCount][roomCount];
+    public TravelTime(int roomCount) throws IllegalArgumentException {
+        if (roomCount < 0) throw new IllegalArgumentException("The number of rooms cannot be negative!");
+        long size = (long) roomCount * (roomCount - 1) / 2;
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("The number of rooms is too large to store their travel times!");
+        this.roomCount = roomCount;
+        travelTimes = new short[(int) Math.max(0, size)];
     }
 
-    /**
-     * Initializes (creates an instance for) the static constructor of this travel time singleton class. This method has
-     * to be performed first (only once) to have the object of this class.
-     *
-     * @param roomNo The total number of rooms in the problem instance.
-     * @return The object or instance of this singleton class.
-     * @throws ExceptionInInitializerError If an object of this singleton class has already been created.
-     */
-    public static synchronized TravelTime createInstance(int roomNo) throws ExceptionInInitializerError {
-        if (travelTimeInstance != null)
-            throw new ExceptionInInitializerError("An object of this singleton class has already been created!");
-        travelTimeInstance = new TravelTime(roomNo);
-        return travelTimeInstance;
+    @Override
+    public String toString() {
+        return "TravelTime{" + "roomCount=" + roomCount + ", travelTimes=" + Arrays.toString(travelTimes) + '}';
     }
 
     /**
-     * Returns the singleton instance of travel time.
-     *
-     * @return The travel time instance
-     * @throws NullPointerException If this singleton class has not yet been initialized or created.
+     * Gets the position of the travel time between two different rooms in the triangular array. The row offset is
+     * computed in long, as i * (i - 1) overflows an int for room indices from 46342 on, although the position itself
+     * fits in an int.
      */
-    public static synchronized TravelTime getInstance() throws NullPointerException {
-        if (travelTimeInstance == null)
-            throw new NullPointerException("An object of this singleton class must be created first (using the createInstance method)!");
-        return travelTimeInstance;
-    }
-
-    @Override
-    public String toString() {
-        return "TravelTime{" + "travelTimes=" + Arrays.toString(travelTimes) + '}';
+    private int indexOf(int roomIndex1, int roomIndex2) throws IndexOutOfBoundsException {
+        if (roomIndex1 < 0 || roomIndex1 >= roomCount) throw new IndexOutOfBoundsException(roomIndex1);
+        if (roomIndex2 < 0 || roomIndex2 >= roomCount) throw new IndexOutOfBoundsException(roomIndex2);
+        int row = Math.max(roomIndex1, roomIndex2), column = Math.min(roomIndex1, roomIndex2);
+        return (int) ((long) row * (row - 1) / 2) + column;
     }
 
     /**
@@ -61,31 +57,56 @@ public class TravelTime {
      * @throws IndexOutOfBoundsException If room indices are out of bounds.
      */
     public int getTravelTime(Room room1, Room room2) throws IndexOutOfBoundsException {
-        return travelTimes[room1.id() - 1][room2.id() - 1];
+        return getTravelTime(room1.id() - 1, room2.id() - 1);
+    }
+
+    /**
+     * Gets the travel time between two rooms by their indices (id - 1).
+     *
+     * @param roomIndex1 The index of the first room.
+     * @param roomIndex2 The index of the second room.
+     * @return The number of timeslots needed to go from room 1 to room 2.
+     * @throws IndexOutOfBoundsException If room indices are out of bounds.
+     */
+    public int getTravelTime(int roomIndex1, int roomIndex2) throws IndexOutOfBoundsException {
+        if (roomIndex1 == roomIndex2) {
+            if (roomIndex1 < 0 || roomIndex1 >= roomCount) throw new IndexOutOfBoundsException(roomIndex1);
+            return 0;
+        }
+        return travelTimes[indexOf(roomIndex1, roomIndex2)];
     }
 
     /**
-     * Sets the travel time between two rooms.
+     * Sets the travel time between two rooms. <strong>The travel time from a room to itself is always 0.</strong>
      *
      * @param room1     The first room.
      * @param room2     The second room.
      * @param timeslots The number of timeslots needed to travel between the rooms.
-     * @throws IllegalArgumentException  If the number of timeslots is negative.
+     * @throws IllegalArgumentException  If the number of timeslots is negative or larger than {@link Short#MAX_VALUE},
+     *                                   or the rooms are the same but the number of timeslots is not 0.
      * @throws IndexOutOfBoundsException If room indices are out of bounds.
      */
     public void setTravelTime(Room room1, Room room2, int timeslots) throws IllegalArgumentException, IndexOutOfBoundsException {
         if (timeslots < 0)
             throw new IllegalArgumentException("The number of timeslots needed to travel between two rooms cannot be negative!");
-        travelTimes[room1.id() - 1][room2.id() - 1] = timeslots;
-        travelTimes[room2.id() - 1][room1.id() - 1] = timeslots;
+        if (timeslots > Short.MAX_VALUE)
+            throw new IllegalArgumentException("The number of timeslots needed to travel between two rooms is too large!");
+        int roomIndex1 = room1.id() - 1, roomIndex2 = room2.id() - 1;
+        if (roomIndex1 == roomIndex2) {
+            if (timeslots != 0)
+                throw new IllegalArgumentException("The travel time from a room to itself must be 0!");
+            getTravelTime(roomIndex1, roomIndex2); // Checking the bounds
+            return;
+        }
+        travelTimes[indexOf(roomIndex1, roomIndex2)] = (short) timeslots;
     }
 
     /**
-     * Gets the number of rows of the travel time matrix.
+     * Gets the number of rooms of these travel times.
      *
-     * @return Travel time row count.
+     * @return Travel time room count.
      */
-    int getRowCount() {
-        return travelTimes.length;
+    int getRoomCount() {
+        return roomCount;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package itc2019.dataset.constraints;
+
+import itc2019.dataset.Class;
+import itc2019.dataset.Event;
+import itc2019.dataset.ProblemInstance;
+
+/**
+ * <p>This class represents the precompiled check of a paired distribution constraint. The check of most paired
+ * constraints only depends on the times (or, for {@link SameRoom} and {@link DifferentRoom}, only on the rooms)
+ * assigned to the two classes, which are chosen from the small, finite sets of possible times (rooms) of the classes.
+ * For each pair of classes (i, j), i &lt; j, of the constraint, this table stores a bit matrix over
+ * (option of class i, option of class j) that is set if and only if the pair satisfies the constraint, so the check is
+ * answered with a single bit lookup.</p>
+ * <p>Tables are created by {@link #precompile(ProblemInstance, long)}, which respects a memory budget. Constraints
+ * without a table (because of their large domains, the budget, or their check depending on both times and rooms, as in
+ * {@link SameAttendees}) keep evaluating their check directly. <strong>Precompile before a problem instance is shared
+ * between threads.</strong></p>
+ */
+public class CompatibilityTable {
+    private final boolean overRooms;
+    private final int classCount;
+    private final int[] optionCounts;
+    private final long[] pairOffsets; // The first bit of the matrix of each pair (i, j), i < j, in triangular order
+    private final long[] bits;
+
+    private CompatibilityTable(PairDistributionConstraint constraint, boolean overRooms) {
+        this.overRooms = overRooms;
+        Class[] classes = constraint.getClasses();
+        classCount = classes.length;
+        optionCounts = new int[classCount];
+        for (int i = 0; i < classCount; i++)
+            optionCounts[i] = optionCount(classes[i], overRooms);
+        pairOffsets = new long[Math.max(0, classCount * (classCount - 1) / 2)];
+        long size = 0;
+        for (int i = 0, pair = 0; i < classCount - 1; i++)
+            for (int j = i + 1; j < classCount; j++, pair++) {
+                pairOffsets[pair] = size;
+                size += (long) optionCounts[i] * optionCounts[j];
+            }
+        bits = new long[(int) ((size + 63) >>> 6)];
+        // One prepared event per option of each class, so that the bits are computed by the check itself
+        Event[][] events = new Event[classCount][];
+        for (int i = 0; i < classCount; i++) {
+            events[i] = new Event[optionCounts[i]];
+            for (int option = 0; option < optionCounts[i]; option++) {
+                events[i][option] = new Event(classes[i]);
+                if (overRooms) events[i][option].setRoomOption(option);
+                else events[i][option].setTimeOption(option);
+            }
+        }
+        for (int i = 0, pair = 0; i < classCount - 1; i++)
+            for (int j = i + 1; j < classCount; j++, pair++)
+                for (int a = 0; a < optionCounts[i]; a++)
+                    for (int b = 0; b < optionCounts[j]; b++)
+                        if (constraint.check(events[i][a], events[j][b])) {
+                            long bit = pairOffsets[pair] + (long) a * optionCounts[j] + b;
+                            bits[(int) (bit >>> 6)] |= 1L << bit;
+                        }
+    }
+
+    /**
+     * Precompiles the tables of all the paired (hard and soft) constraints of the given problem instance, as long as
+     * they fit in the given memory budget. Constraints are compiled in the order of the problem instance and a
+     * constraint whose table does not fit in the remaining budget is skipped.
+     *
+     * @param instance     The problem instance whose constraints to precompile.
+     * @param memoryBudget The maximal total size of the tables in bytes.
+     * @return The total size of the created tables in bytes.
+     */
+    public static long precompile(ProblemInstance instance, long memoryBudget) {
+        long used = 0;
+        for (HardConstraint hardConstraint : instance.hardConstraints())
+            used += precompile(hardConstraint.constraint(), memoryBudget - used);
+        for (SoftConstraint softConstraint : instance.softConstraints())
+            used += precompile(softConstraint.constraint(), memoryBudget - used);
+        return used;
+    }
+
+    /**
+     * Precompiles the table of the given constraint if it is a paired constraint whose check only depends on either the
+     * times or the rooms of its classes and the table fits in the given memory budget.
+     *
+     * @param constraint   The constraint to precompile.
+     * @param memoryBudget The maximal size of the table in bytes.
+     * @return The size of the created table in bytes (0 if no table was created).
+     */
+    public static long precompile(DistributionConstraint constraint, long memoryBudget) {
+        if (!(constraint instanceof PairDistributionConstraint pairConstraint) || pairConstraint.getTable() != null)
+            return 0;
+        if (pairConstraint.usesTime() == pairConstraint.usesRoom()) return 0;
+        boolean overRooms = pairConstraint.usesRoom();
+        Class[] classes = pairConstraint.getClasses();
+        long size = 0, sum = 0;
+        for (Class aClass : classes) {
+            if (overRooms && aClass.possibleRooms() == null) return 0;
+            int options = optionCount(aClass, overRooms);
+            size += sum * options;
+            sum += options;
+        }
+        long bytes = ((size + 63) >>> 6) * Long.BYTES + (long) classes.length * (classes.length - 1) / 2 * Long.BYTES;
+        if (bytes > memoryBudget || size >= (long) Integer.MAX_VALUE * 64 || classes.length > 40_000) return 0;
+        pairConstraint.setTable(new CompatibilityTable(pairConstraint, overRooms));
+        return bytes;
+    }
+
+    /**
+     * Gets the precompiled table of the given constraint.
+     *
+     * @param constraint A distribution constraint.
+     * @return The table of the constraint, or null if it is not a paired constraint or has not been precompiled.
+     */
+    public static CompatibilityTable of(DistributionConstraint constraint) {
+        return constraint instanceof PairDistributionConstraint pairConstraint ? pairConstraint.getTable() : null;
+    }
+
+    private static int optionCount(Class aClass, boolean overRooms) {
+        return overRooms ? aClass.possibleRooms().length : aClass.possibleTimes().length;
+    }
+
+    /**
+     * Checks if the table is over the room options of the classes.
+     *
+     * @return true if the options of this table are room options; false if they are time options.
+     */
+    public boolean isOverRooms() {
+        return overRooms;
+    }
+
+    /**
+     * Checks if the given options of the given pair of classes satisfy the constraint.
+     *
+     * @param i       The position of the first class in the classes of the constraint.
+     * @param j       The position of the second class in the classes of the constraint (i &lt; j).
+     * @param optionI The (time or room) option of the first class.
+     * @param optionJ The (time or room) option of the second class.
+     * @return true if the constraint is satisfied for the given pair; false otherwise.
+     */
+    public boolean isCompatible(int i, int j, int optionI, int optionJ) {
+        long bit = pairOffsets[i * (2 * classCount - i - 1) / 2 + (j - i - 1)] + (long) optionI * optionCounts[j] + optionJ;
+        return (bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Gets the option of the passed event that this table is indexed by.
+     *
+     * @param event An event of one of the classes of the constraint.
+     * @return The room option of the event if this table is over rooms; its time option otherwise (-1 if unassigned).
+     */
+    int optionOf(Event event) {
+        return overRooms ? event.getRoomOption() : event.getTimeOption();
+    }
+}
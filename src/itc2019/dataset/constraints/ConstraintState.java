@@ -0,0 +1,28 @@
+package itc2019.dataset.constraints;
+
+import itc2019.dataset.Time;
+
+/**
+ * <p>This abstract class represents the incremental state of a distribution constraint over a timetable, for the
+ * constraints whose violation count can be kept up to date from the old and the new time of a moved class much faster
+ * than by recounting it over all the classes of the constraint (see {@link DistributionConstraint#createState}).</p>
+ * <p>A state is created from a fully scheduled timetable and must then be told about every time change of the classes
+ * of its constraint, in the order of the changes.</p>
+ */
+public abstract class ConstraintState {
+    /**
+     * Gets the violation count of the constraint in the current state.
+     *
+     * @return The current violation count.
+     */
+    public abstract int violationCount();
+
+    /**
+     * Updates this state after the time of one of the classes of the constraint has changed.
+     *
+     * @param oldTime The previous time of the class.
+     * @param newTime The new time of the class.
+     * @return The violation count of the constraint after the change.
+     */
+    public abstract int move(Time oldTime, Time newTime);
+}
@@ -0,0 +1,143 @@
+package itc2019.dataset.constraints;
+
+import itc2019.dataset.Class;
+import itc2019.dataset.Time;
+import itc2019.dataset.Timetable;
+
+import java.util.Arrays;
+
+/**
+ * <p>This class implements the day sweep shared by the {@link MaxBlock} and {@link MaxBreaks} constraints. It buckets
+ * the meetings of the classes of a constraint per (week, day) in one pass over the classes, sorts each bucket by start
+ * and merges the meetings of each bucket into blocks, counting the blocks and the blocks of two or more meetings that
+ * are longer than a maximal length.</p>
+ * <p>The buckets are kept in primitive buffers in a compressed (CSR) form, with every meeting packed into a single int
+ * (start &lt;&lt; 16 | end) so that sorting by start is a primitive sort. The buffers are reused by every sweep of a
+ * thread, so a sweep does not allocate anything once the buffers are large enough.</p>
+ */
+final class DaySweep {
+    private static final ThreadLocal<DaySweep> SWEEPS = ThreadLocal.withInitial(DaySweep::new);
+    private int[] offsets = new int[1]; // The meetings of bucket b are meetings[offsets[b]..offsets[b + 1])
+    private int[] meetings = new int[16];
+    private int bucketCount, nrDays;
+    private int blockCount, longBlockCount; // The results of the last sweep of a bucket
+
+    private DaySweep() {
+    }
+
+    /**
+     * Buckets the meetings of the classes of the given constraint in the given timetable per (week, day), using the
+     * buffers of the current thread.
+     *
+     * @param constraint The MaxBlock or MaxBreaks constraint.
+     * @param timetable  The timetable.
+     * @return The day sweep of the current thread, holding the buckets.
+     * @throws NullPointerException If a class of the constraint does not have a time assignment.
+     */
+    static DaySweep of(DistributionConstraint constraint, Timetable timetable) throws NullPointerException {
+        DaySweep sweep = SWEEPS.get();
+        sweep.load(constraint.getClasses(), timetable);
+        return sweep;
+    }
+
+    private void load(Class[] classes, Timetable timetable) {
+        Time first = timetable.getEvent(classes[0]).getTimeAssignment().time();
+        nrDays = first.days().length;
+        bucketCount = first.weeks().length * nrDays;
+        if (offsets.length < bucketCount + 1) offsets = new int[bucketCount + 1];
+        Arrays.fill(offsets, 0, bucketCount + 1, 0);
+        // STEP 1: Counting the meetings of each bucket (in offsets[bucket + 1])
+        for (Class aClass : classes) {
+            Time time = timetable.getEvent(aClass).getTimeAssignment().time();
+            long[] weeksMask = time.weeksMask();
+            for (int word = 0; word < weeksMask.length; word++)
+                for (long weeks = weeksMask[word]; weeks != 0; weeks &= weeks - 1) {
+                    int base = ((word << 6) + Long.numberOfTrailingZeros(weeks)) * nrDays;
+                    for (long days = time.daysMask(); days != 0; days &= days - 1)
+                        offsets[base + Long.numberOfTrailingZeros(days) + 1]++;
+                }
+        }
+        for (int b = 0; b < bucketCount; b++)
+            offsets[b + 1] += offsets[b];
+        int total = offsets[bucketCount];
+        if (meetings.length < total) meetings = new int[Math.max(total, meetings.length * 2)];
+        // STEP 2: Filling every bucket from its end, which moves offsets[bucket + 1] back to the start of the bucket
+        for (Class aClass : classes) {
+            Time time = timetable.getEvent(aClass).getTimeAssignment().time();
+            int meeting = time.start() << 16 | time.end();
+            long[] weeksMask = time.weeksMask();
+            for (int word = 0; word < weeksMask.length; word++)
+                for (long weeks = weeksMask[word]; weeks != 0; weeks &= weeks - 1) {
+                    int base = ((word << 6) + Long.numberOfTrailingZeros(weeks)) * nrDays;
+                    for (long days = time.daysMask(); days != 0; days &= days - 1)
+                        meetings[--offsets[base + Long.numberOfTrailingZeros(days) + 1]] = meeting;
+                }
+        }
+        System.arraycopy(offsets, 1, offsets, 0, bucketCount);
+        offsets[bucketCount] = total;
+    }
+
+    /**
+     * Gets the number of (week, day) buckets.
+     *
+     * @return The number of weeks times the number of days.
+     */
+    int bucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Sorts the meetings of the given bucket and merges them into blocks: two meetings are in the same block if they
+     * overlap or are not more than extendedBreakLength slots apart. The results are available through
+     * {@link #blockCount()} and {@link #longBlockCount()}.
+     *
+     * @param bucket              The bucket (week * nrDays + day).
+     * @param extendedBreakLength The maximal gap (S) between two meetings of a block.
+     * @param maxBlockLength      The maximal length (M) of a block of two or more meetings.
+     */
+    void sweep(int bucket, int extendedBreakLength, int maxBlockLength) {
+        int from = offsets[bucket], to = offsets[bucket + 1];
+        blockCount = 0;
+        longBlockCount = 0;
+        if (from == to) return;
+        Arrays.sort(meetings, from, to);
+        int blockStart = meetings[from] >>> 16, blockEnd = meetings[from] & 0xFFFF, blockSize = 1;
+        for (int i = from + 1; i < to; i++) {
+            int start = meetings[i] >>> 16, end = meetings[i] & 0xFFFF;
+            if (blockEnd + extendedBreakLength < start) { // A new block
+                closeBlock(blockStart, blockEnd, blockSize, maxBlockLength);
+                blockStart = start;
+                blockEnd = end;
+                blockSize = 1;
+            } else {
+                blockEnd = Math.max(blockEnd, end);
+                blockSize++;
+            }
+        }
+        closeBlock(blockStart, blockEnd, blockSize, maxBlockLength);
+    }
+
+    private void closeBlock(int start, int end, int size, int maxBlockLength) {
+        blockCount++;
+        if (size > 1 && end - start > maxBlockLength) longBlockCount++;
+    }
+
+    /**
+     * Gets the number of blocks of the last swept bucket.
+     *
+     * @return The number of merged blocks.
+     */
+    int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Gets the number of blocks of two or more meetings of the last swept bucket that are longer than the maximal
+     * block length.
+     *
+     * @return The number of too long blocks.
+     */
+    int longBlockCount() {
+        return longBlockCount;
+    }
+}
@@ -23,6 +23,6 @@ public class DifferentDays extends PairDistributionConstraint {
     @Override
     boolean check(Event e1, Event e2) throws NullPointerException {
         // (Ci.days and Cj.days) = 0
-        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().days(), e2.getTimeAssignment().time().days());
+        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().daysMask(), e2.getTimeAssignment().time().daysMask());
     }
 }
\ No newline at end of file
@@ -23,4 +23,14 @@ public class DifferentRoom extends PairDistributionConstraint {
         // (Ci.room ≠ Cj.room)
         return e1.getRoomAssignment().room() != e2.getRoomAssignment().room();
     }
-}
\ No newline at end of file
+
+    @Override
+    boolean usesTime() {
+        return false;
+    }
+
+    @Override
+    boolean usesRoom() {
+        return true;
+    }
+}
@@ -23,6 +23,6 @@ public class DifferentWeeks extends PairDistributionConstraint {
     @Override
     boolean check(Event e1, Event e2) throws NullPointerException {
         // (Ci.weeks and Cj.weeks) = 0
-        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeks(), e2.getTimeAssignment().time().weeks());
+        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeksMask(), e2.getTimeAssignment().time().weeksMask());
     }
 }
\ No newline at end of file
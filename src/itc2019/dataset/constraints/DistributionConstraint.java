@@ -39,7 +39,7 @@ public abstract class DistributionConstraint {
      *
      * @return The classes this distribution constraint applies to.
      */
-    Class[] getClasses() {
+    public Class[] getClasses() {
         return classes;
     }
 
@@ -56,7 +56,7 @@ public abstract class DistributionConstraint {
      * @return false as soon as there's a violation; true if this constraint is satisfied for the given timetable.
      * @throws NullPointerException If the given timetable is half or not scheduled.
      */
-    abstract boolean isSatisfied(Timetable timetable) throws NullPointerException;
+    public abstract boolean isSatisfied(Timetable timetable) throws NullPointerException;
 
     /**
      * Counts the number of times that the given timetable violates this constraint over its classes.
@@ -65,5 +65,68 @@ public abstract class DistributionConstraint {
      * @return Violation count of the given timetable.
      * @throws NullPointerException If the given timetable is half or not scheduled.
      */
-    abstract int violationCount(Timetable timetable) throws NullPointerException;
-}
\ No newline at end of file
+    public abstract int violationCount(Timetable timetable) throws NullPointerException;
+
+    /**
+     * Checks if this constraint is evaluated over pairs of classes, so that its violation count is the number of
+     * violating pairs of classes.
+     *
+     * @return true if this is a paired distribution constraint; false if it is evaluated over all its classes at once.
+     */
+    public boolean isPairwise() {
+        return false;
+    }
+
+    /**
+     * Gets the parameters of this constraint in the order they are written in its type in the ITC 2019 format, e.g.
+     * {R, S} for MaxBreaks(R,S).
+     *
+     * @return A new array of the parameters of this constraint; an empty array if it does not have any.
+     */
+    public int[] getParameters() {
+        return new int[0];
+    }
+
+    /**
+     * Counts the violations of this constraint in the given timetable that involve the passed class. A move that only
+     * changes the event of the passed class can only change this count, which makes it the part of the constraint to
+     * re-evaluate for such a move. For constraints that are not evaluated pairwise, every violation involves all the
+     * classes and this method is the same as {@link #violationCount(Timetable)}.
+     *
+     * @param timetable A candidate solution.
+     * @param aClass    One of the classes of this constraint.
+     * @return Violation count of the given timetable that involves the passed class.
+     * @throws NullPointerException     If the given timetable is half or not scheduled.
+     * @throws IllegalArgumentException If the passed class is not a class of this constraint.
+     */
+    public int violationCount(Timetable timetable, Class aClass) throws NullPointerException, IllegalArgumentException {
+        for (int i = 0; i < classes.length; i++)
+            if (classes[i] == aClass) return violationCount(timetable, i);
+        throw new IllegalArgumentException("The passed class is not a class of this constraint!");
+    }
+
+    /**
+     * Counts the violations of this constraint in the given timetable that involve the class at the given position of
+     * the classes of this constraint. This is the same as {@link #violationCount(Timetable, Class)}, but without
+     * searching for the class (see {@link itc2019.dataset.ClassConstraintIndex} for the positions of the classes).
+     *
+     * @param timetable A candidate solution.
+     * @param position  The position of the class in {@link #getClasses()}.
+     * @return Violation count of the given timetable that involves the class.
+     * @throws NullPointerException If the given timetable is half or not scheduled.
+     */
+    public int violationCount(Timetable timetable, int position) throws NullPointerException {
+        return violationCount(timetable);
+    }
+
+    /**
+     * Creates the incremental state of this constraint over the given timetable, if this constraint has one.
+     *
+     * @param timetable A fully scheduled candidate solution.
+     * @return The incremental state of this constraint; null if its violation count can only be recounted.
+     * @throws NullPointerException If the given timetable is half or not scheduled.
+     */
+    public ConstraintState createState(Timetable timetable) throws NullPointerException {
+        return null;
+    }
+}
@@ -1,11 +1,8 @@
 package itc2019.dataset.constraints;
 
 import itc2019.dataset.Class;
-import itc2019.dataset.Time;
 import itc2019.dataset.Timetable;
-
-import java.util.ArrayList;
-import java.util.Comparator;
+import itc2019.metrics.EvaluationMetrics;
 
 /**
  * <p>This constraint limits the amount of time (measured as M slots) that a set of classes may be consecutively
@@ -28,9 +25,6 @@ import java.util.Comparator;
 public class MaxBlock extends DistributionConstraint {
     private final int maxBlockLength, extendedBreakLength; // M & S
 
-    private record Block(int start, int end) {
-    }
-
     /**
      * Constructs a max blocks distribution constraint object with the given classes.
      *
@@ -52,73 +46,27 @@ public class MaxBlock extends DistributionConstraint {
     }
 
     @Override
-    boolean isSatisfied(Timetable timetable) throws NullPointerException {
+    public int[] getParameters() {
+        return new int[]{maxBlockLength, extendedBreakLength};
+    }
+
+    @Override
+    public boolean isSatisfied(Timetable timetable) throws NullPointerException {
         // max { B.end − B.start | B ∈ MergeBlocks{(C.start, C.end) | (C.days and 2d) ≠ 0 ∧ (C.weeks and 2w) ≠ 0})}) ≤ M
-        final int weeksLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().weeks().length, daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        Time eventTime;
-        ArrayList<Block> dayEvents;
-        int mergedBlockStart, mergedBlockEnd;
-        // STEP 1: Finding all the events that take place in a day
-        for (int w = 0; w < weeksLength; w++)
-            for (int d = 0; d < daysLength; d++) {
-                dayEvents = new ArrayList<>();
-                for (Class aClass : getClasses()) {
-                    eventTime = timetable.getEvent(aClass).getTimeAssignment().time();
-                    if (eventTime.weeks()[w] && eventTime.days()[d])
-                        dayEvents.add(new Block(eventTime.start(), eventTime.end()));
-                }
-                if (dayEvents.size() < 2) break; // If there are less than 2 events today, go to the next day
-                // STEP 2: Sorting all the events in a day based on their starting time and adding them to blocks
-                dayEvents.sort(Comparator.comparingInt(block -> block.start));
-                mergedBlockStart = dayEvents.get(0).start;
-                mergedBlockEnd = dayEvents.get(0).end;
-                // STEP 3: Merging blocks and checking the length of merged blocks
-                for (int i = 1; i < dayEvents.size(); i++) {
-                    Block current = dayEvents.get(i);
-                    if (mergedBlockEnd + extendedBreakLength < current.start) { // If no overlap, start a new merged block
-                        mergedBlockStart = current.start;
-                        mergedBlockEnd = current.end;
-                    } else { // Else, merge the blocks and check the length of the block
-                        mergedBlockEnd = Math.max(mergedBlockEnd, current.end);
-                        if (mergedBlockEnd - mergedBlockStart > maxBlockLength) return false;
-                    }
-                }
-            }
-        return false;
+        long start = EvaluationMetrics.start();
+        boolean satisfied = violationCount(timetable) == 0;
+        EvaluationMetrics.record(getClass(), EvaluationMetrics.Operation.IS_SATISFIED, start);
+        return satisfied;
     }
 
     @Override
-    int violationCount(Timetable timetable) throws NullPointerException {
-        final int weeksLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().weeks().length, daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        Time eventTime;
-        ArrayList<Block> dayEvents;
-        int mergedBlockStart, mergedBlockEnd, totalOverflow = 0;
-        // STEP 1: Finding all the events that take place in a day
-        for (int w = 0; w < weeksLength; w++)
-            for (int d = 0; d < daysLength; d++) {
-                dayEvents = new ArrayList<>();
-                for (Class aClass : getClasses()) {
-                    eventTime = timetable.getEvent(aClass).getTimeAssignment().time();
-                    if (eventTime.weeks()[w] && eventTime.days()[d])
-                        dayEvents.add(new Block(eventTime.start(), eventTime.end()));
-                }
-                if (dayEvents.size() < 2) break; // If there are less than 2 events today, go to the next day
-                // STEP 2: Sorting all the events in a day based on their starting time and adding them to blocks
-                dayEvents.sort(Comparator.comparingInt(block -> block.start));
-                mergedBlockStart = dayEvents.get(0).start;
-                mergedBlockEnd = dayEvents.get(0).end;
-                // STEP 3: Merging blocks and checking the length of merged blocks
-                for (int i = 1; i < dayEvents.size(); i++) {
-                    Block current = dayEvents.get(i);
-                    if (mergedBlockEnd + extendedBreakLength < current.start) { // If no overlap, start a new merged block
-                        mergedBlockStart = current.start;
-                        mergedBlockEnd = current.end;
-                    } else { // Else, merge the blocks and check the length of the block
-                        mergedBlockEnd = Math.max(mergedBlockEnd, current.end);
-                        if (mergedBlockEnd - mergedBlockStart > maxBlockLength) totalOverflow++;
-                    }
-                }
-            }
+    public int violationCount(Timetable timetable) throws NullPointerException {
+        DaySweep sweep = DaySweep.of(this, timetable);
+        int totalOverflow = 0;
+        for (int bucket = 0; bucket < sweep.bucketCount(); bucket++) {
+            sweep.sweep(bucket, extendedBreakLength, maxBlockLength);
+            totalOverflow += sweep.longBlockCount();
+        }
         return totalOverflow;
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,8 @@
 package itc2019.dataset.constraints;
 
 import itc2019.dataset.Class;
-import itc2019.dataset.Time;
 import itc2019.dataset.Timetable;
-
-import java.util.ArrayList;
-import java.util.Comparator;
+import itc2019.metrics.EvaluationMetrics;
 
 /**
  * <p>This constraint limits the number of breaks between classes during a day which exceed S time slots to no more than
@@ -29,9 +26,6 @@ import java.util.Comparator;
 public class MaxBreaks extends DistributionConstraint {
     private final int maxBreakCount, extendedBreakLength; // R & S
 
-    private record Block(int start, int end) {
-    }
-
     /**
      * Constructs a max breaks distribution constraint object with the given classes.
      *
@@ -52,67 +46,27 @@ public class MaxBreaks extends DistributionConstraint {
     }
 
     @Override
-    boolean isSatisfied(Timetable timetable) throws NullPointerException {
+    public int[] getParameters() {
+        return new int[]{maxBreakCount, extendedBreakLength};
+    }
+
+    @Override
+    public boolean isSatisfied(Timetable timetable) throws NullPointerException {
         // |MergeBlocks{(C.start, C.end) | (C.days and 2d) ≠ 0 ∧ (C.weeks and 2w) ≠ 0})| ≤ R + 1
-        final int weeksLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().weeks().length, daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        Time eventTime;
-        ArrayList<Block> dayEvents;
-        int mergedBlockEnd, blocksCounter;
-        // STEP 1: Finding all the events that take place in a day
-        for (int w = 0; w < weeksLength; w++)
-            for (int d = 0; d < daysLength; d++) {
-                dayEvents = new ArrayList<>();
-                blocksCounter = 0;
-                for (Class aClass : getClasses()) {
-                    eventTime = timetable.getEvent(aClass).getTimeAssignment().time();
-                    if (eventTime.weeks()[w] && eventTime.days()[d])
-                        dayEvents.add(new Block(eventTime.start(), eventTime.end()));
-                }
-                if (dayEvents.isEmpty()) break; // If no event today, go to the next day
-                // STEP 2: Sorting all the events in a day based on their starting time and adding them to blocks
-                dayEvents.sort(Comparator.comparingInt(block -> block.start));
-                mergedBlockEnd = dayEvents.get(0).end;
-                // STEP 3: Merging blocks and checking the number of merged blocks
-                for (int i = 1; i < dayEvents.size(); i++) {
-                    Block current = dayEvents.get(i);
-                    if (mergedBlockEnd + extendedBreakLength < current.start) { // If no overlap, add to the number of merged blocks and start a new merged block
-                        if (++blocksCounter > (maxBreakCount + 1)) return false;
-                        mergedBlockEnd = current.end;
-                    } else mergedBlockEnd = Math.max(mergedBlockEnd, current.end); // Else, merge the blocks
-                }
-            }
-        return true;
+        long start = EvaluationMetrics.start();
+        boolean satisfied = violationCount(timetable) == 0;
+        EvaluationMetrics.record(getClass(), EvaluationMetrics.Operation.IS_SATISFIED, start);
+        return satisfied;
     }
 
     @Override
-    int violationCount(Timetable timetable) throws NullPointerException {
-        final int weeksLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().weeks().length, daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        Time eventTime;
-        ArrayList<Block> dayEvents;
-        int mergedBlockEnd, blocksCounter, totalOverflow = 0;
-        // STEP 1: Finding all the events that take place in a day
-        for (int w = 0; w < weeksLength; w++)
-            for (int d = 0; d < daysLength; d++) {
-                dayEvents = new ArrayList<>();
-                blocksCounter = 0;
-                for (Class aClass : getClasses()) {
-                    eventTime = timetable.getEvent(aClass).getTimeAssignment().time();
-                    if (eventTime.weeks()[w] && eventTime.days()[d])
-                        dayEvents.add(new Block(eventTime.start(), eventTime.end()));
-                }
-                if (dayEvents.isEmpty()) break; // If no event today, go to the next day
-                // STEP 2: Sorting all the events in a day based on their starting time and adding them to blocks
-                dayEvents.sort(Comparator.comparingInt(block -> block.start));
-                mergedBlockEnd = dayEvents.get(0).end;
-                // STEP 3: Merging blocks and checking the number of merged blocks
-                for (int i = 1; i < dayEvents.size(); i++) {
-                    Block current = dayEvents.get(i);
-                    if (mergedBlockEnd + extendedBreakLength < current.start) { // If no overlap, add to the number of merged blocks and start a new merged block
-                        if (++blocksCounter > (maxBreakCount + 1)) totalOverflow += (blocksCounter - maxBreakCount - 1);
-                        mergedBlockEnd = current.end;
-                    } else mergedBlockEnd = Math.max(mergedBlockEnd, current.end); // Else, merge the blocks
-                }
-            }
+    public int violationCount(Timetable timetable) throws NullPointerException {
+        DaySweep sweep = DaySweep.of(this, timetable);
+        int totalOverflow = 0;
+        for (int bucket = 0; bucket < sweep.bucketCount(); bucket++) {
+            sweep.sweep(bucket, extendedBreakLength, Integer.MAX_VALUE);
+            totalOverflow += Math.max(0, sweep.blockCount() - maxBreakCount - 1);
+        }
         return totalOverflow;
     }
-}
\ No newline at end of file
+}
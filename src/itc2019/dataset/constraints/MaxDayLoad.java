@@ -3,6 +3,7 @@ package itc2019.dataset.constraints;
 import itc2019.dataset.Class;
 import itc2019.dataset.Time;
 import itc2019.dataset.Timetable;
+import itc2019.metrics.EvaluationMetrics;
 
 /**
  * <p>This constraint limits the total amount of time assigned to the set of classes listed in the constraint to no more
@@ -36,37 +37,94 @@ public class MaxDayLoad extends DistributionConstraint {
     }
 
     @Override
-    boolean isSatisfied(Timetable timetable) throws NullPointerException {
+    public int[] getParameters() {
+        return new int[]{maxDayLoad};
+    }
+
+    @Override
+    public boolean isSatisfied(Timetable timetable) throws NullPointerException {
         // DayLoad(d,w) ≤ S
-        int dayLoad;
-        final int weeksLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().weeks().length, daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        Time eventTime;
-        for (int w = 0; w < weeksLength; w++)
-            for (int d = 0; d < daysLength; d++) {
-                dayLoad = 0;
-                for (Class aClass : getClasses()) {
-                    eventTime = timetable.getEvent(aClass).getTimeAssignment().time();
-                    if (eventTime.weeks()[w] && eventTime.days()[d]) dayLoad += eventTime.duration();
-                    if (dayLoad > maxDayLoad) return false;
-                }
+        long start = EvaluationMetrics.start();
+        boolean satisfied = true;
+        for (int dayLoad : dayLoads(timetable))
+            if (dayLoad > maxDayLoad) {
+                satisfied = false;
+                break;
             }
-        return true;
+        EvaluationMetrics.record(getClass(), EvaluationMetrics.Operation.IS_SATISFIED, start);
+        return satisfied;
     }
 
     @Override
-    int violationCount(Timetable timetable) throws NullPointerException {
-        int dayLoad, totalOverflow = 0;
-        final int weeksLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().weeks().length, daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        Time eventTime;
-        for (int w = 0; w < weeksLength; w++)
-            for (int d = 0; d < daysLength; d++) {
-                dayLoad = 0;
-                for (Class aClass : getClasses()) {
-                    eventTime = timetable.getEvent(aClass).getTimeAssignment().time();
-                    if (eventTime.weeks()[w] && eventTime.days()[d]) dayLoad += eventTime.duration();
-                    if (dayLoad > maxDayLoad) totalOverflow += (dayLoad - maxDayLoad);
+    public int violationCount(Timetable timetable) throws NullPointerException {
+        int totalOverflow = 0;
+        for (int dayLoad : dayLoads(timetable))
+            totalOverflow += Math.max(0, dayLoad - maxDayLoad);
+        return totalOverflow;
+    }
+
+    /**
+     * Calculates DayLoad(d,w) of every week w and day d of the given timetable, indexed by w * nrDays + d.
+     */
+    private int[] dayLoads(Timetable timetable) {
+        Time first = timetable.getEvent(getClasses()[0]).getTimeAssignment().time();
+        final int daysLength = first.days().length;
+        int[] dayLoads = new int[first.weeks().length * daysLength];
+        for (Class aClass : getClasses())
+            addLoad(dayLoads, daysLength, timetable.getEvent(aClass).getTimeAssignment().time(), 1);
+        return dayLoads;
+    }
+
+    /**
+     * Adds (sign = 1) or removes (sign = -1) the load of the given time to the day loads and returns the resulting
+     * change of the total overflow.
+     */
+    private int addLoad(int[] dayLoads, int daysLength, Time time, int sign) {
+        int overflowChange = 0;
+        long[] weeksMask = time.weeksMask();
+        for (int word = 0; word < weeksMask.length; word++)
+            for (long weeks = weeksMask[word]; weeks != 0; weeks &= weeks - 1) {
+                int base = ((word << 6) + Long.numberOfTrailingZeros(weeks)) * daysLength;
+                for (long days = time.daysMask(); days != 0; days &= days - 1) {
+                    int day = base + Long.numberOfTrailingZeros(days);
+                    overflowChange -= Math.max(0, dayLoads[day] - maxDayLoad);
+                    dayLoads[day] += sign * time.duration();
+                    overflowChange += Math.max(0, dayLoads[day] - maxDayLoad);
                 }
             }
-        return totalOverflow;
+        return overflowChange;
+    }
+
+    @Override
+    public ConstraintState createState(Timetable timetable) throws NullPointerException {
+        return new DayLoadState(timetable);
+    }
+
+    /**
+     * The incremental state of this constraint: the load of every day of every week and the total overflow, updated in
+     * O(meetings of the old and the new time) when a class moves.
+     */
+    private class DayLoadState extends ConstraintState {
+        private final int[] dayLoads;
+        private final int daysLength;
+        private int totalOverflow;
+
+        private DayLoadState(Timetable timetable) {
+            dayLoads = dayLoads(timetable);
+            daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
+            for (int dayLoad : dayLoads)
+                totalOverflow += Math.max(0, dayLoad - maxDayLoad);
+        }
+
+        @Override
+        public int violationCount() {
+            return totalOverflow;
+        }
+
+        @Override
+        public int move(Time oldTime, Time newTime) {
+            totalOverflow += addLoad(dayLoads, daysLength, oldTime, -1) + addLoad(dayLoads, daysLength, newTime, 1);
+            return totalOverflow;
+        }
     }
-}
\ No newline at end of file
+}
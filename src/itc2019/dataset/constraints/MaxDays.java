@@ -1,7 +1,9 @@
 package itc2019.dataset.constraints;
 
 import itc2019.dataset.Class;
+import itc2019.dataset.Time;
 import itc2019.dataset.Timetable;
+import itc2019.metrics.EvaluationMetrics;
 
 /**
  * <p>The classes in this constraint should not be assigned to more than D different weekdays, regardless of whether
@@ -29,34 +31,63 @@ public class MaxDays extends DistributionConstraint {
         this.maxDays = maxDays;
     }
 
+    @Override
+    public int[] getParameters() {
+        return new int[]{maxDays};
+    }
+
     // TODO: Is there a better way to get the days and weeks lengths in isSatisfied and violationCount methods for this, maxDayLoad, maxBreaks, maxBlock and soft constraint classes?
-    // TODO: Verify and optimize this, maxDayLoad, maxBreaks, and maxBlock constraint classes.
     @Override
-    boolean isSatisfied(Timetable timetable) throws NullPointerException {
+    public boolean isSatisfied(Timetable timetable) throws NullPointerException {
         // countNonzeroBits(C1.days or C2.days or ⋅ ⋅ ⋅ Cn.days) ≤ D
-        int counter = 0;
-        final int daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        for (int i = 0; i < daysLength; i++)
-            for (Class aClass : getClasses()) {
-                if (counter > maxDays) return false;
-                if (timetable.getEvent(aClass).getTimeAssignment().time().days()[i]) {
-                    counter++;
-                    break;
-                }
-            }
-        return true;
+        long start = EvaluationMetrics.start();
+        boolean satisfied = violationCount(timetable) == 0;
+        EvaluationMetrics.record(getClass(), EvaluationMetrics.Operation.IS_SATISFIED, start);
+        return satisfied;
     }
 
     @Override
-    int violationCount(Timetable timetable) throws NullPointerException {
-        int counter = 0;
-        final int daysLength = timetable.getEvent(getClasses()[0]).getTimeAssignment().time().days().length;
-        for (int i = 0; i < daysLength; i++)
+    public int violationCount(Timetable timetable) throws NullPointerException {
+        long days = 0;
+        for (Class aClass : getClasses())
+            days |= timetable.getEvent(aClass).getTimeAssignment().time().daysMask();
+        return Math.max(0, Long.bitCount(days) - maxDays);
+    }
+
+    @Override
+    public ConstraintState createState(Timetable timetable) throws NullPointerException {
+        return new DayUsageState(timetable);
+    }
+
+    /**
+     * The incremental state of this constraint: the number of classes meeting on each day of the week and the number of
+     * days with at least one class, updated in O(days of the old and the new time) when a class moves.
+     */
+    private class DayUsageState extends ConstraintState {
+        private final int[] dayUsages = new int[Long.SIZE];
+        private int usedDays;
+
+        private DayUsageState(Timetable timetable) {
             for (Class aClass : getClasses())
-                if (timetable.getEvent(aClass).getTimeAssignment().time().days()[i]) {
-                    counter++;
-                    break;
-                }
-        return Math.max(0, counter - maxDays);
+                update(0, timetable.getEvent(aClass).getTimeAssignment().time().daysMask());
+        }
+
+        @Override
+        public int violationCount() {
+            return Math.max(0, usedDays - maxDays);
+        }
+
+        @Override
+        public int move(Time oldTime, Time newTime) {
+            update(oldTime.daysMask(), newTime.daysMask());
+            return violationCount();
+        }
+
+        private void update(long oldDays, long newDays) {
+            for (; oldDays != 0; oldDays &= oldDays - 1)
+                if (--dayUsages[Long.numberOfTrailingZeros(oldDays)] == 0) usedDays--;
+            for (; newDays != 0; newDays &= newDays - 1)
+                if (dayUsages[Long.numberOfTrailingZeros(newDays)]++ == 0) usedDays++;
+        }
     }
-}
\ No newline at end of file
+}
@@ -30,11 +30,16 @@ public class MinGap extends PairDistributionConstraint {
         this.minGap = minGap;
     }
 
+    @Override
+    public int[] getParameters() {
+        return new int[]{minGap};
+    }
+
     @Override
     boolean check(Event e1, Event e2) throws NullPointerException {
         // ((Ci.days and Cj.days) = 0) ∨ ((Ci.weeks and Cj.weeks) = 0) ∨ (Ci.end + G ≤ Cj.start) ∨ (Cj.end + G ≤ Ci.start)
-        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().days(), e2.getTimeAssignment().time().days())
-                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeks(), e2.getTimeAssignment().time().weeks())
+        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().daysMask(), e2.getTimeAssignment().time().daysMask())
+                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeksMask(), e2.getTimeAssignment().time().weeksMask())
                 || (e1.getTimeAssignment().time().end() + minGap <= e2.getTimeAssignment().time().start())
                 || (e2.getTimeAssignment().time().end() + minGap <= e1.getTimeAssignment().time().start());
     }
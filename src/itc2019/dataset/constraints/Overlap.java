@@ -26,7 +26,7 @@ public class Overlap extends PairDistributionConstraint {
         // (Cj.start < Ci.end) ∧ (Ci.start < Cj.end) ∧ ((Ci.days and Cj.days) ≠ 0) ∧ ((Ci.weeks and Cj.weeks) ≠ 0)
         return (e2.getTimeAssignment().time().start() < e1.getTimeAssignment().time().end())
                 && (e1.getTimeAssignment().time().start() < e2.getTimeAssignment().time().end())
-                && (!LogicalOperators.areExclusive(e1.getTimeAssignment().time().days(), e2.getTimeAssignment().time().days()))
-                && (!LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeks(), e2.getTimeAssignment().time().weeks()));
+                && (!LogicalOperators.areExclusive(e1.getTimeAssignment().time().daysMask(), e2.getTimeAssignment().time().daysMask()))
+                && (!LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeksMask(), e2.getTimeAssignment().time().weeksMask()));
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package itc2019.dataset.constraints;
 import itc2019.dataset.Class;
 import itc2019.dataset.Event;
 import itc2019.dataset.Timetable;
+import itc2019.metrics.EvaluationMetrics;
 
 /**
  * This abstract class represents a paired distribution constraint as defined in the ITC 2019 dataset. A distribution
@@ -11,6 +12,8 @@ import itc2019.dataset.Timetable;
  * a list of events (scheduled classes). The necessary check methods for violations are also added here.
  */
 abstract class PairDistributionConstraint extends DistributionConstraint {
+    private CompatibilityTable table;
+
     /**
      * Constructs a paired distribution constraint object with the given classes.
      *
@@ -30,30 +33,106 @@ abstract class PairDistributionConstraint extends DistributionConstraint {
      */
     abstract boolean check(Event e1, Event e2) throws NullPointerException;
 
+    /**
+     * Checks if the check of this constraint depends on the assigned times of the events.
+     *
+     * @return true if {@link #check(Event, Event)} reads the time assignments of the events.
+     */
+    boolean usesTime() {
+        return true;
+    }
+
+    /**
+     * Checks if the check of this constraint depends on the assigned rooms of the events.
+     *
+     * @return true if {@link #check(Event, Event)} reads the room assignments of the events.
+     */
+    boolean usesRoom() {
+        return false;
+    }
+
+    /**
+     * Gets the precompiled table of this constraint.
+     *
+     * @return The compatibility table of this constraint, or null if it has not been precompiled.
+     */
+    CompatibilityTable getTable() {
+        return table;
+    }
+
+    void setTable(CompatibilityTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Checks the pair of the classes at the given positions of this constraint, with a lookup in the precompiled table
+     * if there is one and both events are assigned.
+     *
+     * @param i  The position of the first class (i &lt; j).
+     * @param j  The position of the second class.
+     * @param e1 The event of the first class.
+     * @param e2 The event of the second class.
+     * @return true if the given pair of events satisfy this pair distribution constraint; false otherwise.
+     * @throws NullPointerException If the given timetable is half or not scheduled.
+     */
+    private boolean check(int i, int j, Event e1, Event e2) throws NullPointerException {
+        EvaluationMetrics.recordCheck(getClass());
+        CompatibilityTable table = this.table;
+        if (table != null) {
+            int option1 = table.optionOf(e1), option2 = table.optionOf(e2);
+            if (option1 >= 0 && option2 >= 0) return table.isCompatible(i, j, option1, option2);
+        }
+        return check(e1, e2);
+    }
+
     @Override
-    boolean isSatisfied(Timetable timetable) throws NullPointerException {
+    public boolean isSatisfied(Timetable timetable) throws NullPointerException {
+        long start = EvaluationMetrics.start();
+        boolean satisfied = true;
         Event event1, event2;
+        pairs:
         for (int i = 0; i < getClasses().length - 1; i++) {
             event1 = timetable.getEvent(getClasses()[i]);
             for (int j = i + 1; j < getClasses().length; j++) {
                 event2 = timetable.getEvent(getClasses()[j]);
-                if (!check(event1, event2)) return false;
+                if (!check(i, j, event1, event2)) {
+                    satisfied = false;
+                    break pairs;
+                }
             }
         }
-        return true;
+        EvaluationMetrics.record(getClass(), EvaluationMetrics.Operation.IS_SATISFIED, start);
+        return satisfied;
     }
 
     @Override
-    int violationCount(Timetable timetable) throws NullPointerException {
+    public int violationCount(Timetable timetable) throws NullPointerException {
         int count = 0;
         Event event1, event2;
         for (int i = 0; i < getClasses().length - 1; i++) {
             event1 = timetable.getEvent(getClasses()[i]);
             for (int j = i + 1; j < getClasses().length; j++) {
                 event2 = timetable.getEvent(getClasses()[j]);
-                if (!check(event1, event2)) count++;
+                if (!check(i, j, event1, event2)) count++;
             }
         }
         return count;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPairwise() {
+        return true;
+    }
+
+    @Override
+    public int violationCount(Timetable timetable, int position) throws NullPointerException {
+        // The pairs are checked in the order of the classes, as some checks (e.g. precedence) are not symmetric
+        int count = 0;
+        Event event = timetable.getEvent(getClasses()[position]);
+        for (int i = 0; i < position; i++)
+            if (!check(i, position, timetable.getEvent(getClasses()[i]), event)) count++;
+        for (int i = position + 1; i < getClasses().length; i++)
+            if (!check(position, i, event, timetable.getEvent(getClasses()[i]))) count++;
+        return count;
+    }
+}
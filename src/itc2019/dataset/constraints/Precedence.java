@@ -41,10 +41,10 @@ public class Precedence extends PairDistributionConstraint {
         //       ((first(Ci.days) = first(Cj.days)) ∧ (Ci.end ≤ Cj.start))
         //     ]
         //  ]
-        int e1WeeksFirst = LogicalOperators.firstTrueIndex(e1.getTimeAssignment().time().weeks());
-        int e2WeeksFirst = LogicalOperators.firstTrueIndex(e2.getTimeAssignment().time().weeks());
-        int e1DaysFirst = LogicalOperators.firstTrueIndex(e1.getTimeAssignment().time().days());
-        int e2DaysFirst = LogicalOperators.firstTrueIndex(e2.getTimeAssignment().time().days());
+        int e1WeeksFirst = LogicalOperators.firstTrueIndex(e1.getTimeAssignment().time().weeksMask());
+        int e2WeeksFirst = LogicalOperators.firstTrueIndex(e2.getTimeAssignment().time().weeksMask());
+        int e1DaysFirst = LogicalOperators.firstTrueIndex(e1.getTimeAssignment().time().daysMask());
+        int e2DaysFirst = LogicalOperators.firstTrueIndex(e2.getTimeAssignment().time().daysMask());
         return e1WeeksFirst < e2WeeksFirst
                 || (e1WeeksFirst == e2WeeksFirst
                 && (e1DaysFirst < e2DaysFirst
@@ -18,13 +18,17 @@ import utils.LogicalOperators;
  * rooms of Ci and Cj.</p>
  */
 public class SameAttendees extends PairDistributionConstraint {
+    private final TravelTime travelTimes;
+
     /**
      * Constructs a paired same attendees distribution constraint object with the given classes.
      *
-     * @param classes Classes that this distribution constraint applies to.
+     * @param classes     Classes that this distribution constraint applies to.
+     * @param travelTimes The travel times between the rooms of the problem instance of the classes.
      */
-    public SameAttendees(Class[] classes) {
+    public SameAttendees(Class[] classes, TravelTime travelTimes) {
         super(classes);
+        this.travelTimes = travelTimes;
     }
 
     @Override
@@ -32,10 +36,15 @@ public class SameAttendees extends PairDistributionConstraint {
         // (Ci.end + Ci.room.travel[Cj.room] ≤ Cj.start)
         // ∨ (Cj.end + Cj.room.travel[Ci.room] ≤ Ci.start)
         // ∨ ((Ci.days and Cj.days) = 0) ∨ ((Ci.weeks and Cj.weeks) = 0)
-        int travelTime = TravelTime.getInstance().getTravelTime(e1.getRoomAssignment().room(), e2.getRoomAssignment().room());
+        int travelTime = travelTimes.getTravelTime(e1.getRoomAssignment().room(), e2.getRoomAssignment().room());
         return (e1.getTimeAssignment().time().end() + travelTime <= e2.getTimeAssignment().time().start())
                 || (e2.getTimeAssignment().time().end() + travelTime <= e1.getTimeAssignment().time().start())
-                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().days(), e2.getTimeAssignment().time().days())
-                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeks(), e2.getTimeAssignment().time().weeks());
+                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().daysMask(), e2.getTimeAssignment().time().daysMask())
+                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeksMask(), e2.getTimeAssignment().time().weeksMask());
+    }
+
+    @Override
+    boolean usesRoom() {
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -27,6 +27,6 @@ public class SameDays extends PairDistributionConstraint {
     @Override
     boolean check(Event e1, Event e2) throws NullPointerException {
         // ((Ci.days or Cj.days) = Ci.days) ∨ ((Ci.days or Cj.days) = Cj.days)
-        return LogicalOperators.areSubsets(e1.getTimeAssignment().time().days(), e2.getTimeAssignment().time().days());
+        return LogicalOperators.areSubsets(e1.getTimeAssignment().time().daysMask(), e2.getTimeAssignment().time().daysMask());
     }
 }
\ No newline at end of file
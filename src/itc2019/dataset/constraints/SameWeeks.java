@@ -25,6 +25,6 @@ public class SameWeeks extends PairDistributionConstraint {
     @Override
     boolean check(Event e1, Event e2) throws NullPointerException {
         // (Ci.weeks or Cj.weeks) = Ci.weeks) ∨ (Ci.weeks or Cj.weeks) = Cj.weeks)
-        return LogicalOperators.areSubsets(e1.getTimeAssignment().time().weeks(), e2.getTimeAssignment().time().weeks());
+        return LogicalOperators.areSubsets(e1.getTimeAssignment().time().weeksMask(), e2.getTimeAssignment().time().weeksMask());
     }
 }
\ No newline at end of file
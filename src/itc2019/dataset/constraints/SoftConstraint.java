@@ -32,9 +32,20 @@ public record SoftConstraint(DistributionConstraint constraint, int penalty) {
      * @return The penalty of this soft constraint on the given timetable.
      * @throws NullPointerException If the passed timetable is half or not scheduled.
      */
-    int calcPenalty(Timetable timetable) throws NullPointerException {
+    public int calcPenalty(Timetable timetable) throws NullPointerException {
+        return calcPenalty(constraint.violationCount(timetable), timetable.getEvents()[0].getTimeAssignment().time().weeks().length);
+    }
+
+    /**
+     * Calculates the penalty of this soft constraint from an already known violation count of its constraint.
+     *
+     * @param violationCount The violation count of the constraint of this soft constraint.
+     * @param nrWeeks        The number of weeks in a semester as defined in the problem instance.
+     * @return The penalty of this soft constraint for the given violation count.
+     */
+    public int calcPenalty(int violationCount, int nrWeeks) {
         if (constraint instanceof MaxDayLoad || constraint instanceof MaxBreaks || constraint instanceof MaxBlock)
-            return (penalty * constraint.violationCount(timetable) / timetable.getEvents()[0].getTimeAssignment().time().weeks().length);
-        return penalty * constraint.violationCount(timetable);
+            return (penalty * violationCount / nrWeeks);
+        return penalty * violationCount;
     }
 }
\ No newline at end of file
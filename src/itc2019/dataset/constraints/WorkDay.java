@@ -30,11 +30,16 @@ public class WorkDay extends PairDistributionConstraint {
         this.maxDayLength = maxDayLength;
     }
 
+    @Override
+    public int[] getParameters() {
+        return new int[]{maxDayLength};
+    }
+
     @Override
     boolean check(Event e1, Event e2) throws NullPointerException {
         // ((Ci.days and Cj.days) = 0) ∨ ((Ci.weeks and Cj.weeks) = 0) ∨ (max(Ci.end,Cj.end)−min(Ci.start,Cj.start) ≤ S)
-        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().days(), e2.getTimeAssignment().time().days())
-                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeks(), e2.getTimeAssignment().time().weeks())
+        return LogicalOperators.areExclusive(e1.getTimeAssignment().time().daysMask(), e2.getTimeAssignment().time().daysMask())
+                || LogicalOperators.areExclusive(e1.getTimeAssignment().time().weeksMask(), e2.getTimeAssignment().time().weeksMask())
                 || (Math.max(e1.getTimeAssignment().time().end(), e2.getTimeAssignment().time().end()) - Math.min(e1.getTimeAssignment().time().start(), e2.getTimeAssignment().time().start()) <= maxDayLength);
     }
 }
\ No newline at end of file
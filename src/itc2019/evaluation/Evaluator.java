@@ -0,0 +1,220 @@
+package itc2019.evaluation;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.dataset.constraints.HardConstraint;
+import itc2019.dataset.constraints.SoftConstraint;
+import itc2019.metrics.EvaluationMetrics;
+import utils.LogicalOperators;
+
+import java.util.Arrays;
+
+/**
+ * This class implements the full (from scratch) evaluation of a timetable (candidate solution) based on the criteria of
+ * the ITC 2019. <strong>All the events of the evaluated timetable must have a time assignment and all the events whose
+ * class needs a room must have a room assignment.</strong>
+ */
+public class Evaluator {
+    /**
+     * Evaluates the given timetable.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable (candidate solution) to evaluate.
+     * @return The penalty breakdown of the given timetable.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public static PenaltyBreakdown evaluate(ProblemInstance instance, Timetable timetable) throws NullPointerException {
+        return new PenaltyBreakdown(hardViolations(instance, timetable), timetable.getRoomOccupancy().conflictCount(),
+                timePenalty(timetable), roomPenalty(timetable), distributionPenalty(instance, timetable),
+                studentConflicts(instance, timetable));
+    }
+
+    /**
+     * Counts the total violations of all the hard constraints of the problem instance in the given timetable.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable (candidate solution) to evaluate.
+     * @return The total violation count of the hard constraints.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public static int hardViolations(ProblemInstance instance, Timetable timetable) throws NullPointerException {
+        int count = 0;
+        for (HardConstraint hardConstraint : instance.hardConstraints()) {
+            long start = EvaluationMetrics.start();
+            count += hardConstraint.constraint().violationCount(timetable);
+            EvaluationMetrics.record(hardConstraint.constraint().getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, start);
+        }
+        return count;
+    }
+
+    /**
+     * Calculates the sum of the penalties of all the soft constraints of the problem instance in the given timetable.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable (candidate solution) to evaluate.
+     * @return The (unweighted) distribution penalty.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public static int distributionPenalty(ProblemInstance instance, Timetable timetable) throws NullPointerException {
+        int penalty = 0;
+        for (SoftConstraint softConstraint : instance.softConstraints()) {
+            long start = EvaluationMetrics.start();
+            int count = softConstraint.constraint().violationCount(timetable);
+            EvaluationMetrics.record(softConstraint.constraint().getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, start);
+            penalty += softConstraint.calcPenalty(count, instance.nrWeeks());
+        }
+        return penalty;
+    }
+
+    /**
+     * Calculates the sum of the penalties of the assigned times of the given timetable.
+     *
+     * @param timetable The timetable (candidate solution) to evaluate.
+     * @return The (unweighted) time penalty.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public static int timePenalty(Timetable timetable) throws NullPointerException {
+        int penalty = 0;
+        for (Event event : timetable.getEvents())
+            penalty += event.getTimeAssignment().penalty();
+        return penalty;
+    }
+
+    /**
+     * Calculates the sum of the penalties of the assigned rooms of the given timetable.
+     *
+     * @param timetable The timetable (candidate solution) to evaluate.
+     * @return The (unweighted) room penalty.
+     */
+    public static int roomPenalty(Timetable timetable) {
+        int penalty = 0;
+        for (Event event : timetable.getEvents())
+            if (event.getRoomAssignment() != null) penalty += event.getRoomAssignment().penalty();
+        return penalty;
+    }
+
+    /**
+     * Counts the student conflicts of the given timetable. Each pair of classes of a student that the student cannot
+     * both attend is one conflict, regardless of the number of their meetings in conflict.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable (candidate solution) to evaluate.
+     * @return The number of student conflicts.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public static int studentConflicts(ProblemInstance instance, Timetable timetable) throws NullPointerException {
+        int count = 0;
+        Event[] events = timetable.getEvents();
+        for (int[] classes : studentClasses(instance, timetable))
+            for (int i = 0; i < classes.length - 1; i++)
+                for (int j = i + 1; j < classes.length; j++)
+                    if (isStudentConflict(events[classes[i]], events[classes[j]], instance.travelTimes())) count++;
+        return count;
+    }
+
+    /**
+     * Counts the sectioning errors of the given timetable. Every student must be enrolled in exactly one class of every
+     * subpart of a single configuration of each requested course. For each requested course, the configuration holding
+     * most of the classes of the student is taken as the chosen one: every subpart of it without a class of the student
+     * is one missing enrollment, and every class of the student beyond the first one of a subpart, in another
+     * configuration of the course, or of a course the student does not request is one extra enrollment.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable (candidate solution) to check.
+     * @return The number of missing and extra enrollments of all the students.
+     */
+    public static int sectioningErrors(ProblemInstance instance, Timetable timetable) {
+        Course[] courses = instance.courses();
+        // The configurations and subparts of the whole instance are numbered in order, course by course
+        int[] courseConfigs = new int[courses.length + 1];
+        for (int c = 0; c < courses.length; c++)
+            courseConfigs[c + 1] = courseConfigs[c] + courses[c].configs().length;
+        int[] configSubparts = new int[courseConfigs[courses.length] + 1];
+        int[] classConfigs = new int[instance.classes().length], classSubparts = new int[instance.classes().length];
+        int configCount = 0, subpartCount = 0;
+        for (Course course : courses)
+            for (Config config : course.configs()) {
+                for (Subpart subpart : config.subparts()) {
+                    for (Class aClass : subpart.classes()) {
+                        classConfigs[aClass.id() - 1] = configCount;
+                        classSubparts[aClass.id() - 1] = subpartCount;
+                    }
+                    subpartCount++;
+                }
+                configSubparts[++configCount] = subpartCount;
+            }
+        int[] configClasses = new int[configCount], subpartClasses = new int[subpartCount];
+        StudentClassIndex index = timetable.getStudentClassIndex();
+        Student[] students = instance.students();
+        int[][] studentClasses = studentClasses(instance, timetable);
+        int errors = 0;
+        for (int s = 0; s < students.length; s++) {
+            for (int c : studentClasses[s]) {
+                configClasses[classConfigs[c]]++;
+                subpartClasses[classSubparts[c]]++;
+            }
+            int requestedClasses = 0;
+            for (int e = index.courseStart(students[s]); e < index.courseEnd(students[s]); e++) {
+                int course = index.requestedCourse(e), chosen = courseConfigs[course];
+                for (int k = courseConfigs[course]; k < courseConfigs[course + 1]; k++) {
+                    if (configClasses[k] > configClasses[chosen]) chosen = k;
+                    requestedClasses += configClasses[k];
+                }
+                for (int k = courseConfigs[course]; k < courseConfigs[course + 1]; k++)
+                    if (k != chosen) errors += configClasses[k]; // The classes of the other configurations
+                for (int p = configSubparts[chosen]; p < configSubparts[chosen + 1]; p++)
+                    errors += subpartClasses[p] == 0 ? 1 : subpartClasses[p] - 1;
+            }
+            errors += studentClasses[s].length - requestedClasses; // The classes of the courses not requested
+            for (int c : studentClasses[s]) {
+                configClasses[classConfigs[c]] = 0;
+                subpartClasses[classSubparts[c]] = 0;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Checks if a student attending both the given events has a conflict, i.e. if the two events overlap in time or are
+     * one after the other in rooms that are too far apart.
+     *
+     * @param e1          The first event (scheduled class).
+     * @param e2          The second event (scheduled class).
+     * @param travelTimes The travel times between the rooms of the problem instance.
+     * @return true if a student cannot attend both events; false otherwise.
+     * @throws NullPointerException If one of the events does not have a time assignment.
+     */
+    public static boolean isStudentConflict(Event e1, Event e2, TravelTime travelTimes) throws NullPointerException {
+        Time t1 = e1.getTimeAssignment().time(), t2 = e2.getTimeAssignment().time();
+        if (LogicalOperators.areExclusive(t1.daysMask(), t2.daysMask())
+                || LogicalOperators.areExclusive(t1.weeksMask(), t2.weeksMask())) return false;
+        int travelTime = e1.getRoomAssignment() == null || e2.getRoomAssignment() == null ? 0
+                : travelTimes.getTravelTime(e1.getRoomAssignment().room(), e2.getRoomAssignment().room());
+        return t1.end() + travelTime > t2.start() && t2.end() + travelTime > t1.start();
+    }
+
+    /**
+     * Collects the enrollments of the given timetable per student.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The timetable (candidate solution).
+     * @return An array holding, for the student with the id of i + 1, the indices (class id - 1) of the events the
+     * student is enrolled in.
+     */
+    static int[][] studentClasses(ProblemInstance instance, Timetable timetable) {
+        int[] counts = new int[instance.students().length];
+        for (Event event : timetable.getEvents())
+            for (int i = 0; i < event.getStudentCount(); i++)
+                counts[event.getStudent(i).id() - 1]++;
+        int[][] studentClasses = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++)
+            studentClasses[i] = new int[counts[i]];
+        Arrays.fill(counts, 0);
+        for (Event event : timetable.getEvents())
+            for (int i = 0; i < event.getStudentCount(); i++) {
+                int student = event.getStudent(i).id() - 1;
+                studentClasses[student][counts[student]++] = event.getTheClass().id() - 1;
+            }
+        return studentClasses;
+    }
+}
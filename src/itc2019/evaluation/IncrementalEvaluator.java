@@ -0,0 +1,452 @@
+package itc2019.evaluation;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.dataset.constraints.ConstraintState;
+import itc2019.dataset.constraints.DistributionConstraint;
+import itc2019.dataset.constraints.SoftConstraint;
+import itc2019.metrics.EvaluationMetrics;
+
+import java.util.Arrays;
+
+/**
+ * <p>This class keeps the evaluation of a timetable (candidate solution) up to date while its events are changed one at
+ * a time, which is what local search methods do. It caches the violation count of every hard and soft constraint and
+ * the total penalties, and evaluates a move (a new time and/or room for one event) by re-checking only the constraints
+ * of the class of the moved event (found through the {@link ClassConstraintIndex} of the problem instance) and, for
+ * paired constraints, only the pairs that involve that class. Constraints with a
+ * {@link ConstraintState} (e.g. {@link itc2019.dataset.constraints.MaxDayLoad}) are updated from the old and the new
+ * time of the moved class instead of being recounted. The student conflicts are updated in the same way from the other
+ * classes of the students of the moved event.</p>
+ * <p>The results are exact, i.e. after any sequence of applied moves, {@link #getBreakdown()} is equal to a full
+ * evaluation with {@link Evaluator#evaluate(ProblemInstance, Timetable)}. <strong>The timetable must be fully
+ * scheduled when this evaluator is created and must only be changed through {@link #apply}, {@link #addStudent} and
+ * {@link #removeStudent} afterwards (or be re-read with {@link #recompute()}).</strong> An evaluator is not
+ * thread-safe; use one per timetable and thread.</p>
+ */
+public class IncrementalEvaluator {
+    private final ProblemInstance instance;
+    private final Timetable timetable;
+    private final ClassConstraintIndex constraintIndex;
+    private final int[] counts; // The violation count of each constraint, by the id of the constraint in the index
+    private final ConstraintState[] states; // The incremental state of each constraint that has one (null otherwise)
+    private final int[] scratch; // The "before" counts of the constraints of the moved class
+    private int[][] studentClasses, classStudents; // The enrollments by student and by class, with spare room
+    private int[] studentClassCounts, classStudentCounts; // The used lengths of the above
+    private int hardViolations, timePenalty, roomPenalty, distributionPenalty, studentConflicts;
+    private int lastHardDelta, lastTimeDelta, lastRoomDelta, lastDistributionDelta, lastStudentDelta;
+
+    /**
+     * Constructs an incremental evaluator and fully evaluates the given timetable.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The fully scheduled timetable to keep the evaluation of.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public IncrementalEvaluator(ProblemInstance instance, Timetable timetable) throws NullPointerException {
+        this.instance = instance;
+        this.timetable = timetable;
+        constraintIndex = instance.constraintIndex();
+        counts = new int[constraintIndex.constraintCount()];
+        states = new ConstraintState[counts.length];
+        scratch = new int[constraintIndex.maxDegree()];
+        recompute();
+    }
+
+    /**
+     * Fully re-evaluates the timetable and resets all the cached values, including the student enrollments.
+     *
+     * @throws NullPointerException If the timetable is half or not scheduled.
+     */
+    public void recompute() throws NullPointerException {
+        hardViolations = 0;
+        distributionPenalty = 0;
+        for (int c = 0; c < counts.length; c++) {
+            DistributionConstraint constraint = constraintIndex.constraint(c);
+            states[c] = constraint.createState(timetable);
+            long start = EvaluationMetrics.start();
+            counts[c] = states[c] != null ? states[c].violationCount() : constraint.violationCount(timetable);
+            EvaluationMetrics.record(constraint.getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, start);
+            if (constraintIndex.isHard(c)) hardViolations += counts[c];
+            else distributionPenalty += softConstraint(c).calcPenalty(counts[c], instance.nrWeeks());
+        }
+        timePenalty = Evaluator.timePenalty(timetable);
+        roomPenalty = Evaluator.roomPenalty(timetable);
+        studentClasses = Evaluator.studentClasses(instance, timetable);
+        int[] classCounts = new int[timetable.getEvents().length];
+        for (int[] classes : studentClasses)
+            for (int aClass : classes)
+                classCounts[aClass]++;
+        classStudents = new int[classCounts.length][];
+        for (int i = 0; i < classCounts.length; i++) {
+            classStudents[i] = new int[classCounts[i]];
+            classCounts[i] = 0;
+        }
+        for (int s = 0; s < studentClasses.length; s++)
+            for (int aClass : studentClasses[s])
+                classStudents[aClass][classCounts[aClass]++] = s;
+        classStudentCounts = classCounts;
+        studentClassCounts = new int[studentClasses.length];
+        for (int s = 0; s < studentClasses.length; s++)
+            studentClassCounts[s] = studentClasses[s].length;
+        studentConflicts = Evaluator.studentConflicts(instance, timetable);
+    }
+
+    private SoftConstraint softConstraint(int constraintId) {
+        return instance.softConstraints()[constraintId - constraintIndex.hardConstraintCount()];
+    }
+
+    /**
+     * Evaluates moving the given event to the given time and room, without changing the timetable. The delta of each
+     * part of the evaluation is afterwards available through the getLast...Delta methods.
+     *
+     * @param event          The event to move.
+     * @param timeAssignment The new time of the event.
+     * @param roomAssignment The new room of the event (null if the class of the event does not need a room).
+     * @return The change of the total (weighted) penalty. The change of the hard constraint violations is returned by
+     * {@link #getLastHardDelta()}.
+     * @throws IllegalArgumentException If the passed time or room is invalid for the event.
+     */
+    public int evaluate(Event event, TimeAssignment timeAssignment, RoomAssignment roomAssignment) throws IllegalArgumentException {
+        return evaluate(event, timeOption(event, timeAssignment), roomOption(event, roomAssignment));
+    }
+
+    /**
+     * Evaluates moving the given event to the given time and room options, without changing the timetable, like
+     * {@link #evaluate(Event, TimeAssignment, RoomAssignment)} but without searching the options of the assignments.
+     *
+     * @param event      The event to move.
+     * @param timeOption The index of the new time in the possible times of the class of the event.
+     * @param roomOption The index of the new room in the possible rooms of the class of the event (-1 if the class of
+     *                   the event does not need a room).
+     * @return The change of the total (weighted) penalty. The change of the hard constraint violations is returned by
+     * {@link #getLastHardDelta()}.
+     * @throws IllegalArgumentException If the passed time or room option is invalid for the event.
+     */
+    public int evaluate(Event event, int timeOption, int roomOption) throws IllegalArgumentException {
+        EvaluationMetrics.recordMoveEvaluation();
+        return move(event, timeOption, roomOption, false);
+    }
+
+    /**
+     * Moves the given event to the given time and room and updates the cached evaluation.
+     *
+     * @param event          The event to move.
+     * @param timeAssignment The new time of the event.
+     * @param roomAssignment The new room of the event (null if the class of the event does not need a room).
+     * @return The change of the total (weighted) penalty.
+     * @throws IllegalArgumentException If the passed time or room is invalid for the event.
+     */
+    public int apply(Event event, TimeAssignment timeAssignment, RoomAssignment roomAssignment) throws IllegalArgumentException {
+        return apply(event, timeOption(event, timeAssignment), roomOption(event, roomAssignment));
+    }
+
+    /**
+     * Moves the given event to the given time and room options and updates the cached evaluation, like
+     * {@link #apply(Event, TimeAssignment, RoomAssignment)} but without searching the options of the assignments.
+     *
+     * @param event      The event to move.
+     * @param timeOption The index of the new time in the possible times of the class of the event.
+     * @param roomOption The index of the new room in the possible rooms of the class of the event (-1 if the class of
+     *                   the event does not need a room).
+     * @return The change of the total (weighted) penalty.
+     * @throws IllegalArgumentException If the passed time or room option is invalid for the event.
+     */
+    public int apply(Event event, int timeOption, int roomOption) throws IllegalArgumentException {
+        EvaluationMetrics.recordAcceptedMove();
+        return move(event, timeOption, roomOption, true);
+    }
+
+    private static int timeOption(Event event, TimeAssignment timeAssignment) {
+        int option = indexOf(event.getTheClass().possibleTimes(), timeAssignment);
+        if (option < 0)
+            throw new IllegalArgumentException("The passed time does not exist in the possible time assignments of this class!");
+        return option;
+    }
+
+    private static int roomOption(Event event, RoomAssignment roomAssignment) {
+        RoomAssignment[] possibleRooms = event.getTheClass().possibleRooms();
+        if (roomAssignment == null || possibleRooms == null) return -1; // Validated by move
+        int option = indexOf(possibleRooms, roomAssignment);
+        if (option < 0)
+            throw new IllegalArgumentException("The passed room does not exist in the possible room assignments of this class!");
+        return option;
+    }
+
+    /**
+     * Finds the index of the passed assignment in the passed possible assignments, first by identity as in
+     * {@link Event#setTimeAssignment(TimeAssignment)}.
+     */
+    private static int indexOf(Object[] possibleAssignments, Object assignment) {
+        for (int i = 0; i < possibleAssignments.length; i++)
+            if (possibleAssignments[i] == assignment) return i;
+        for (int i = 0; i < possibleAssignments.length; i++)
+            if (possibleAssignments[i].equals(assignment)) return i;
+        return -1;
+    }
+
+    /**
+     * Moves the given event to the given options, re-evaluates the parts of the evaluation that involve it, and keeps
+     * or reverts the move. The event is only ever moved by its options, which takes O(1) time.
+     */
+    private int move(Event event, int timeOption, int roomOption, boolean commit) {
+        Class aClass = event.getTheClass();
+        int classIndex = aClass.id() - 1;
+        TimeAssignment[] possibleTimes = aClass.possibleTimes();
+        RoomAssignment[] possibleRooms = aClass.possibleRooms();
+        if (timeOption < 0 || timeOption >= possibleTimes.length)
+            throw new IllegalArgumentException("The passed time option is out of the possible time assignments of this class!");
+        if (possibleRooms == null ? roomOption != -1 : roomOption < 0 || roomOption >= possibleRooms.length)
+            throw new IllegalArgumentException("The passed room option is out of the possible room assignments of this class!");
+        int oldTimeOption = event.getTimeOption(), oldRoomOption = event.getRoomOption();
+        TimeAssignment timeAssignment = possibleTimes[timeOption], oldTime = event.getTimeAssignment();
+        RoomAssignment roomAssignment = roomOption < 0 ? null : possibleRooms[roomOption], oldRoom = event.getRoomAssignment();
+        boolean timeChanged = timeOption != oldTimeOption, roomChanged = roomOption != oldRoomOption;
+        lastTimeDelta = timeAssignment.penalty() - oldTime.penalty();
+        lastRoomDelta = (roomAssignment == null ? 0 : roomAssignment.penalty()) - (oldRoom == null ? 0 : oldRoom.penalty());
+        // STEP 1: The parts of the evaluation that involve the moved class before the move
+        int start = constraintIndex.start(aClass), end = constraintIndex.end(aClass);
+        for (int e = start; e < end; e++) {
+            int c = constraintIndex.constraintId(e);
+            DistributionConstraint constraint = constraintIndex.constraint(c);
+            if (states[c] == null && constraint.isPairwise()) {
+                long startTime = EvaluationMetrics.start();
+                scratch[e - start] = constraint.violationCount(timetable, constraintIndex.position(e));
+                EvaluationMetrics.record(constraint.getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, startTime);
+            } else if (states[c] == null) scratch[e - start] = counts[c];
+        }
+        int studentsBefore = studentConflicts(event, classIndex);
+        // STEP 2: Performing the move and re-checking the same parts
+        try {
+            if (timeChanged) event.setTimeOption(timeOption);
+            if (roomChanged) event.setRoomOption(roomOption);
+        } catch (IllegalArgumentException e) { // An invalid move must leave the timetable untouched
+            event.setTimeOption(oldTimeOption);
+            throw e;
+        }
+        lastHardDelta = 0;
+        lastDistributionDelta = 0;
+        for (int e = start; e < end; e++) {
+            int c = constraintIndex.constraintId(e);
+            int oldCount = counts[c], newCount;
+            if (states[c] != null && !timeChanged) newCount = oldCount; // The states only depend on the times
+            else {
+                long startTime = EvaluationMetrics.start();
+                if (states[c] == null)
+                    newCount = oldCount + constraintIndex.constraint(c).violationCount(timetable, constraintIndex.position(e)) - scratch[e - start];
+                else {
+                    newCount = states[c].move(oldTime.time(), timeAssignment.time());
+                    if (!commit) states[c].move(timeAssignment.time(), oldTime.time());
+                }
+                EvaluationMetrics.record(constraintIndex.constraint(c).getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, startTime);
+            }
+            if (constraintIndex.isHard(c)) lastHardDelta += newCount - oldCount;
+            else {
+                SoftConstraint softConstraint = softConstraint(c);
+                lastDistributionDelta += softConstraint.calcPenalty(newCount, instance.nrWeeks()) - softConstraint.calcPenalty(oldCount, instance.nrWeeks());
+            }
+            if (commit) counts[c] = newCount;
+        }
+        lastStudentDelta = studentConflicts(event, classIndex) - studentsBefore;
+        // STEP 3: Keeping or reverting the move
+        if (commit) {
+            hardViolations += lastHardDelta;
+            timePenalty += lastTimeDelta;
+            roomPenalty += lastRoomDelta;
+            distributionPenalty += lastDistributionDelta;
+            studentConflicts += lastStudentDelta;
+        } else {
+            if (timeChanged) event.setTimeOption(oldTimeOption);
+            if (roomChanged && oldRoomOption >= 0) event.setRoomOption(oldRoomOption);
+        }
+        return instance.timePenaltyWeight() * lastTimeDelta + instance.roomPenaltyWeight() * lastRoomDelta
+                + instance.distributionPenaltyWeight() * lastDistributionDelta
+                + instance.studentPenaltyWeight() * lastStudentDelta;
+    }
+
+    /**
+     * Counts the student conflicts between the given event and the other events of its students.
+     */
+    private int studentConflicts(Event event, int classIndex) {
+        int count = 0;
+        for (int i = 0; i < classStudentCounts[classIndex]; i++)
+            count += studentConflicts(event, classIndex, classStudents[classIndex][i]);
+        return count;
+    }
+
+    /**
+     * Counts the student conflicts between the given event and the other events of the given student.
+     */
+    private int studentConflicts(Event event, int classIndex, int student) {
+        int count = 0;
+        Event[] events = timetable.getEvents();
+        for (int i = 0; i < studentClassCounts[student]; i++) {
+            int other = studentClasses[student][i];
+            if (other != classIndex && Evaluator.isStudentConflict(event, events[other], instance.travelTimes()))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Enrolls the given student in the given event (see {@link Event#addStudent(Student, Timetable)}) and updates the
+     * student conflicts from the other events of the student. The getLast...Delta methods afterwards return the change
+     * of this enrollment.
+     *
+     * @param event   The event to enroll the student in.
+     * @param student The student to enroll.
+     * @return The change of the total (weighted) penalty.
+     * @throws IllegalStateException    If the class or the room of the event is full.
+     * @throws IllegalArgumentException If the student cannot be enrolled in the event.
+     */
+    public int addStudent(Event event, Student student) throws IllegalStateException, IllegalArgumentException {
+        event.addStudent(student, timetable);
+        int classIndex = event.getTheClass().id() - 1, s = student.id() - 1;
+        int delta = studentConflicts(event, classIndex, s);
+        studentClasses[s] = add(studentClasses[s], studentClassCounts[s]++, classIndex);
+        classStudents[classIndex] = add(classStudents[classIndex], classStudentCounts[classIndex]++, s);
+        return enrollmentDelta(delta);
+    }
+
+    /**
+     * Unenrolls the given student from the given event (see {@link Event#removeStudent(Student)}) and updates the
+     * student conflicts from the other events of the student. The getLast...Delta methods afterwards return the change
+     * of this unenrollment.
+     *
+     * @param event   The event to unenroll the student from.
+     * @param student The student to unenroll.
+     * @return The change of the total (weighted) penalty.
+     * @throws IllegalArgumentException If the student is not enrolled in the event.
+     */
+    public int removeStudent(Event event, Student student) throws IllegalArgumentException {
+        event.removeStudent(student);
+        int classIndex = event.getTheClass().id() - 1, s = student.id() - 1;
+        remove(studentClasses[s], --studentClassCounts[s], classIndex);
+        remove(classStudents[classIndex], --classStudentCounts[classIndex], s);
+        return enrollmentDelta(-studentConflicts(event, classIndex, s));
+    }
+
+    /**
+     * Stores the given value at the given index of the given array, growing the array if it is full.
+     */
+    private static int[] add(int[] array, int index, int value) {
+        if (index == array.length) array = Arrays.copyOf(array, Math.max(4, array.length * 2));
+        array[index] = value;
+        return array;
+    }
+
+    /**
+     * Removes the given value from the given array by moving the last used element (at the given index) into its place.
+     * The value is searched from the end, where the most recently added values are.
+     */
+    private static void remove(int[] array, int last, int value) {
+        int i = last;
+        while (array[i] != value) i--;
+        array[i] = array[last];
+    }
+
+    private int enrollmentDelta(int studentDelta) {
+        lastHardDelta = 0;
+        lastTimeDelta = 0;
+        lastRoomDelta = 0;
+        lastDistributionDelta = 0;
+        lastStudentDelta = studentDelta;
+        studentConflicts += studentDelta;
+        return instance.studentPenaltyWeight() * studentDelta;
+    }
+
+    /**
+     * Gets the cached evaluation of the timetable. The room conflicts are not cached but counted on the room occupancy
+     * of the timetable, in time linear in the number of events.
+     *
+     * @return The current penalty breakdown of the timetable.
+     */
+    public PenaltyBreakdown getBreakdown() {
+        return new PenaltyBreakdown(hardViolations, timetable.getRoomOccupancy().conflictCount(), timePenalty,
+                roomPenalty, distributionPenalty, studentConflicts);
+    }
+
+    /**
+     * Gets the cached total (weighted) penalty of the timetable.
+     *
+     * @return The current total penalty of the timetable.
+     */
+    public int getTotalPenalty() {
+        return instance.timePenaltyWeight() * timePenalty + instance.roomPenaltyWeight() * roomPenalty
+                + instance.distributionPenaltyWeight() * distributionPenalty
+                + instance.studentPenaltyWeight() * studentConflicts;
+    }
+
+    /**
+     * Gets the cached total violation count of the hard constraints.
+     *
+     * @return The current number of hard constraint violations.
+     */
+    public int getHardViolations() {
+        return hardViolations;
+    }
+
+    /**
+     * Gets the cached violation count of a constraint.
+     *
+     * @param constraintId The id of the constraint in the {@link ClassConstraintIndex} of the problem instance.
+     * @return The current violation count of the constraint.
+     */
+    public int getViolationCount(int constraintId) {
+        return counts[constraintId];
+    }
+
+    /**
+     * Gets the timetable of this evaluator.
+     *
+     * @return The evaluated timetable.
+     */
+    public Timetable getTimetable() {
+        return timetable;
+    }
+
+    /**
+     * Gets the change of the hard constraint violations of the last evaluated or applied move.
+     *
+     * @return The hard violations delta.
+     */
+    public int getLastHardDelta() {
+        return lastHardDelta;
+    }
+
+    /**
+     * Gets the change of the (unweighted) time penalty of the last evaluated or applied move.
+     *
+     * @return The time penalty delta.
+     */
+    public int getLastTimeDelta() {
+        return lastTimeDelta;
+    }
+
+    /**
+     * Gets the change of the (unweighted) room penalty of the last evaluated or applied move.
+     *
+     * @return The room penalty delta.
+     */
+    public int getLastRoomDelta() {
+        return lastRoomDelta;
+    }
+
+    /**
+     * Gets the change of the (unweighted) distribution penalty of the last evaluated or applied move.
+     *
+     * @return The distribution penalty delta.
+     */
+    public int getLastDistributionDelta() {
+        return lastDistributionDelta;
+    }
+
+    /**
+     * Gets the change of the number of student conflicts of the last evaluated or applied move.
+     *
+     * @return The student conflicts delta.
+     */
+    public int getLastStudentDelta() {
+        return lastStudentDelta;
+    }
+}
@@ -0,0 +1,204 @@
+package itc2019.evaluation;
+
+import itc2019.dataset.*;
+import itc2019.dataset.constraints.DistributionConstraint;
+import itc2019.dataset.constraints.SoftConstraint;
+import itc2019.metrics.EvaluationMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>This class implements the full evaluation of a timetable (candidate solution) split over the threads of a
+ * {@link ForkJoinPool}. The result is always identical to the sequential {@link Evaluator#evaluate(ProblemInstance,
+ * Timetable)}, as all the parts of the evaluation are integer sums.</p>
+ * <p>The work is split into chunks of roughly equal estimated cost once, when the evaluator is created: expensive
+ * constraints (e.g. a {@link itc2019.dataset.constraints.MaxBlock} or {@link itc2019.dataset.constraints.MaxBreaks}
+ * over many classes) form their own chunk, while the many small paired constraints are batched together. The student
+ * conflicts are split into chunks of students in the same way. An evaluator can be used by several threads at once, as
+ * long as the evaluated timetables are not changed during the evaluation.</p>
+ */
+public class ParallelEvaluator {
+    private final ProblemInstance instance;
+    private final ForkJoinPool pool;
+    private final int[] constraintOrder; // Constraint ids sorted by decreasing cost
+    private final int[] constraintChunks; // Chunk c holds constraintOrder[constraintChunks[c]..constraintChunks[c + 1])
+    private final long targetChunkCost;
+
+    /**
+     * Constructs a parallel evaluator using the common fork-join pool.
+     *
+     * @param instance The problem instance of the evaluated timetables.
+     */
+    public ParallelEvaluator(ProblemInstance instance) {
+        this(instance, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a parallel evaluator using the given fork-join pool.
+     *
+     * @param instance The problem instance of the evaluated timetables.
+     * @param pool     The pool to run the evaluations in.
+     */
+    public ParallelEvaluator(ProblemInstance instance, ForkJoinPool pool) {
+        this.instance = instance;
+        this.pool = pool;
+        ClassConstraintIndex constraintIndex = instance.constraintIndex();
+        int constraintCount = constraintIndex.constraintCount();
+        long[] costs = new long[constraintCount];
+        long totalCost = 0;
+        for (int c = 0; c < constraintCount; c++) {
+            costs[c] = cost(constraintIndex.constraint(c));
+            totalCost += costs[c];
+        }
+        // Around 4 chunks per thread, so that the threads finishing early can steal the remaining chunks
+        targetChunkCost = Math.max(1, totalCost / (4L * pool.getParallelism()));
+        Integer[] order = new Integer[constraintCount];
+        for (int c = 0; c < constraintCount; c++)
+            order[c] = c;
+        Arrays.sort(order, Comparator.comparingLong((Integer c) -> costs[c]).reversed());
+        constraintOrder = new int[constraintCount];
+        List<Integer> chunks = new ArrayList<>();
+        long chunkCost = 0;
+        for (int i = 0; i < constraintCount; i++) {
+            constraintOrder[i] = order[i];
+            if (i == 0 || chunkCost + costs[order[i]] > targetChunkCost) {
+                chunks.add(i);
+                chunkCost = 0;
+            }
+            chunkCost += costs[order[i]];
+        }
+        chunks.add(constraintCount);
+        constraintChunks = chunks.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Estimates the cost of evaluating the given constraint as the number of basic checks it performs.
+     */
+    private long cost(DistributionConstraint constraint) {
+        long classCount = constraint.getClasses().length;
+        if (constraint.isPairwise()) return Math.max(1, classCount * (classCount - 1) / 2);
+        return classCount * instance.nrWeeks() * instance.nrDays();
+    }
+
+    /**
+     * Evaluates the given timetable in parallel.
+     *
+     * @param timetable The fully scheduled timetable (candidate solution) to evaluate.
+     * @return The penalty breakdown of the given timetable, identical to the one of the sequential evaluation.
+     * @throws NullPointerException If the passed timetable is half or not scheduled.
+     */
+    public PenaltyBreakdown evaluate(Timetable timetable) throws NullPointerException {
+        return pool.invoke(new EvaluationTask(timetable));
+    }
+
+    /**
+     * The root task, which forks one task per chunk and sums up their results.
+     */
+    @SuppressWarnings("serial") // The tasks are never serialized
+    private class EvaluationTask extends RecursiveTask<PenaltyBreakdown> {
+        private final Timetable timetable;
+
+        private EvaluationTask(Timetable timetable) {
+            this.timetable = timetable;
+        }
+
+        @Override
+        protected PenaltyBreakdown compute() {
+            List<RecursiveTask<int[]>> tasks = new ArrayList<>();
+            for (int c = 0; c + 1 < constraintChunks.length; c++)
+                tasks.add(new ConstraintChunk(timetable, constraintChunks[c], constraintChunks[c + 1]));
+            int[][] studentClasses = Evaluator.studentClasses(instance, timetable);
+            long chunkCost = 0;
+            int chunkStart = 0;
+            for (int s = 0; s < studentClasses.length; s++) {
+                chunkCost += (long) studentClasses[s].length * (studentClasses[s].length - 1) / 2;
+                if (chunkCost >= targetChunkCost || s == studentClasses.length - 1) {
+                    tasks.add(new StudentChunk(timetable, studentClasses, chunkStart, s + 1));
+                    chunkStart = s + 1;
+                    chunkCost = 0;
+                }
+            }
+            ForkJoinTask.invokeAll(tasks);
+            int hardViolations = 0, distributionPenalty = 0, studentConflicts = 0;
+            for (RecursiveTask<int[]> task : tasks) {
+                int[] result = task.join();
+                hardViolations += result[0];
+                distributionPenalty += result[1];
+                studentConflicts += result[2];
+            }
+            return new PenaltyBreakdown(hardViolations, timetable.getRoomOccupancy().conflictCount(),
+                    Evaluator.timePenalty(timetable), Evaluator.roomPenalty(timetable), distributionPenalty, studentConflicts);
+        }
+    }
+
+    /**
+     * Evaluates a chunk of the constraints. The result is {hard violations, distribution penalty, 0}.
+     */
+    @SuppressWarnings("serial") // The tasks are never serialized
+    private class ConstraintChunk extends RecursiveTask<int[]> {
+        private final Timetable timetable;
+        private final int from, to;
+
+        private ConstraintChunk(Timetable timetable, int from, int to) {
+            this.timetable = timetable;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            ClassConstraintIndex constraintIndex = instance.constraintIndex();
+            int hardViolations = 0, distributionPenalty = 0;
+            for (int i = from; i < to; i++) {
+                int c = constraintOrder[i];
+                DistributionConstraint constraint = constraintIndex.constraint(c);
+                long start = EvaluationMetrics.start();
+                int count = constraint.violationCount(timetable);
+                EvaluationMetrics.record(constraint.getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, start);
+                if (constraintIndex.isHard(c)) hardViolations += count;
+                else {
+                    SoftConstraint softConstraint = instance.softConstraints()[c - constraintIndex.hardConstraintCount()];
+                    distributionPenalty += softConstraint.calcPenalty(count, instance.nrWeeks());
+                }
+            }
+            return new int[]{hardViolations, distributionPenalty, 0};
+        }
+    }
+
+    /**
+     * Counts the student conflicts of a chunk of the students. The result is {0, 0, student conflicts}.
+     */
+    @SuppressWarnings("serial") // The tasks are never serialized
+    private class StudentChunk extends RecursiveTask<int[]> {
+        private final Timetable timetable;
+        private final int[][] studentClasses;
+        private final int from, to;
+
+        private StudentChunk(Timetable timetable, int[][] studentClasses, int from, int to) {
+            this.timetable = timetable;
+            this.studentClasses = studentClasses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            Event[] events = timetable.getEvents();
+            int count = 0;
+            for (int s = from; s < to; s++) {
+                int[] classes = studentClasses[s];
+                for (int i = 0; i < classes.length - 1; i++)
+                    for (int j = i + 1; j < classes.length; j++)
+                        if (Evaluator.isStudentConflict(events[classes[i]], events[classes[j]], instance.travelTimes()))
+                            count++;
+            }
+            return new int[]{0, 0, count};
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package itc2019.evaluation;
+
+import itc2019.dataset.ProblemInstance;
+
+/**
+ * <p>This class represents the evaluation of a timetable (candidate solution) as defined in the ITC 2019. A solution is
+ * feasible only if it does not violate any hard constraint and has no room conflict. The quality of a feasible solution is the weighted sum of
+ * its time, room, distribution and student penalties, where the weights are defined in the problem instance.</p>
+ *
+ * @param hardViolations      The total violation count of all the hard distribution constraints.
+ * @param roomConflicts       The number of room conflicts (see {@link itc2019.dataset.RoomOccupancy#conflictCount()}),
+ *                            i.e. pairs of classes placed in the same room at overlapping times and classes placed in a
+ *                            room when it is unavailable, which are hard violations as well.
+ * @param timePenalty         The sum of the penalties of the assigned times.
+ * @param roomPenalty         The sum of the penalties of the assigned rooms.
+ * @param distributionPenalty The sum of the penalties of all the soft constraints.
+ * @param studentConflicts    The number of student conflicts, i.e. pairs of classes of a student that the student
+ *                            cannot attend both.
+ */
+public record PenaltyBreakdown(int hardViolations, int roomConflicts, int timePenalty, int roomPenalty, int distributionPenalty,
+                               int studentConflicts) {
+    /**
+     * Checks if the evaluated timetable satisfies all the hard constraints.
+     *
+     * @return true if there is no hard constraint violation and no room conflict; false otherwise.
+     */
+    public boolean isFeasible() {
+        return hardViolations == 0 && roomConflicts == 0;
+    }
+
+    /**
+     * Calculates the total (weighted) penalty of the evaluated timetable.
+     *
+     * @param instance The problem instance defining the weights of the different penalties.
+     * @return The total penalty, i.e. the objective value to minimize.
+     */
+    public int totalPenalty(ProblemInstance instance) {
+        return instance.timePenaltyWeight() * timePenalty + instance.roomPenaltyWeight() * roomPenalty
+                + instance.distributionPenaltyWeight() * distributionPenalty
+                + instance.studentPenaltyWeight() * studentConflicts;
+    }
+}
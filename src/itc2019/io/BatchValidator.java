@@ -0,0 +1,197 @@
+package itc2019.io;
+
+import itc2019.dataset.ProblemInstance;
+import itc2019.dataset.Timetable;
+import itc2019.evaluation.Evaluator;
+import itc2019.evaluation.PenaltyBreakdown;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * <p>This class validates and scores a whole directory of problem instances and their solutions at once. The XML files
+ * of the directory (and its subdirectories) are told apart by their root elements, and every solution is paired with
+ * the problem instance of the same name, so any number of (e.g. archived) solutions of an instance can be validated
+ * together.</p>
+ * <p>Every problem instance is one task of a bounded thread pool: the task parses the instance, then reads and
+ * evaluates its solutions one by one, so at most one instance per thread is in memory at any moment. The result of every
+ * solution is printed as soon as its instance is done, followed by the throughput of the whole batch.</p>
+ */
+public class BatchValidator {
+    private final int threadCount;
+
+    /**
+     * The result of validating a single solution file.
+     *
+     * @param solution         The path of the solution file.
+     * @param instanceName     The name of the problem instance of the solution.
+     * @param breakdown        The penalty breakdown of the solution; null if the solution could not be read.
+     * @param sectioningErrors The number of missing and extra student enrollments of the solution (see
+     *                         {@link Evaluator#sectioningErrors(ProblemInstance, Timetable)}).
+     * @param totalPenalty     The total (weighted) penalty of the solution.
+     * @param error            The reason the solution could not be read; null if it was read.
+     */
+    public record Result(Path solution, String instanceName, PenaltyBreakdown breakdown, int sectioningErrors,
+                         int totalPenalty, String error) {
+        /**
+         * Checks if the solution was read, sections every student correctly and satisfies all the hard constraints.
+         *
+         * @return true if the solution is a valid and feasible solution of its problem instance; false otherwise.
+         */
+        public boolean isValid() {
+            return error == null && sectioningErrors == 0 && breakdown.isFeasible();
+        }
+    }
+
+    /**
+     * The root element of an XML file and the name of the problem instance it holds or solves.
+     */
+    private record Header(String element, String instanceName) {
+    }
+
+    /**
+     * Constructs a batch validator object that validates the given number of problem instances at the same time.
+     *
+     * @param threadCount The number of threads of the pool.
+     * @throws IllegalArgumentException If the number of threads is not positive.
+     */
+    public BatchValidator(int threadCount) throws IllegalArgumentException {
+        if (threadCount < 1) throw new IllegalArgumentException("The number of threads must be positive!");
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Validates all the solutions of the given directory against the problem instances of the directory and prints the
+     * result of every solution and the throughput to the given stream.
+     *
+     * @param directory The directory holding the problem instance and solution XML files.
+     * @param out       The stream to print the results to.
+     * @return The results of all the solutions, sorted by their paths.
+     * @throws IOException          If the directory cannot be listed.
+     * @throws InterruptedException If the current thread is interrupted while waiting for the validation.
+     */
+    public List<Result> validate(Path directory, PrintStream out) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        Map<String, Path> instances = new HashMap<>();
+        Map<String, List<Path>> solutions = new TreeMap<>();
+        List<Result> results = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".xml")).sorted().toList();
+        }
+        long bytes = 0;
+        for (Path file : files) {
+            bytes += Files.size(file);
+            try {
+                Header header = readHeader(file);
+                if (header.element().equals("problem") && instances.putIfAbsent(header.instanceName(), file) != null)
+                    results.add(new Result(file, header.instanceName(), null, 0, 0, "Duplicate problem instance!"));
+                else if (header.element().equals("solution"))
+                    solutions.computeIfAbsent(header.instanceName(), name -> new ArrayList<>()).add(file);
+            } catch (IOException | XMLStreamException e) {
+                results.add(new Result(file, null, null, 0, 0, String.valueOf(e.getMessage())));
+            }
+        }
+        out.printf("%-40s %-24s %8s %6s %6s %8s %8s %8s %10s %8s %10s%n", "Solution", "Instance", "Status", "Hard",
+                "Rooms", "Section.", "Time", "Room", "Distrib.", "Student", "Total");
+        for (Result result : results) print(result, out);
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        CompletionService<List<Result>> completion = new ExecutorCompletionService<>(pool);
+        int taskCount = 0;
+        try {
+            for (Map.Entry<String, List<Path>> entry : solutions.entrySet()) {
+                Path instance = instances.get(entry.getKey());
+                completion.submit(() -> validate(instance, entry.getKey(), entry.getValue()));
+                taskCount++;
+            }
+            for (int i = 0; i < taskCount; i++) {
+                List<Result> instanceResults = completion.take().get();
+                for (Result result : instanceResults) print(result, out);
+                results.addAll(instanceResults);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The validation of a problem instance failed!", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        results.sort(Comparator.comparing(Result::solution));
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long validCount = results.stream().filter(Result::isValid).count();
+        out.printf("%d solutions of %d problem instances (%d valid, %d invalid) in %.2f s with %d threads: "
+                        + "%.2f solutions/s, %.2f MB/s%n", results.size(), taskCount, validCount, results.size() - validCount,
+                seconds, threadCount, results.size() / seconds, bytes / seconds / (1 << 20));
+        return results;
+    }
+
+    /**
+     * Parses the given problem instance and validates the given solutions of it.
+     */
+    private static List<Result> validate(Path instanceFile, String instanceName, List<Path> solutionFiles) {
+        List<Result> results = new ArrayList<>(solutionFiles.size());
+        ProblemInstance instance;
+        try {
+            if (instanceFile == null) throw new IOException("The problem instance " + instanceName + " is missing!");
+            instance = ProblemInstanceParser.parse(instanceFile);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            for (Path solution : solutionFiles)
+                results.add(new Result(solution, instanceName, null, 0, 0, String.valueOf(e.getMessage())));
+            return results;
+        }
+        for (Path solution : solutionFiles) {
+            try {
+                Timetable timetable = SolutionReader.read(instance, solution);
+                PenaltyBreakdown breakdown = Evaluator.evaluate(instance, timetable);
+                results.add(new Result(solution, instanceName, breakdown, Evaluator.sectioningErrors(instance, timetable),
+                        breakdown.totalPenalty(instance), null));
+            } catch (IOException | XMLStreamException | RuntimeException e) { // A broken solution must not stop the batch
+                results.add(new Result(solution, instanceName, null, 0, 0, String.valueOf(e.getMessage())));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads the root element of the given XML file and its name attribute, without reading the rest of the file.
+     */
+    private static Header readHeader(Path file) throws IOException, XMLStreamException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            XMLStreamReader reader = ProblemInstanceParser.newInputFactory().createXMLStreamReader(in);
+            try {
+                while (reader.hasNext())
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getAttributeValue(null, "name");
+                        if (name == null)
+                            throw new XMLStreamException("The root element is missing attribute name!", reader.getLocation());
+                        return new Header(reader.getLocalName(), name);
+                    }
+                throw new XMLStreamException("The file has no root element!");
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static void print(Result result, PrintStream out) {
+        String file = result.solution().getFileName().toString();
+        String instance = Objects.toString(result.instanceName(), "-");
+        if (result.error() != null) {
+            out.printf("%-40s %-24s %8s %s%n", file, instance, "ERROR", result.error().replace('\n', ' '));
+            return;
+        }
+        PenaltyBreakdown breakdown = result.breakdown();
+        out.printf("%-40s %-24s %8s %6d %6d %8d %8d %8d %10d %8d %10d%n", file, instance,
+                result.isValid() ? "valid" : "invalid", breakdown.hardViolations(), breakdown.roomConflicts(),
+                result.sectioningErrors(), breakdown.timePenalty(), breakdown.roomPenalty(), breakdown.distributionPenalty(),
+                breakdown.studentConflicts(), result.totalPenalty());
+    }
+}
@@ -0,0 +1,436 @@
+package itc2019.io;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.dataset.constraints.DistributionConstraint;
+import itc2019.dataset.constraints.HardConstraint;
+import itc2019.dataset.constraints.SoftConstraint;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>This class stores a loaded problem instance in a compact binary file and loads it back, which is orders of
+ * magnitude faster than parsing its XML file again. The file is read through a memory-mapped {@link FileChannel}, so
+ * several processes loading the same cache file share its pages in the page cache of the operating system.</p>
+ * <p>The file is a 16 byte header (magic number, format version, payload size in ints and the CRC32C checksum of the
+ * payload) followed by a payload of little-endian ints, in flat sections: the name and parameters of the instance, the
+ * distinct (interned) time patterns, the rooms, the classes with their time and room options, the courses, the
+ * constraints with their parameters, the students and the travel times (two shorts per int, in the order of the
+ * triangular matrix of {@link TravelTime}). Times, rooms and classes are referenced by their indices, so the time
+ * patterns stay interned when the instance is loaded.</p>
+ * <p>A cache file whose header does not match (e.g. written by another version of this class) or whose checksum is
+ * wrong is rejected with an {@link IOException}; {@link #load(Path, Path)} then simply rebuilds it from the XML file.</p>
+ */
+public class InstanceCache {
+    private static final int MAGIC = 0x49544343; // "ITCC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final String[] TYPES = {"SameStart", "SameTime", "DifferentTime", "SameDays", "DifferentDays",
+            "SameWeeks", "DifferentWeeks", "Overlap", "NotOverlap", "SameRoom", "DifferentRoom", "SameAttendees",
+            "Precedence", "WorkDay", "MinGap", "MaxDays", "MaxDayLoad", "MaxBreaks", "MaxBlock"};
+    private int[] data = new int[1 << 12]; // The payload while writing
+    private int size;
+    private IntBuffer in; // The payload while reading
+
+    private InstanceCache() {
+    }
+
+    /**
+     * Loads the problem instance of the given XML file from the given cache file if the cache file is up to date, or
+     * parses the XML file and (re)writes the cache file otherwise.
+     *
+     * @param xmlFile   The path of the XML file of the problem instance.
+     * @param cacheFile The path of the binary cache file of the problem instance.
+     * @return The loaded problem instance.
+     * @throws IOException        If the XML file cannot be read or the cache file cannot be written.
+     * @throws XMLStreamException If the XML file is not a well-formed and valid ITC 2019 problem instance.
+     */
+    public static ProblemInstance load(Path xmlFile, Path cacheFile) throws IOException, XMLStreamException {
+        if (Files.isRegularFile(cacheFile)
+                && Files.getLastModifiedTime(cacheFile).compareTo(Files.getLastModifiedTime(xmlFile)) >= 0) {
+            try {
+                return read(cacheFile);
+            } catch (IOException e) {
+                // An outdated or damaged cache file is rebuilt below
+            }
+        }
+        ProblemInstance instance = ProblemInstanceParser.parse(xmlFile);
+        write(instance, cacheFile);
+        return instance;
+    }
+
+    /**
+     * Writes the given problem instance to the given cache file. The file is written next to its final path first and
+     * then moved in place, so other processes never read a half-written cache file.
+     *
+     * @param instance The problem instance.
+     * @param file     The path of the cache file, which is replaced if it exists.
+     * @throws IOException              If the file cannot be written.
+     * @throws IllegalArgumentException If a constraint of the problem instance is not one of the ITC 2019 types.
+     */
+    public static void write(ProblemInstance instance, Path file) throws IOException, IllegalArgumentException {
+        InstanceCache cache = new InstanceCache();
+        cache.writeInstance(instance);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + cache.size * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_SIZE);
+        buffer.asIntBuffer().put(cache.data, 0, cache.size);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, cache.size * 4));
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, cache.size).putInt(12, (int) crc.getValue());
+        buffer.position(0);
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the problem instance stored in the given cache file.
+     *
+     * @param file The path of the cache file.
+     * @return The loaded problem instance.
+     * @throws IOException If the file cannot be read, is not a cache file of this version or is damaged.
+     */
+    public static ProblemInstance read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE)
+                throw new IOException(file + " is not a problem instance cache file!");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) throw new IOException(file + " is not a problem instance cache file!");
+            if (buffer.getInt(4) != VERSION)
+                throw new IOException(file + " is of the unsupported cache version " + buffer.getInt(4) + "!");
+            int payloadSize = buffer.getInt(8);
+            if (payloadSize < 0 || HEADER_SIZE + payloadSize * 4L != fileSize)
+                throw new IOException(file + " is truncated!");
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(HEADER_SIZE, payloadSize * 4));
+            if ((int) crc.getValue() != buffer.getInt(12)) throw new IOException(file + " is damaged (checksum mismatch)!");
+            InstanceCache cache = new InstanceCache();
+            cache.in = buffer.slice(HEADER_SIZE, payloadSize * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            try {
+                return cache.readInstance();
+            } catch (RuntimeException e) {
+                throw new IOException(file + " holds an invalid problem instance: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Writing
+
+    private void put(int value) {
+        if (size == data.length) data = Arrays.copyOf(data, size * 2);
+        data[size++] = value;
+    }
+
+    private void writeInstance(ProblemInstance instance) {
+        byte[] name = instance.instanceName() == null ? null : instance.instanceName().getBytes(StandardCharsets.UTF_8);
+        put(name == null ? -1 : name.length);
+        for (int i = 0; name != null && i < name.length; i += 4) {
+            int word = 0;
+            for (int b = 0; b < 4 && i + b < name.length; b++)
+                word |= (name[i + b] & 0xFF) << (b * 8);
+            put(word);
+        }
+        put(instance.nrDays());
+        put(instance.nrWeeks());
+        put(instance.slotsPerDay());
+        put(instance.timePenaltyWeight());
+        put(instance.roomPenaltyWeight());
+        put(instance.distributionPenaltyWeight());
+        put(instance.studentPenaltyWeight());
+        IdentityHashMap<Time, Integer> times = writeTimes(instance);
+        // Rooms: id, capacity, unavailable times
+        put(instance.rooms().length);
+        for (Room room : instance.rooms()) {
+            put(room.id());
+            put(room.capacity());
+            put(room.unavailable().length);
+            for (Time time : room.unavailable()) put(times.get(time));
+        }
+        // Classes: id, limit, parent id (0 if none), time options, room options (-1 if the class needs no room)
+        put(instance.classes().length);
+        for (Class aClass : instance.classes()) {
+            put(aClass.id());
+            put(aClass.limit());
+            put(aClass.parent() == null ? 0 : aClass.parent().id());
+            put(aClass.possibleTimes().length);
+            for (TimeAssignment timeAssignment : aClass.possibleTimes()) {
+                put(times.get(timeAssignment.time()));
+                put(timeAssignment.penalty());
+            }
+            put(aClass.possibleRooms() == null ? -1 : aClass.possibleRooms().length);
+            if (aClass.possibleRooms() != null)
+                for (RoomAssignment roomAssignment : aClass.possibleRooms()) {
+                    put(roomAssignment.room().id());
+                    put(roomAssignment.penalty());
+                }
+        }
+        // Courses: id, configs (id, subparts (id, class ids))
+        put(instance.courses().length);
+        for (Course course : instance.courses()) {
+            put(course.id());
+            put(course.configs().length);
+            for (Config config : course.configs()) {
+                put(config.id());
+                put(config.subparts().length);
+                for (Subpart subpart : config.subparts()) {
+                    put(subpart.id());
+                    put(subpart.classes().length);
+                    for (Class aClass : subpart.classes()) put(aClass.id());
+                }
+            }
+        }
+        // Constraints: type, penalty (soft constraints only), parameters, class ids
+        put(instance.hardConstraints().length);
+        for (HardConstraint hardConstraint : instance.hardConstraints()) writeConstraint(hardConstraint.constraint());
+        put(instance.softConstraints().length);
+        for (SoftConstraint softConstraint : instance.softConstraints()) {
+            put(softConstraint.penalty());
+            writeConstraint(softConstraint.constraint());
+        }
+        // Students: id, positions of the requested courses
+        IdentityHashMap<Course, Integer> coursePositions = new IdentityHashMap<>();
+        for (int c = 0; c < instance.courses().length; c++) coursePositions.put(instance.courses()[c], c);
+        put(instance.students().length);
+        for (Student student : instance.students()) {
+            put(student.id());
+            put(student.courses().length);
+            for (Course course : student.courses()) put(coursePositions.get(course));
+        }
+        // Travel times: the lower triangle, two shorts per int
+        TravelTime travelTimes = instance.travelTimes();
+        int roomCount = instance.rooms().length, pending = -1;
+        for (int i = 1; i < roomCount; i++)
+            for (int j = 0; j < i; j++) {
+                int value = travelTimes.getTravelTime(i, j);
+                if (pending < 0) pending = value;
+                else {
+                    put(pending | value << 16);
+                    pending = -1;
+                }
+            }
+        if (pending >= 0) put(pending);
+    }
+
+    /**
+     * Writes the distinct time patterns of the given problem instance: start, duration, then the day and week bits
+     * packed into ints.
+     *
+     * @return The index of every written time pattern.
+     */
+    private IdentityHashMap<Time, Integer> writeTimes(ProblemInstance instance) {
+        IdentityHashMap<Time, Integer> times = new IdentityHashMap<>();
+        for (Room room : instance.rooms())
+            for (Time time : room.unavailable()) times.putIfAbsent(time, times.size());
+        for (Class aClass : instance.classes())
+            for (TimeAssignment timeAssignment : aClass.possibleTimes()) times.putIfAbsent(timeAssignment.time(), times.size());
+        Time[] ordered = new Time[times.size()];
+        times.forEach((time, index) -> ordered[index] = time);
+        put(ordered.length);
+        for (Time time : ordered) {
+            put(time.start());
+            put(time.duration());
+            writeBits(time.days());
+            writeBits(time.weeks());
+        }
+        return times;
+    }
+
+    private void writeBits(boolean[] bits) {
+        for (int i = 0; i < bits.length; i += 32) {
+            int word = 0;
+            for (int b = 0; b < 32 && i + b < bits.length; b++)
+                if (bits[i + b]) word |= 1 << b;
+            put(word);
+        }
+    }
+
+    private void writeConstraint(DistributionConstraint constraint) {
+        int type = Arrays.asList(TYPES).indexOf(constraint.getClass().getSimpleName());
+        if (type < 0)
+            throw new IllegalArgumentException("The constraint type " + constraint.getClass().getName() + " cannot be cached!");
+        put(type);
+        int[] parameters = constraint.getParameters();
+        put(parameters.length);
+        for (int parameter : parameters) put(parameter);
+        put(constraint.getClasses().length);
+        for (Class aClass : constraint.getClasses()) put(aClass.id());
+    }
+
+    // Reading
+
+    private int next() {
+        return in.get();
+    }
+
+    private int[] next(int count) {
+        int[] values = new int[count];
+        in.get(values);
+        return values;
+    }
+
+    private ProblemInstance readInstance() {
+        int nameLength = next();
+        String name = null;
+        if (nameLength >= 0) {
+            byte[] bytes = new byte[nameLength];
+            for (int i = 0; i < nameLength; i += 4) {
+                int word = next();
+                for (int b = 0; b < 4 && i + b < nameLength; b++)
+                    bytes[i + b] = (byte) (word >>> (b * 8));
+            }
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int nrDays = next(), nrWeeks = next(), slotsPerDay = next();
+        int timeWeight = next(), roomWeight = next(), distributionWeight = next(), studentWeight = next();
+        Time[] times = new Time[next()];
+        for (int t = 0; t < times.length; t++) {
+            int start = next(), duration = next();
+            boolean[] days = readBits(nrDays), weeks = readBits(nrWeeks);
+            times[t] = new Time(nrWeeks, nrDays, weeks, days, start, duration);
+        }
+        Room[] rooms = new Room[next()];
+        for (int r = 0; r < rooms.length; r++) {
+            int id = next(), capacity = next();
+            Time[] unavailable = new Time[next()];
+            for (int i = 0; i < unavailable.length; i++) unavailable[i] = times[next()];
+            rooms[r] = new Room(id, capacity, unavailable);
+        }
+        TravelTime travelTimes = new TravelTime(rooms.length);
+        Class[] classes = readClasses(times, rooms);
+        Course[] courses = new Course[next()];
+        for (int c = 0; c < courses.length; c++) {
+            int courseId = next();
+            Config[] configs = new Config[next()];
+            for (int f = 0; f < configs.length; f++) {
+                int configId = next();
+                Subpart[] subparts = new Subpart[next()];
+                for (int s = 0; s < subparts.length; s++) {
+                    int subpartId = next();
+                    int[] classIds = next(next());
+                    Class[] subpartClasses = new Class[classIds.length];
+                    for (int i = 0; i < classIds.length; i++) subpartClasses[i] = classes[classIds[i] - 1];
+                    subparts[s] = new Subpart(subpartId, subpartClasses);
+                }
+                configs[f] = new Config(configId, subparts);
+            }
+            courses[c] = new Course(courseId, configs);
+        }
+        HardConstraint[] hardConstraints = new HardConstraint[next()];
+        for (int i = 0; i < hardConstraints.length; i++)
+            hardConstraints[i] = new HardConstraint(readConstraint(classes, travelTimes));
+        SoftConstraint[] softConstraints = new SoftConstraint[next()];
+        for (int i = 0; i < softConstraints.length; i++) {
+            int penalty = next();
+            softConstraints[i] = new SoftConstraint(readConstraint(classes, travelTimes), penalty);
+        }
+        Student[] students = new Student[next()];
+        for (int s = 0; s < students.length; s++) {
+            int id = next();
+            int[] positions = next(next());
+            Course[] requested = new Course[positions.length];
+            for (int i = 0; i < positions.length; i++) requested[i] = courses[positions[i]];
+            students[s] = new Student(id, requested);
+        }
+        int pending = -1;
+        for (int i = 1; i < rooms.length; i++)
+            for (int j = 0; j < i; j++) {
+                int value;
+                if (pending < 0) {
+                    pending = next();
+                    value = pending & 0xFFFF;
+                } else {
+                    value = pending >>> 16;
+                    pending = -1;
+                }
+                if (value != 0) travelTimes.setTravelTime(rooms[i], rooms[j], value);
+            }
+        if (in.hasRemaining()) throw new IllegalArgumentException("Unexpected data after the travel times!");
+        return new ProblemInstance(name, nrDays, nrWeeks, slotsPerDay, timeWeight, roomWeight, distributionWeight,
+                studentWeight, rooms, courses, classes, hardConstraints, softConstraints, students, travelTimes);
+    }
+
+    private boolean[] readBits(int length) {
+        boolean[] bits = new boolean[length];
+        for (int i = 0; i < length; i += 32) {
+            int word = next();
+            for (int b = 0; b < 32 && i + b < length; b++)
+                bits[i + b] = (word >>> b & 1) != 0;
+        }
+        return bits;
+    }
+
+    /**
+     * Reads the classes section. As a class record needs its parent class record, the raw options of every class are
+     * read first and the classes are then created in the order of their parents.
+     */
+    private Class[] readClasses(Time[] times, Room[] rooms) {
+        int count = next();
+        int[] limits = new int[count], parentIds = new int[count];
+        TimeAssignment[][] possibleTimes = new TimeAssignment[count][];
+        RoomAssignment[][] possibleRooms = new RoomAssignment[count][];
+        for (int c = 0; c < count; c++) {
+            if (next() != c + 1) throw new IllegalArgumentException("The cached classes are not sequential!");
+            limits[c] = next();
+            parentIds[c] = next();
+            possibleTimes[c] = new TimeAssignment[next()];
+            for (int i = 0; i < possibleTimes[c].length; i++) {
+                Time time = times[next()];
+                possibleTimes[c][i] = new TimeAssignment(time, next());
+            }
+            int roomCount = next();
+            if (roomCount >= 0) {
+                possibleRooms[c] = new RoomAssignment[roomCount];
+                for (int i = 0; i < roomCount; i++) {
+                    Room room = rooms[next() - 1];
+                    possibleRooms[c][i] = new RoomAssignment(room, next());
+                }
+            }
+        }
+        Class[] classes = new Class[count];
+        for (int c = 0; c < count; c++)
+            createClass(c, classes, limits, parentIds, possibleTimes, possibleRooms, 0);
+        return classes;
+    }
+
+    private static Class createClass(int c, Class[] classes, int[] limits, int[] parentIds,
+                                     TimeAssignment[][] possibleTimes, RoomAssignment[][] possibleRooms, int depth) {
+        if (classes[c] != null) return classes[c];
+        if (depth > classes.length) throw new IllegalArgumentException("The cached classes have a cyclic parent!");
+        Class parent = parentIds[c] == 0 ? null
+                : createClass(parentIds[c] - 1, classes, limits, parentIds, possibleTimes, possibleRooms, depth + 1);
+        classes[c] = new Class(c + 1, limits[c], possibleTimes[c], possibleRooms[c], parent);
+        return classes[c];
+    }
+
+    private DistributionConstraint readConstraint(Class[] classes, TravelTime travelTimes) {
+        String type = TYPES[next()];
+        int[] parameters = next(next());
+        int[] classIds = next(next());
+        Class[] constraintClasses = new Class[classIds.length];
+        for (int i = 0; i < classIds.length; i++) constraintClasses[i] = classes[classIds[i] - 1];
+        return ProblemInstanceParser.createConstraint(type, parameters, constraintClasses, travelTimes);
+    }
+}
@@ -0,0 +1,441 @@
+package itc2019.io;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.dataset.constraints.*;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <p>This class reads a problem instance of the ITC 2019 dataset from its official XML format into a
+ * {@link ProblemInstance}. The file is read with a streaming (StAX) parser in a single pass, so that no DOM tree of the
+ * (possibly hundreds of megabytes large) file is ever kept in memory.</p>
+ * <p>Rooms, classes and courses are indexed by their ids in arrays, which is why the ids of each of them must be
+ * sequential (starting from 1) as they are in all the competition instances. The travel times are filled directly from
+ * the travel elements of the rooms and the identical time patterns (which are repeated many times over the classes of
+ * an instance) are interned, so every distinct pattern is represented by a single {@link Time} object.</p>
+ * <p>A parser object should only be used to parse a single file.</p>
+ */
+public class ProblemInstanceParser {
+    private final HashMap<TimeKey, Time> timePatterns = new HashMap<>();
+    private String instanceName;
+    private int nrDays, nrWeeks, slotsPerDay;
+    private int timePenaltyWeight, roomPenaltyWeight, distributionPenaltyWeight, studentPenaltyWeight;
+    private Room[] rooms = new Room[0];
+    private TravelTime travelTimes;
+    private int[] travels = new int[0]; // (room id, room id, value) triples until all the rooms are known
+    private int travelCount;
+    private final ArrayList<ClassData> classData = new ArrayList<>(); // classData.get(i) is the class with id i + 1
+    private final ArrayList<CourseData> courseData = new ArrayList<>();
+    private Class[] classes;
+    private Course[] courses;
+    private final ArrayList<HardConstraint> hardConstraints = new ArrayList<>();
+    private final ArrayList<SoftConstraint> softConstraints = new ArrayList<>();
+    private final ArrayList<Student> students = new ArrayList<>();
+
+    /**
+     * The key of an interned time pattern, which is exactly the attributes of a time element.
+     */
+    private record TimeKey(String weeks, String days, int start, int length) {
+    }
+
+    /**
+     * The raw data of a class, kept until all the classes are read so that the parent classes can be resolved.
+     */
+    private static class ClassData {
+        private int id, limit, parentId;
+        private boolean needsRoom = true;
+        private final ArrayList<TimeAssignment> times = new ArrayList<>();
+        private int[] roomIds = new int[4], roomPenalties = new int[4];
+        private int roomCount;
+        private boolean resolving;
+    }
+
+    private record SubpartData(int id, int[] classIds) {
+    }
+
+    private record ConfigData(int id, ArrayList<SubpartData> subparts) {
+    }
+
+    private record CourseData(int id, ArrayList<ConfigData> configs) {
+    }
+
+    /**
+     * Reads the problem instance stored in the given file.
+     *
+     * @param file The path of the XML file of the problem instance.
+     * @return The parsed problem instance.
+     * @throws IOException        If the file cannot be read.
+     * @throws XMLStreamException If the file is not a well-formed and valid ITC 2019 problem instance.
+     */
+    public static ProblemInstance parse(Path file) throws IOException, XMLStreamException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * Reads a problem instance from the given stream. The stream is not closed by this method.
+     *
+     * @param in The stream holding the XML of the problem instance.
+     * @return The parsed problem instance.
+     * @throws XMLStreamException If the stream does not hold a well-formed and valid ITC 2019 problem instance.
+     */
+    public static ProblemInstance parse(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+        try {
+            return new ProblemInstanceParser().read(reader);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new XMLStreamException("Invalid problem instance: " + e.getMessage(), reader.getLocation(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates an XML input factory that does not resolve DTDs or external entities.
+     *
+     * @return The XML input factory to create the stream readers of this package with.
+     */
+    static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private ProblemInstance read(XMLStreamReader reader) throws XMLStreamException {
+        ClassData currentClass = null;
+        ArrayList<Class> constraintClasses = new ArrayList<>();
+        String constraintType = null;
+        int constraintPenalty = 0;
+        boolean constraintRequired = false;
+        ArrayList<Course> studentCourses = new ArrayList<>();
+        int studentId = 0, roomId = 0, roomCapacity = 0;
+        ArrayList<Time> roomUnavailable = new ArrayList<>();
+        ArrayList<Room> roomList = new ArrayList<>();
+        CourseData currentCourse = null;
+        ConfigData currentConfig = null;
+        int subpartId = 0;
+        int[] subpartClasses = new int[8];
+        int subpartClassCount = 0;
+        String section = "";
+        while (reader.hasNext()) {
+            int eventType = reader.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "problem" -> {
+                        instanceName = reader.getAttributeValue(null, "name");
+                        nrDays = intAttribute(reader, "nrDays");
+                        nrWeeks = intAttribute(reader, "nrWeeks");
+                        slotsPerDay = intAttribute(reader, "slotsPerDay");
+                    }
+                    case "optimization" -> {
+                        timePenaltyWeight = intAttribute(reader, "time", 0);
+                        roomPenaltyWeight = intAttribute(reader, "room", 0);
+                        distributionPenaltyWeight = intAttribute(reader, "distribution", 0);
+                        studentPenaltyWeight = intAttribute(reader, "student", 0);
+                    }
+                    case "rooms", "courses", "distributions", "students" -> section = reader.getLocalName();
+                    case "room" -> {
+                        if (section.equals("rooms")) {
+                            roomId = intAttribute(reader, "id");
+                            roomCapacity = intAttribute(reader, "capacity");
+                            roomUnavailable.clear();
+                        } else { // A possible room of a class
+                            if (currentClass == null) throw unexpected(reader);
+                            if (currentClass.roomCount == currentClass.roomIds.length) {
+                                currentClass.roomIds = Arrays.copyOf(currentClass.roomIds, currentClass.roomCount * 2);
+                                currentClass.roomPenalties = Arrays.copyOf(currentClass.roomPenalties, currentClass.roomCount * 2);
+                            }
+                            currentClass.roomIds[currentClass.roomCount] = intAttribute(reader, "id");
+                            currentClass.roomPenalties[currentClass.roomCount++] = intAttribute(reader, "penalty", 0);
+                        }
+                    }
+                    case "travel" -> {
+                        if (travelCount * 3 == travels.length)
+                            travels = Arrays.copyOf(travels, Math.max(48, travels.length * 2));
+                        travels[travelCount * 3] = roomId;
+                        travels[travelCount * 3 + 1] = intAttribute(reader, "room");
+                        travels[travelCount * 3 + 2] = intAttribute(reader, "value");
+                        travelCount++;
+                    }
+                    case "unavailable" -> roomUnavailable.add(readTime(reader));
+                    case "course" -> {
+                        if (section.equals("courses")) {
+                            currentCourse = new CourseData(intAttribute(reader, "id"), new ArrayList<>());
+                            setById(courseData, currentCourse.id(), currentCourse, "course");
+                        } else studentCourses.add(getById(courses, intAttribute(reader, "id"), "course"));
+                    }
+                    case "config" -> {
+                        if (currentCourse == null) throw unexpected(reader);
+                        currentConfig = new ConfigData(intAttribute(reader, "id"), new ArrayList<>());
+                        currentCourse.configs().add(currentConfig);
+                    }
+                    case "subpart" -> {
+                        subpartId = intAttribute(reader, "id");
+                        subpartClassCount = 0;
+                    }
+                    case "class" -> {
+                        if (section.equals("courses")) {
+                            currentClass = new ClassData();
+                            currentClass.id = intAttribute(reader, "id");
+                            currentClass.limit = intAttribute(reader, "limit");
+                            currentClass.parentId = intAttribute(reader, "parent", 0);
+                            currentClass.needsRoom = !"false".equals(reader.getAttributeValue(null, "room"));
+                            setById(classData, currentClass.id, currentClass, "class");
+                            if (subpartClassCount == subpartClasses.length)
+                                subpartClasses = Arrays.copyOf(subpartClasses, subpartClassCount * 2);
+                            subpartClasses[subpartClassCount++] = currentClass.id;
+                        } else constraintClasses.add(getById(classes, intAttribute(reader, "id"), "class"));
+                    }
+                    case "time" -> {
+                        if (currentClass == null) throw unexpected(reader);
+                        int penalty = intAttribute(reader, "penalty", 0);
+                        currentClass.times.add(new TimeAssignment(readTime(reader), penalty));
+                    }
+                    case "distribution" -> {
+                        constraintType = reader.getAttributeValue(null, "type");
+                        constraintRequired = "true".equals(reader.getAttributeValue(null, "required"));
+                        constraintPenalty = intAttribute(reader, "penalty", 0);
+                        constraintClasses.clear();
+                    }
+                    case "student" -> {
+                        studentId = intAttribute(reader, "id");
+                        studentCourses.clear();
+                    }
+                    default -> {
+                        // Elements that are not part of the model (e.g. comments of instance generators) are skipped.
+                    }
+                }
+            } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "room" -> {
+                        if (section.equals("rooms")) {
+                            Room room = new Room(roomId, roomCapacity, roomUnavailable.toArray(new Time[0]));
+                            setById(roomList, roomId, room, "room");
+                        }
+                    }
+                    case "rooms" -> {
+                        rooms = roomList.toArray(new Room[0]);
+                        checkSequential(rooms, "room");
+                        createTravelTimes();
+                    }
+                    case "class" -> currentClass = null;
+                    case "subpart" -> {
+                        if (currentConfig == null) throw unexpected(reader);
+                        currentConfig.subparts().add(new SubpartData(subpartId, Arrays.copyOf(subpartClasses, subpartClassCount)));
+                    }
+                    case "config" -> currentConfig = null;
+                    case "course" -> {
+                        if (section.equals("courses")) currentCourse = null;
+                    }
+                    case "courses" -> createCourses();
+                    case "distribution" ->
+                            addConstraint(constraintType, constraintClasses.toArray(new Class[0]), constraintRequired, constraintPenalty);
+                    case "student" -> students.add(new Student(studentId, studentCourses.toArray(new Course[0])));
+                    default -> {
+                    }
+                }
+            }
+        }
+        if (courses == null) createCourses();
+        if (travelTimes == null) createTravelTimes();
+        return new ProblemInstance(instanceName, nrDays, nrWeeks, slotsPerDay, timePenaltyWeight, roomPenaltyWeight,
+                distributionPenaltyWeight, studentPenaltyWeight, rooms, courses, classes,
+                hardConstraints.toArray(new HardConstraint[0]), softConstraints.toArray(new SoftConstraint[0]),
+                students.toArray(new Student[0]), travelTimes);
+    }
+
+    /**
+     * Reads (or gets the already interned copy of) the time pattern of the current time or unavailable element.
+     */
+    private Time readTime(XMLStreamReader reader) throws XMLStreamException {
+        TimeKey key = new TimeKey(reader.getAttributeValue(null, "weeks"), reader.getAttributeValue(null, "days"),
+                intAttribute(reader, "start"), intAttribute(reader, "length"));
+        Time time = timePatterns.get(key);
+        if (time == null) {
+            if (key.weeks() == null || key.days() == null) throw missingAttribute(reader, "weeks/days");
+            time = new Time(nrWeeks, nrDays, bitString(key.weeks()), bitString(key.days()), key.start(), key.length());
+            timePatterns.put(key, time);
+        }
+        return time;
+    }
+
+    private static boolean[] bitString(String bits) {
+        boolean[] result = new boolean[bits.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bits.charAt(i) == '1';
+        return result;
+    }
+
+    private void createTravelTimes() {
+        travelTimes = new TravelTime(rooms.length);
+        for (int i = 0; i < travelCount; i++)
+            travelTimes.setTravelTime(getById(rooms, travels[i * 3], "room"), getById(rooms, travels[i * 3 + 1], "room"), travels[i * 3 + 2]);
+        travels = null;
+    }
+
+    /**
+     * Builds the class, subpart, config and course records once all the courses are read. Classes are created in the
+     * order of their parents, as a class record needs its parent class record.
+     */
+    private void createCourses() {
+        classes = new Class[classData.size()];
+        for (int id = 1; id <= classes.length; id++)
+            resolveClass(id);
+        courses = new Course[courseData.size()];
+        for (int i = 0; i < courses.length; i++) {
+            CourseData course = courseData.get(i);
+            if (course == null) throw new IllegalArgumentException("Course ids are not sequential (missing " + (i + 1) + ")!");
+            Config[] configs = new Config[course.configs().size()];
+            for (int j = 0; j < configs.length; j++) {
+                ConfigData config = course.configs().get(j);
+                Subpart[] subparts = new Subpart[config.subparts().size()];
+                for (int k = 0; k < subparts.length; k++) {
+                    SubpartData subpart = config.subparts().get(k);
+                    Class[] subpartClasses = new Class[subpart.classIds().length];
+                    for (int l = 0; l < subpartClasses.length; l++)
+                        subpartClasses[l] = classes[subpart.classIds()[l] - 1];
+                    subparts[k] = new Subpart(subpart.id(), subpartClasses);
+                }
+                configs[j] = new Config(config.id(), subparts);
+            }
+            courses[i] = new Course(course.id(), configs);
+        }
+        classData.clear();
+        courseData.clear();
+    }
+
+    private Class resolveClass(int id) {
+        if (id < 1 || id > classes.length) throw new IllegalArgumentException("Unknown class id " + id + "!");
+        if (classes[id - 1] != null) return classes[id - 1];
+        ClassData data = classData.get(id - 1);
+        if (data == null) throw new IllegalArgumentException("Class ids are not sequential (missing " + id + ")!");
+        if (data.resolving) throw new IllegalArgumentException("Class " + id + " is its own ancestor!");
+        data.resolving = true;
+        Class parent = data.parentId == 0 ? null : resolveClass(data.parentId);
+        RoomAssignment[] possibleRooms = null;
+        if (data.needsRoom && data.roomCount > 0) {
+            possibleRooms = new RoomAssignment[data.roomCount];
+            for (int i = 0; i < data.roomCount; i++)
+                possibleRooms[i] = new RoomAssignment(getById(rooms, data.roomIds[i], "room"), data.roomPenalties[i]);
+        }
+        classes[id - 1] = new Class(id, data.limit, data.times.toArray(new TimeAssignment[0]), possibleRooms, parent);
+        return classes[id - 1];
+    }
+
+    private void addConstraint(String type, Class[] constraintClasses, boolean required, int penalty) {
+        if (type == null) throw new IllegalArgumentException("A distribution does not have a type!");
+        int open = type.indexOf('(');
+        String name = open < 0 ? type : type.substring(0, open);
+        int[] parameters = new int[0];
+        if (open >= 0) {
+            String[] values = type.substring(open + 1, type.lastIndexOf(')')).split(",");
+            parameters = new int[values.length];
+            for (int i = 0; i < values.length; i++)
+                parameters[i] = Integer.parseInt(values[i].trim());
+        }
+        if (name.equals("SameAttendees") && travelTimes == null)
+            throw new IllegalArgumentException("The rooms must be given before the SameAttendees distributions!");
+        DistributionConstraint constraint = createConstraint(name, parameters, constraintClasses, travelTimes);
+        if (required) hardConstraints.add(new HardConstraint(constraint));
+        else softConstraints.add(new SoftConstraint(constraint, penalty));
+    }
+
+    /**
+     * Creates a distribution constraint from its type as named in the ITC 2019 format.
+     *
+     * @param name        The name of the type of the constraint, without its parameters.
+     * @param parameters  The parameters of the type, in the order they are written (see
+     *                    {@link DistributionConstraint#getParameters()}).
+     * @param classes     The classes of the constraint.
+     * @param travelTimes The travel times of the problem instance of the classes.
+     * @return The created constraint.
+     * @throws IllegalArgumentException If the type is unknown, a parameter is missing or invalid.
+     */
+    static DistributionConstraint createConstraint(String name, int[] parameters, Class[] classes, TravelTime travelTimes) throws IllegalArgumentException {
+        return switch (name) {
+            case "SameStart" -> new SameStart(classes);
+            case "SameTime" -> new SameTime(classes);
+            case "DifferentTime" -> new DifferentTime(classes);
+            case "SameDays" -> new SameDays(classes);
+            case "DifferentDays" -> new DifferentDays(classes);
+            case "SameWeeks" -> new SameWeeks(classes);
+            case "DifferentWeeks" -> new DifferentWeeks(classes);
+            case "Overlap" -> new Overlap(classes);
+            case "NotOverlap" -> new NotOverlap(classes);
+            case "SameRoom" -> new SameRoom(classes);
+            case "DifferentRoom" -> new DifferentRoom(classes);
+            case "SameAttendees" -> new SameAttendees(classes, travelTimes);
+            case "Precedence" -> new Precedence(classes);
+            case "WorkDay" -> new WorkDay(classes, parameter(name, parameters, 0));
+            case "MinGap" -> new MinGap(classes, parameter(name, parameters, 0));
+            case "MaxDays" -> new MaxDays(classes, parameter(name, parameters, 0));
+            case "MaxDayLoad" -> new MaxDayLoad(classes, parameter(name, parameters, 0));
+            case "MaxBreaks" ->
+                    new MaxBreaks(classes, parameter(name, parameters, 0), parameter(name, parameters, 1));
+            case "MaxBlock" ->
+                    new MaxBlock(classes, parameter(name, parameters, 0), parameter(name, parameters, 1));
+            default -> throw new IllegalArgumentException("Unknown distribution type " + name + "!");
+        };
+    }
+
+    private static int parameter(String type, int[] parameters, int index) {
+        if (index >= parameters.length)
+            throw new IllegalArgumentException("The distribution " + type + " is missing a parameter!");
+        return parameters[index];
+    }
+
+    private static <T> void setById(ArrayList<T> list, int id, T value, String kind) {
+        if (id < 1) throw new IllegalArgumentException("Invalid " + kind + " id " + id + "!");
+        while (list.size() < id) list.add(null);
+        if (list.get(id - 1) != null) throw new IllegalArgumentException("Duplicate " + kind + " id " + id + "!");
+        list.set(id - 1, value);
+    }
+
+    private static <T> T getById(T[] array, int id, String kind) {
+        if (id < 1 || id > array.length || array[id - 1] == null)
+            throw new IllegalArgumentException("Unknown " + kind + " id " + id + "!");
+        return array[id - 1];
+    }
+
+    private static void checkSequential(Object[] array, String kind) {
+        for (int i = 0; i < array.length; i++)
+            if (array[i] == null)
+                throw new IllegalArgumentException(kind + " ids are not sequential (missing " + (i + 1) + ")!");
+    }
+
+    static int intAttribute(XMLStreamReader reader, String name) throws XMLStreamException {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null) throw missingAttribute(reader, name);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Attribute " + name + " of element " + reader.getLocalName() + " is not an integer!", reader.getLocation(), e);
+        }
+    }
+
+    static int intAttribute(XMLStreamReader reader, String name, int defaultValue) throws XMLStreamException {
+        return reader.getAttributeValue(null, name) == null ? defaultValue : intAttribute(reader, name);
+    }
+
+    private static XMLStreamException missingAttribute(XMLStreamReader reader, String name) {
+        return new XMLStreamException("Element " + reader.getLocalName() + " is missing attribute " + name + "!", reader.getLocation());
+    }
+
+    private static XMLStreamException unexpected(XMLStreamReader reader) {
+        return new XMLStreamException("Unexpected element " + reader.getLocalName() + "!", reader.getLocation());
+    }
+}
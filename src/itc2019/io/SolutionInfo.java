@@ -0,0 +1,33 @@
+package itc2019.io;
+
+/**
+ * <p>This class represents the descriptive attributes of the solution element of the official ITC 2019 solution
+ * format, which are written along with the assignments of a timetable (see {@link SolutionWriter}).</p>
+ *
+ * @param runtime     The time (in seconds) the solver took to find the solution.
+ * @param cores       The number of CPU cores the solver used.
+ * @param technique   The name of the technique used to find the solution.
+ * @param author      The name of the author(s) of the solution.
+ * @param institution The institution of the author(s).
+ * @param country     The country of the institution.
+ */
+public record SolutionInfo(double runtime, int cores, String technique, String author, String institution,
+                           String country) {
+    /**
+     * The attributes used when none are given: no runtime, a single core and empty names.
+     */
+    public static final SolutionInfo UNKNOWN = new SolutionInfo(0, 1, "", "", "", "");
+
+    /**
+     * Constructs the attributes of a solution and performs validation checks.
+     *
+     * @throws IllegalArgumentException If the runtime is negative, the number of cores is not positive, or any name is
+     *                                  null.
+     */
+    public SolutionInfo {
+        if (runtime < 0) throw new IllegalArgumentException("The runtime of a solution cannot be negative!");
+        if (cores < 1) throw new IllegalArgumentException("The number of cores of a solution must be positive!");
+        if (technique == null || author == null || institution == null || country == null)
+            throw new IllegalArgumentException("The names of a solution cannot be null!");
+    }
+}
@@ -0,0 +1,184 @@
+package itc2019.io;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * <p>This class reads a solution in the official ITC 2019 solution XML format (as written by {@link SolutionWriter} or
+ * any other solver) back into a timetable of its problem instance. The file is read with a streaming (StAX) parser in a
+ * single pass, and the assignments are set by their indices in the possible times and rooms of the classes.</p>
+ * <p>Every class of the problem instance must be assigned a time (and a room if it requires one) that is one of its
+ * possible assignments. As the solution format has no length, the days, start and weeks of a time must match exactly
+ * one possible time of the class, and the students must be listed inside the elements of their classes. As a class may
+ * be listed before its parent class, the student enrollments are collected while reading and enrolled once all the
+ * classes are read, parent classes first, so that every enrollment is checked just like in
+ * {@link Event#addStudent(Student, Timetable)}.</p>
+ * <p>A reader object should only be used to read a single file.</p>
+ */
+public class SolutionReader {
+    private final ProblemInstance instance;
+    private final Timetable timetable;
+    private int[] enrollments = new int[64]; // (class index, student index) pairs in the order they are read
+    private int enrollmentCount;
+
+    private SolutionReader(ProblemInstance instance) {
+        this.instance = instance;
+        timetable = new Timetable(instance);
+    }
+
+    /**
+     * Reads the solution of the given problem instance stored in the given file.
+     *
+     * @param instance The problem instance of the solution.
+     * @param file     The path of the XML file of the solution.
+     * @return The timetable of the solution.
+     * @throws IOException        If the file cannot be read.
+     * @throws XMLStreamException If the file is not a well-formed and valid ITC 2019 solution of the problem instance.
+     */
+    public static Timetable read(ProblemInstance instance, Path file) throws IOException, XMLStreamException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            return read(instance, in);
+        }
+    }
+
+    /**
+     * Reads a solution of the given problem instance from the given stream. The stream is not closed by this method.
+     *
+     * @param instance The problem instance of the solution.
+     * @param in       The stream holding the XML of the solution.
+     * @return The timetable of the solution.
+     * @throws XMLStreamException If the stream does not hold a well-formed and valid ITC 2019 solution of the problem
+     *                            instance.
+     */
+    public static Timetable read(ProblemInstance instance, InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = ProblemInstanceParser.newInputFactory().createXMLStreamReader(in);
+        try {
+            return new SolutionReader(instance).read(reader);
+        } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+            throw new XMLStreamException("Invalid solution: " + e.getMessage(), reader.getLocation(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Timetable read(XMLStreamReader reader) throws XMLStreamException {
+        Class[] classes = instance.classes();
+        int currentClass = -1;
+        while (reader.hasNext()) {
+            int eventType = reader.next();
+            if (eventType == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("class")) currentClass = -1;
+            if (eventType != XMLStreamConstants.START_ELEMENT) continue;
+            switch (reader.getLocalName()) {
+                case "solution" -> {
+                    String name = reader.getAttributeValue(null, "name");
+                    if (name != null && !name.equals(instance.instanceName()))
+                        throw new IllegalArgumentException("The solution is of the problem instance " + name + "!");
+                }
+                case "class" -> {
+                    currentClass = ProblemInstanceParser.intAttribute(reader, "id") - 1;
+                    if (currentClass < 0 || currentClass >= classes.length)
+                        throw new IllegalArgumentException("Unknown class id " + (currentClass + 1) + "!");
+                    readClass(reader, timetable.getEvent(classes[currentClass]));
+                }
+                case "student" -> {
+                    if (currentClass < 0) throw new XMLStreamException("Unexpected element student!", reader.getLocation());
+                    int student = ProblemInstanceParser.intAttribute(reader, "id") - 1;
+                    if (student < 0 || student >= instance.students().length)
+                        throw new IllegalArgumentException("Unknown student id " + (student + 1) + "!");
+                    if (enrollmentCount * 2 == enrollments.length)
+                        enrollments = Arrays.copyOf(enrollments, enrollments.length * 2);
+                    enrollments[enrollmentCount * 2] = currentClass;
+                    enrollments[enrollmentCount * 2 + 1] = student;
+                    enrollmentCount++;
+                }
+                default -> {
+                }
+            }
+        }
+        for (Event event : timetable.getEvents())
+            if (event.getTimeAssignment() == null)
+                throw new IllegalArgumentException("The class " + event.getTheClass().id() + " is not assigned!");
+        enrollStudents();
+        return timetable;
+    }
+
+    private void readClass(XMLStreamReader reader, Event event) throws XMLStreamException {
+        Class aClass = event.getTheClass();
+        if (event.getTimeAssignment() != null)
+            throw new IllegalArgumentException("Duplicate class id " + aClass.id() + "!");
+        String days = reader.getAttributeValue(null, "days"), weeks = reader.getAttributeValue(null, "weeks");
+        if (days == null || weeks == null)
+            throw new XMLStreamException("Element class is missing attribute days/weeks!", reader.getLocation());
+        int start = ProblemInstanceParser.intAttribute(reader, "start");
+        TimeAssignment[] possibleTimes = aClass.possibleTimes();
+        int timeOption = 0;
+        while (timeOption < possibleTimes.length && !matches(possibleTimes[timeOption].time(), days, weeks, start))
+            timeOption++;
+        if (timeOption == possibleTimes.length)
+            throw new IllegalArgumentException("The time of the class " + aClass.id() + " is not one of its possible times!");
+        for (int other = timeOption + 1; other < possibleTimes.length; other++)
+            if (matches(possibleTimes[other].time(), days, weeks, start))
+                throw new IllegalArgumentException("The time of the class " + aClass.id() + " matches several of its possible times!");
+        event.setTimeOption(timeOption);
+        int roomId = ProblemInstanceParser.intAttribute(reader, "room", -1);
+        RoomAssignment[] possibleRooms = aClass.possibleRooms();
+        if (possibleRooms == null) {
+            if (roomId != -1) throw new IllegalArgumentException("The class " + aClass.id() + " does not require a room!");
+            return;
+        }
+        if (roomId == -1) throw new IllegalArgumentException("The class " + aClass.id() + " is not assigned a room!");
+        int roomOption = 0;
+        while (roomOption < possibleRooms.length && possibleRooms[roomOption].room().id() != roomId)
+            roomOption++;
+        if (roomOption == possibleRooms.length)
+            throw new IllegalArgumentException("The room of the class " + aClass.id() + " is not one of its possible rooms!");
+        event.setRoomOption(roomOption);
+    }
+
+    private static boolean matches(Time time, String days, String weeks, int start) {
+        return time.start() == start && matches(time.days(), days) && matches(time.weeks(), weeks);
+    }
+
+    private static boolean matches(boolean[] bits, String bitString) {
+        if (bits.length != bitString.length()) return false;
+        for (int i = 0; i < bits.length; i++)
+            if (bits[i] != (bitString.charAt(i) == '1')) return false;
+        return true;
+    }
+
+    /**
+     * Enrolls the collected enrollments class by class, in the order of the depths of the classes (parents first).
+     */
+    private void enrollStudents() {
+        Class[] classes = instance.classes();
+        int[] depths = new int[classes.length];
+        int maxDepth = 0;
+        for (Class aClass : classes) {
+            for (Class parent = aClass.parent(); parent != null; parent = parent.parent())
+                depths[aClass.id() - 1]++;
+            maxDepth = Math.max(maxDepth, depths[aClass.id() - 1]);
+        }
+        // Counting sort of the enrollments by the depths of their classes, keeping the order they were read in
+        int[] offsets = new int[maxDepth + 2];
+        for (int e = 0; e < enrollmentCount; e++)
+            offsets[depths[enrollments[e * 2]] + 1]++;
+        for (int d = 0; d <= maxDepth; d++)
+            offsets[d + 1] += offsets[d];
+        int[] order = new int[enrollmentCount];
+        for (int e = 0; e < enrollmentCount; e++)
+            order[offsets[depths[enrollments[e * 2]]]++] = e;
+        Student[] students = instance.students();
+        for (int e : order)
+            timetable.getEvent(classes[enrollments[e * 2]]).addStudent(students[enrollments[e * 2 + 1]], timetable);
+    }
+}
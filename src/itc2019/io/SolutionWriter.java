@@ -0,0 +1,136 @@
+package itc2019.io;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * <p>This class writes a timetable (candidate solution) of a problem instance in the official ITC 2019 solution XML
+ * format: a class element with the days, start, weeks and room of every class, holding a student element for every
+ * enrolled student. The file is written with a streaming (StAX) writer, so the (possibly tens of megabytes large)
+ * solution is never built in memory as a string or a DOM tree.</p>
+ * <p>The students of every class are written sorted by their ids, so the same timetable is always written the same way.
+ * The day and week bit strings are built once per distinct bit array, which are shared by the interned time patterns of
+ * a parsed problem instance (see {@link ProblemInstanceParser}).</p>
+ * <p>A writer object should only be used to write a single solution.</p>
+ */
+public class SolutionWriter {
+    private final XMLStreamWriter writer;
+    private final IdentityHashMap<boolean[], String> bitStrings = new IdentityHashMap<>();
+    private int[] studentIds = new int[16];
+
+    private SolutionWriter(XMLStreamWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the given timetable to the given file, replacing the file if it exists.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The fully scheduled timetable.
+     * @param info      The descriptive attributes of the solution.
+     * @param file      The path of the XML file to write.
+     * @throws IOException              If the file cannot be written.
+     * @throws XMLStreamException       If the XML cannot be written.
+     * @throws IllegalArgumentException If an event of the timetable is not assigned a time, or a room while its class
+     *                                  requires one.
+     */
+    public static void write(ProblemInstance instance, Timetable timetable, SolutionInfo info, Path file) throws IOException, XMLStreamException, IllegalArgumentException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            write(instance, timetable, info, out);
+        }
+    }
+
+    /**
+     * Writes the given timetable to the given stream in UTF-8. The stream is flushed but not closed by this method.
+     *
+     * @param instance  The problem instance of the timetable.
+     * @param timetable The fully scheduled timetable.
+     * @param info      The descriptive attributes of the solution.
+     * @param out       The stream to write the XML of the solution to.
+     * @throws XMLStreamException       If the XML cannot be written.
+     * @throws IllegalArgumentException If an event of the timetable is not assigned a time, or a room while its class
+     *                                  requires one.
+     */
+    public static void write(ProblemInstance instance, Timetable timetable, SolutionInfo info, OutputStream out) throws XMLStreamException, IllegalArgumentException {
+        XMLStreamWriter writer = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+        try {
+            new SolutionWriter(writer).write(instance, timetable, info);
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void write(ProblemInstance instance, Timetable timetable, SolutionInfo info) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeCharacters("\n");
+        writer.writeStartElement("solution");
+        writer.writeAttribute("name", instance.instanceName());
+        writer.writeAttribute("runtime", String.valueOf(info.runtime()));
+        writer.writeAttribute("cores", String.valueOf(info.cores()));
+        writer.writeAttribute("technique", info.technique());
+        writer.writeAttribute("author", info.author());
+        writer.writeAttribute("institution", info.institution());
+        writer.writeAttribute("country", info.country());
+        for (Class aClass : instance.classes())
+            writeClass(timetable.getEvent(aClass));
+        writer.writeCharacters("\n");
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        writer.writeEndDocument();
+    }
+
+    private void writeClass(Event event) throws XMLStreamException {
+        Class aClass = event.getTheClass();
+        if (event.getTimeAssignment() == null)
+            throw new IllegalArgumentException("The class " + aClass.id() + " is not assigned a time!");
+        if (aClass.possibleRooms() != null && event.getRoomAssignment() == null)
+            throw new IllegalArgumentException("The class " + aClass.id() + " is not assigned a room!");
+        int studentCount = event.getStudentCount();
+        writer.writeCharacters("\n  ");
+        if (studentCount == 0) writer.writeEmptyElement("class");
+        else writer.writeStartElement("class");
+        Time time = event.getTimeAssignment().time();
+        writer.writeAttribute("id", String.valueOf(aClass.id()));
+        writer.writeAttribute("days", bitString(time.days()));
+        writer.writeAttribute("start", String.valueOf(time.start()));
+        writer.writeAttribute("weeks", bitString(time.weeks()));
+        if (event.getRoomAssignment() != null)
+            writer.writeAttribute("room", String.valueOf(event.getRoomAssignment().room().id()));
+        if (studentCount == 0) return;
+        if (studentIds.length < studentCount) studentIds = new int[Math.max(studentCount, studentIds.length * 2)];
+        for (int i = 0; i < studentCount; i++)
+            studentIds[i] = event.getStudent(i).id();
+        Arrays.sort(studentIds, 0, studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            writer.writeCharacters("\n    ");
+            writer.writeEmptyElement("student");
+            writer.writeAttribute("id", String.valueOf(studentIds[i]));
+        }
+        writer.writeCharacters("\n  ");
+        writer.writeEndElement();
+    }
+
+    private String bitString(boolean[] bits) {
+        String result = bitStrings.get(bits);
+        if (result == null) {
+            char[] chars = new char[bits.length];
+            for (int i = 0; i < bits.length; i++)
+                chars[i] = bits[i] ? '1' : '0';
+            result = new String(chars);
+            bitStrings.put(bits, result);
+        }
+        return result;
+    }
+}
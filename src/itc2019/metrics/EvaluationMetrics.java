@@ -0,0 +1,263 @@
+package itc2019.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>This class counts the work done on the evaluation paths: the calls of {@code isSatisfied}, {@code violationCount}
+ * and the pair checks of every type of distribution constraint (with the time spent in the first two), the moves
+ * evaluated and accepted by the incremental evaluators, and the student enrollments. The counters are
+ * {@link LongAdder}s, which are striped over the threads that update them, so the chains of a multi-threaded solver do
+ * not contend for them.</p>
+ * <p>The instrumentation is only enabled if the JVM is started with {@code -Ditc2019.metrics=true}. Otherwise,
+ * {@link #ENABLED} is a constant false and the JIT compiler removes the instrumented code, so it costs nothing. When
+ * enabled, the counters are published as a JMX MBean (see {@link EvaluationMetricsMXBean}), and if
+ * {@code -Ditc2019.metrics.dump=<file>} is given, they are also appended to the file every
+ * {@code itc2019.metrics.period} seconds (60 by default) as CSV if the file name ends with ".csv" or as text otherwise
+ * (see {@link MetricsDump}).</p>
+ * <p>Instrumented code times an operation as follows:</p>
+ * <pre>
+ * long start = EvaluationMetrics.start();
+ * int count = constraint.violationCount(timetable);
+ * EvaluationMetrics.record(constraint.getClass(), EvaluationMetrics.Operation.VIOLATION_COUNT, start);
+ * </pre>
+ */
+public final class EvaluationMetrics implements EvaluationMetricsMXBean {
+    /**
+     * Whether the evaluation paths are instrumented.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("itc2019.metrics");
+    /**
+     * The name of the MBean of the metrics.
+     */
+    public static final String OBJECT_NAME = "itc2019:type=EvaluationMetrics";
+    private static final EvaluationMetrics INSTANCE = new EvaluationMetrics();
+    private static final Map<String, TypeCounters> COUNTERS = new ConcurrentSkipListMap<>(); // By simple type name
+    private static final ClassValue<TypeCounters> TYPES = new ClassValue<>() {
+        @Override
+        protected TypeCounters computeValue(Class<?> type) {
+            return COUNTERS.computeIfAbsent(type.getSimpleName(), name -> new TypeCounters());
+        }
+    };
+    private static final LongAdder MOVE_EVALUATIONS = new LongAdder(), ACCEPTED_MOVES = new LongAdder(),
+            ENROLLMENTS = new LongAdder();
+
+    /**
+     * The counted operations of a distribution constraint.
+     */
+    public enum Operation {
+        IS_SATISFIED("isSatisfied"), VIOLATION_COUNT("violationCount"), CHECK("check");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * The counters of one type of distribution constraint, by operation.
+     */
+    private static final class TypeCounters {
+        private final LongAdder[] calls = new LongAdder[Operation.values().length];
+        private final LongAdder[] nanos = new LongAdder[Operation.values().length];
+
+        private TypeCounters() {
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = new LongAdder();
+                nanos[i] = new LongAdder();
+            }
+        }
+    }
+
+    static {
+        if (ENABLED) {
+            register();
+            String dump = System.getProperty("itc2019.metrics.dump");
+            if (dump != null) {
+                Path file = Path.of(dump);
+                MetricsDump.start(file, Duration.ofSeconds(Long.getLong("itc2019.metrics.period", 60)),
+                        file.toString().endsWith(".csv") ? MetricsDump.Format.CSV : MetricsDump.Format.TEXT);
+            }
+        }
+    }
+
+    private EvaluationMetrics() {
+    }
+
+    /**
+     * Gets the metrics, e.g. to read the counters in the same JVM.
+     *
+     * @return The single metrics object.
+     */
+    public static EvaluationMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics as an MBean of the platform MBean server, unless it is already registered. This is done
+     * automatically when the metrics are enabled.
+     *
+     * @throws IllegalStateException If the MBean cannot be registered.
+     */
+    public static void register() throws IllegalStateException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ignored) {
+        } catch (JMException e) {
+            throw new IllegalStateException("The evaluation metrics could not be registered!", e);
+        }
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The current time in nanoseconds if the metrics are enabled; 0 otherwise.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Counts a call of the given operation of the given type of distribution constraint and the time spent in it.
+     *
+     * @param type      The class of the distribution constraint.
+     * @param operation The operation.
+     * @param start     The start time of the operation, as returned by {@link #start()}.
+     */
+    public static void record(Class<?> type, Operation operation, long start) {
+        if (!ENABLED) return;
+        TypeCounters counters = TYPES.get(type);
+        counters.nanos[operation.ordinal()].add(System.nanoTime() - start);
+        counters.calls[operation.ordinal()].increment();
+    }
+
+    /**
+     * Counts a pair check of the given type of distribution constraint, without timing it.
+     *
+     * @param type The class of the distribution constraint.
+     */
+    public static void recordCheck(Class<?> type) {
+        if (ENABLED) TYPES.get(type).calls[Operation.CHECK.ordinal()].increment();
+    }
+
+    /**
+     * Counts a move evaluation.
+     */
+    public static void recordMoveEvaluation() {
+        if (ENABLED) MOVE_EVALUATIONS.increment();
+    }
+
+    /**
+     * Counts an accepted (applied) move.
+     */
+    public static void recordAcceptedMove() {
+        if (ENABLED) ACCEPTED_MOVES.increment();
+    }
+
+    /**
+     * Counts a student enrollment.
+     */
+    public static void recordEnrollment() {
+        if (ENABLED) ENROLLMENTS.increment();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        return snapshot(false);
+    }
+
+    @Override
+    public Map<String, Long> getNanoTimes() {
+        return snapshot(true);
+    }
+
+    private static Map<String, Long> snapshot(boolean nanos) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        COUNTERS.forEach((type, counters) -> {
+            for (Operation operation : Operation.values())
+                if (!nanos || operation != Operation.CHECK)
+                    snapshot.put(type + "." + operation, (nanos ? counters.nanos : counters.calls)[operation.ordinal()].sum());
+        });
+        return snapshot;
+    }
+
+    @Override
+    public long getMoveEvaluations() {
+        return MOVE_EVALUATIONS.sum();
+    }
+
+    @Override
+    public long getAcceptedMoves() {
+        return ACCEPTED_MOVES.sum();
+    }
+
+    @Override
+    public long getEnrollments() {
+        return ENROLLMENTS.sum();
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder(String.format("%-20s %15s %12s %15s %12s %15s%n", "Type",
+                "isSatisfied", "ms", "violationCount", "ms", "check"));
+        COUNTERS.forEach((type, counters) -> report.append(String.format("%-20s %15d %12.3f %15d %12.3f %15d%n", type,
+                counters.calls[0].sum(), counters.nanos[0].sum() / 1e6, counters.calls[1].sum(),
+                counters.nanos[1].sum() / 1e6, counters.calls[2].sum())));
+        report.append(String.format("Move evaluations: %d, accepted moves: %d, enrollments: %d%n", getMoveEvaluations(),
+                getAcceptedMoves(), getEnrollments()));
+        return report.toString();
+    }
+
+    /**
+     * Gets all the counters as CSV rows with the columns timestamp, type, operation, calls and nanos. The move, accepted
+     * move and enrollment counts are the rows of the type "-".
+     *
+     * @param timestamp The value of the timestamp column of the rows.
+     * @return The CSV rows, each ending with a line separator.
+     */
+    public String getCsvRows(String timestamp) {
+        StringBuilder rows = new StringBuilder();
+        COUNTERS.forEach((type, counters) -> {
+            for (Operation operation : Operation.values())
+                rows.append(String.join(",", timestamp, type, operation.toString(),
+                        Long.toString(counters.calls[operation.ordinal()].sum()),
+                        Long.toString(counters.nanos[operation.ordinal()].sum()))).append(System.lineSeparator());
+        });
+        rows.append(timestamp).append(",-,moveEvaluations,").append(getMoveEvaluations()).append(",0").append(System.lineSeparator());
+        rows.append(timestamp).append(",-,acceptedMoves,").append(getAcceptedMoves()).append(",0").append(System.lineSeparator());
+        rows.append(timestamp).append(",-,enrollments,").append(getEnrollments()).append(",0").append(System.lineSeparator());
+        return rows.toString();
+    }
+
+    @Override
+    public void reset() {
+        COUNTERS.values().forEach(counters -> {
+            for (int i = 0; i < counters.calls.length; i++) {
+                counters.calls[i].reset();
+                counters.nanos[i].reset();
+            }
+        });
+        MOVE_EVALUATIONS.reset();
+        ACCEPTED_MOVES.reset();
+        ENROLLMENTS.reset();
+    }
+}
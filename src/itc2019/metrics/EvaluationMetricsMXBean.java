@@ -0,0 +1,64 @@
+package itc2019.metrics;
+
+import java.util.Map;
+
+/**
+ * This interface represents the management interface of {@link EvaluationMetrics}, under which the counters of the
+ * evaluation paths are published to JMX clients (e.g. JConsole or VisualVM) as the MBean named
+ * {@value EvaluationMetrics#OBJECT_NAME}. The maps are keyed by "type.operation", e.g. "SameTime.check".
+ */
+public interface EvaluationMetricsMXBean {
+    /**
+     * Checks if the evaluation paths are instrumented, i.e. if the JVM was started with -Ditc2019.metrics=true.
+     *
+     * @return true if the counters are updated; false if they always stay at zero.
+     */
+    boolean isEnabled();
+
+    /**
+     * Gets the number of calls of every operation of every constraint type.
+     *
+     * @return The call counts by "type.operation".
+     */
+    Map<String, Long> getCallCounts();
+
+    /**
+     * Gets the cumulative time spent in every timed operation of every constraint type.
+     *
+     * @return The nanoseconds by "type.operation" (the checks are counted but not timed).
+     */
+    Map<String, Long> getNanoTimes();
+
+    /**
+     * Gets the number of moves evaluated by the incremental evaluators.
+     *
+     * @return The move evaluation count.
+     */
+    long getMoveEvaluations();
+
+    /**
+     * Gets the number of moves applied (accepted) through the incremental evaluators.
+     *
+     * @return The accepted move count.
+     */
+    long getAcceptedMoves();
+
+    /**
+     * Gets the number of students enrolled in events.
+     *
+     * @return The enrollment count.
+     */
+    long getEnrollments();
+
+    /**
+     * Gets all the counters as a human-readable table.
+     *
+     * @return The text report of the counters.
+     */
+    String getReport();
+
+    /**
+     * Sets all the counters to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,102 @@
+package itc2019.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>This class periodically appends the counters of {@link EvaluationMetrics} to a file, either as text reports (see
+ * {@link EvaluationMetrics#getReport()}) or as CSV rows (see {@link EvaluationMetrics#getCsvRows(String)}, with a
+ * header written once to a new file), so that a long run can be analysed afterwards without a JMX client. The dump runs
+ * on a daemon thread and writes a last time when it is closed or the JVM shuts down.</p>
+ */
+public class MetricsDump implements AutoCloseable {
+    private static final String CSV_HEADER = "timestamp,type,operation,calls,nanos" + System.lineSeparator();
+    private final Path file;
+    private final Format format;
+    private final ScheduledExecutorService scheduler;
+    private final Thread shutdownHook;
+
+    /**
+     * The format of the dumped counters.
+     */
+    public enum Format {
+        TEXT, CSV
+    }
+
+    private MetricsDump(Path file, Duration period, Format format) {
+        this.file = file;
+        this.format = format;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::dumpQuietly, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+        shutdownHook = new Thread(this::dumpQuietly, "metrics-dump-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Starts dumping the counters to the given file.
+     *
+     * @param file   The file to append the counters to.
+     * @param period The time between two dumps.
+     * @param format The format of the dumps.
+     * @return The running dump, to close when it is no longer needed.
+     * @throws IllegalArgumentException If the period is not positive.
+     */
+    public static MetricsDump start(Path file, Duration period, Format format) throws IllegalArgumentException {
+        if (period.isNegative() || period.isZero())
+            throw new IllegalArgumentException("The period of the dump must be positive!");
+        return new MetricsDump(file, period, format);
+    }
+
+    /**
+     * Appends the current counters to the file.
+     *
+     * @throws UncheckedIOException If the file cannot be written.
+     */
+    public synchronized void dump() throws UncheckedIOException {
+        String timestamp = Instant.now().toString();
+        EvaluationMetrics metrics = EvaluationMetrics.get();
+        String text = format == Format.CSV ? metrics.getCsvRows(timestamp)
+                : "=== " + timestamp + " ===" + System.lineSeparator() + metrics.getReport();
+        try {
+            if (format == Format.CSV && (!Files.exists(file) || Files.size(file) == 0)) text = CSV_HEADER + text;
+            Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (UncheckedIOException e) { // A failed dump must not stop the next ones (or the run)
+            System.err.println("The evaluation metrics could not be dumped to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the periodic dump and writes the counters a last time.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) { // The JVM is already shutting down and will run the hook
+            return;
+        }
+        dumpQuietly();
+    }
+}
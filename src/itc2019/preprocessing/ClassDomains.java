@@ -0,0 +1,394 @@
+package itc2019.preprocessing;
+
+import itc2019.dataset.Class;
+import itc2019.dataset.ProblemInstance;
+
+import java.util.Arrays;
+
+/**
+ * <p>This class represents the (reduced) domains of the classes of a problem instance: the time options and room options
+ * (indices in {@link Class#possibleTimes()} and {@link Class#possibleRooms()}) that are still allowed for every class,
+ * and for the classes that need a room, the mask of the allowed (time option, room option) pairs. The class records
+ * themselves are never changed, so the reduced domains can be dropped or recomputed at any time.</p>
+ * <p>All the sets are bitsets. The domains are kept consistent: a time (room) option is allowed if and only if it is in
+ * at least one allowed pair, so removing a pair, a time or a room removes the options and pairs it leaves without
+ * support.</p>
+ * <p>Once {@link #mark()} has been called, every change of the domains is recorded on a trail (the old value of every
+ * changed bitset word and count), so the domains can be restored to any mark with {@link #undo(int)} in time
+ * proportional to the changes made since, as needed by a search that tentatively assigns classes and backtracks.</p>
+ */
+public class ClassDomains {
+    private static final int TIMES = 0, ROOMS = 1, PAIRS = 2, TIME_COUNT = 3, ROOM_COUNT = 4; // Kinds of trail entries
+    private final Class[] classes;
+    private final long[][] times, rooms, pairs; // rooms and pairs are null for the classes without rooms
+    private final int[] timeCounts, roomCounts;
+    private boolean trailing;
+    private int[] trailKinds = new int[0], trailClasses = new int[0], trailWords = new int[0];
+    private long[] trailValues = new long[0];
+    private int trailSize;
+
+    /**
+     * Constructs the full (not reduced) domains of the classes of the given problem instance.
+     *
+     * @param instance The problem instance.
+     */
+    public ClassDomains(ProblemInstance instance) {
+        classes = instance.classes();
+        times = new long[classes.length][];
+        rooms = new long[classes.length][];
+        pairs = new long[classes.length][];
+        timeCounts = new int[classes.length];
+        roomCounts = new int[classes.length];
+        for (int c = 0; c < classes.length; c++) {
+            int timeCount = classes[c].possibleTimes().length;
+            times[c] = fullSet(timeCount);
+            timeCounts[c] = timeCount;
+            if (classes[c].possibleRooms() != null) {
+                int roomCount = classes[c].possibleRooms().length;
+                rooms[c] = fullSet(roomCount);
+                roomCounts[c] = roomCount;
+                pairs[c] = fullSet(timeCount * roomCount);
+            }
+        }
+    }
+
+    /**
+     * Constructs a copy of the current state of the given domains, without its trail.
+     *
+     * @param other The domains to copy.
+     */
+    public ClassDomains(ClassDomains other) {
+        classes = other.classes;
+        times = copy(other.times);
+        rooms = copy(other.rooms);
+        pairs = copy(other.pairs);
+        timeCounts = other.timeCounts.clone();
+        roomCounts = other.roomCounts.clone();
+    }
+
+    private static long[] fullSet(int size) {
+        long[] set = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++)
+            set[i >>> 6] |= 1L << i;
+        return set;
+    }
+
+    private static long[][] copy(long[][] sets) {
+        long[][] result = new long[sets.length][];
+        for (int i = 0; i < sets.length; i++)
+            if (sets[i] != null) result[i] = sets[i].clone();
+        return result;
+    }
+
+    private static boolean contains(long[] set, int bit) {
+        return (set[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Gets the number of classes of these domains.
+     *
+     * @return The number of classes of the problem instance.
+     */
+    public int getClassCount() {
+        return classes.length;
+    }
+
+    /**
+     * Checks if the given time option is still allowed for the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The index of the time in the possible times of the class.
+     * @return true if the time option is in the domain of the class; false otherwise.
+     */
+    public boolean hasTime(int classIndex, int timeOption) {
+        return contains(times[classIndex], timeOption);
+    }
+
+    /**
+     * Checks if the given room option is still allowed for the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param roomOption The index of the room in the possible rooms of the class.
+     * @return true if the room option is in the domain of the class; false otherwise or if the class does not need a
+     * room.
+     */
+    public boolean hasRoom(int classIndex, int roomOption) {
+        return rooms[classIndex] != null && contains(rooms[classIndex], roomOption);
+    }
+
+    /**
+     * Checks if the given (time option, room option) pair is still allowed for the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The index of the time in the possible times of the class.
+     * @param roomOption The index of the room in the possible rooms of the class; ignored if the class does not need a
+     *                   room.
+     * @return true if the pair is allowed; false otherwise.
+     */
+    public boolean isAllowed(int classIndex, int timeOption, int roomOption) {
+        if (pairs[classIndex] == null) return hasTime(classIndex, timeOption);
+        return contains(pairs[classIndex], timeOption * classes[classIndex].possibleRooms().length + roomOption);
+    }
+
+    /**
+     * Gets the number of allowed time options of the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return The size of the time domain of the class.
+     */
+    public int getTimeCount(int classIndex) {
+        return timeCounts[classIndex];
+    }
+
+    /**
+     * Gets the number of allowed room options of the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return The size of the room domain of the class; 0 if the class does not need a room.
+     */
+    public int getRoomCount(int classIndex) {
+        return roomCounts[classIndex];
+    }
+
+    /**
+     * Gets the first allowed time option of the given class from the given option on, which iterates the time domain
+     * without allocating.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param from       The first time option to consider.
+     * @return The smallest allowed time option that is not less than from; -1 if there is none.
+     */
+    public int nextTime(int classIndex, int from) {
+        return next(times[classIndex], from);
+    }
+
+    /**
+     * Gets the first allowed room option of the given class from the given option on, which iterates the room domain
+     * without allocating.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param from       The first room option to consider.
+     * @return The smallest allowed room option that is not less than from; -1 if there is none or the class does not
+     * need a room.
+     */
+    public int nextRoom(int classIndex, int from) {
+        return rooms[classIndex] == null ? -1 : next(rooms[classIndex], from);
+    }
+
+    private static int next(long[] set, int from) {
+        int word = from >>> 6;
+        if (word >= set.length) return -1;
+        long bits = set[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == set.length) return -1;
+            bits = set[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Gets the allowed time options of the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return A new array of the allowed indices in the possible times of the class, in increasing order.
+     */
+    public int[] getTimeOptions(int classIndex) {
+        return members(times[classIndex], timeCounts[classIndex]);
+    }
+
+    /**
+     * Gets the allowed room options of the given class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return A new array of the allowed indices in the possible rooms of the class, in increasing order; null if the
+     * class does not need a room.
+     */
+    public int[] getRoomOptions(int classIndex) {
+        return rooms[classIndex] == null ? null : members(rooms[classIndex], roomCounts[classIndex]);
+    }
+
+    private static int[] members(long[] set, int count) {
+        int[] result = new int[count];
+        int i = 0;
+        for (int word = 0; word < set.length; word++)
+            for (long bits = set[word]; bits != 0; bits &= bits - 1)
+                result[i++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return result;
+    }
+
+    /**
+     * Checks if the domain of the given class is empty, i.e. the class cannot be assigned any time (or any room if it
+     * needs one).
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return true if no assignment is allowed for the class; false otherwise.
+     */
+    public boolean isEmpty(int classIndex) {
+        return timeCounts[classIndex] == 0;
+    }
+
+    /**
+     * Removes the given time option from the domain of the given class, together with its pairs and the room options
+     * left without an allowed pair.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The index of the time in the possible times of the class.
+     * @return true if the time option was in the domain; false otherwise.
+     */
+    public boolean removeTime(int classIndex, int timeOption) {
+        if (!hasTime(classIndex, timeOption)) return false;
+        clearTime(classIndex, timeOption);
+        if (pairs[classIndex] != null) {
+            int roomCount = classes[classIndex].possibleRooms().length;
+            for (int r = 0; r < roomCount; r++) {
+                int bit = timeOption * roomCount + r;
+                if (contains(pairs[classIndex], bit)) {
+                    clearPair(classIndex, bit);
+                    if (!hasRoomSupport(classIndex, r)) clearRoom(classIndex, r);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given room option from the domain of the given class, together with its pairs and the time options
+     * left without an allowed pair.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param roomOption The index of the room in the possible rooms of the class.
+     * @return true if the room option was in the domain; false otherwise.
+     */
+    public boolean removeRoom(int classIndex, int roomOption) {
+        if (!hasRoom(classIndex, roomOption)) return false;
+        clearRoom(classIndex, roomOption);
+        int roomCount = classes[classIndex].possibleRooms().length;
+        for (int t = 0; t < classes[classIndex].possibleTimes().length; t++) {
+            int bit = t * roomCount + roomOption;
+            if (contains(pairs[classIndex], bit)) {
+                clearPair(classIndex, bit);
+                if (!hasTimeSupport(classIndex, t)) clearTime(classIndex, t);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given (time option, room option) pair from the domain of the given class, together with the time and
+     * room options left without an allowed pair.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The index of the time in the possible times of the class.
+     * @param roomOption The index of the room in the possible rooms of the class.
+     * @return true if the pair was allowed; false otherwise.
+     * @throws IllegalArgumentException If the class does not need a room.
+     */
+    public boolean removePair(int classIndex, int timeOption, int roomOption) throws IllegalArgumentException {
+        if (pairs[classIndex] == null) throw new IllegalArgumentException("The class does not need a room!");
+        int bit = timeOption * classes[classIndex].possibleRooms().length + roomOption;
+        if (!contains(pairs[classIndex], bit)) return false;
+        clearPair(classIndex, bit);
+        if (!hasTimeSupport(classIndex, timeOption)) clearTime(classIndex, timeOption);
+        if (!hasRoomSupport(classIndex, roomOption)) clearRoom(classIndex, roomOption);
+        return true;
+    }
+
+    private boolean hasTimeSupport(int classIndex, int timeOption) {
+        int roomCount = classes[classIndex].possibleRooms().length;
+        for (int r = 0; r < roomCount; r++)
+            if (contains(pairs[classIndex], timeOption * roomCount + r)) return true;
+        return false;
+    }
+
+    private boolean hasRoomSupport(int classIndex, int roomOption) {
+        int roomCount = classes[classIndex].possibleRooms().length;
+        for (int t = 0; t < classes[classIndex].possibleTimes().length; t++)
+            if (contains(pairs[classIndex], t * roomCount + roomOption)) return true;
+        return false;
+    }
+
+    private void clearTime(int classIndex, int timeOption) {
+        clear(TIMES, times[classIndex], classIndex, timeOption);
+        if (trailing) record(TIME_COUNT, classIndex, 0, timeCounts[classIndex]);
+        timeCounts[classIndex]--;
+    }
+
+    private void clearRoom(int classIndex, int roomOption) {
+        clear(ROOMS, rooms[classIndex], classIndex, roomOption);
+        if (trailing) record(ROOM_COUNT, classIndex, 0, roomCounts[classIndex]);
+        roomCounts[classIndex]--;
+    }
+
+    private void clearPair(int classIndex, int bit) {
+        clear(PAIRS, pairs[classIndex], classIndex, bit);
+    }
+
+    private void clear(int kind, long[] set, int classIndex, int bit) {
+        int word = bit >>> 6;
+        if (trailing) record(kind, classIndex, word, set[word]);
+        set[word] &= ~(1L << bit);
+    }
+
+    private void record(int kind, int classIndex, int word, long value) {
+        if (trailSize == trailValues.length) {
+            int capacity = Math.max(64, trailSize * 2);
+            trailKinds = Arrays.copyOf(trailKinds, capacity);
+            trailClasses = Arrays.copyOf(trailClasses, capacity);
+            trailWords = Arrays.copyOf(trailWords, capacity);
+            trailValues = Arrays.copyOf(trailValues, capacity);
+        }
+        trailKinds[trailSize] = kind;
+        trailClasses[trailSize] = classIndex;
+        trailWords[trailSize] = word;
+        trailValues[trailSize++] = value;
+    }
+
+    /**
+     * Marks the current state of the domains, to which they can be restored with {@link #undo(int)}. The changes of
+     * the domains are recorded from the first mark on.
+     *
+     * @return The mark of the current state.
+     */
+    public int mark() {
+        trailing = true;
+        return trailSize;
+    }
+
+    /**
+     * Restores the domains to the state of the given mark, undoing all the changes made since. The marks made after
+     * the given mark become invalid.
+     *
+     * @param mark A mark returned by {@link #mark()}.
+     * @throws IllegalArgumentException If the mark is not a valid mark of these domains.
+     */
+    public void undo(int mark) throws IllegalArgumentException {
+        if (mark < 0 || mark > trailSize) throw new IllegalArgumentException("The passed mark is not valid!");
+        while (trailSize > mark) {
+            trailSize--;
+            int c = trailClasses[trailSize];
+            long value = trailValues[trailSize];
+            switch (trailKinds[trailSize]) {
+                case TIMES -> times[c][trailWords[trailSize]] = value;
+                case ROOMS -> rooms[c][trailWords[trailSize]] = value;
+                case PAIRS -> pairs[c][trailWords[trailSize]] = value;
+                case TIME_COUNT -> timeCounts[c] = (int) value;
+                default -> roomCounts[c] = (int) value;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        long timeCount = 0, possibleTimeCount = 0, roomCount = 0, possibleRoomCount = 0;
+        int emptyCount = 0;
+        for (int c = 0; c < classes.length; c++) {
+            timeCount += timeCounts[c];
+            possibleTimeCount += classes[c].possibleTimes().length;
+            roomCount += roomCounts[c];
+            if (classes[c].possibleRooms() != null) possibleRoomCount += classes[c].possibleRooms().length;
+            if (isEmpty(c)) emptyCount++;
+        }
+        return "ClassDomains{" + "times=" + timeCount + "/" + possibleTimeCount + ", rooms=" + roomCount + "/"
+                + possibleRoomCount + ", emptyDomains=" + emptyCount + '}';
+    }
+}
@@ -0,0 +1,287 @@
+package itc2019.preprocessing;
+
+import itc2019.dataset.Class;
+import itc2019.dataset.ClassConstraintIndex;
+import itc2019.dataset.ProblemInstance;
+import itc2019.dataset.constraints.CompatibilityTable;
+import itc2019.dataset.constraints.DistributionConstraint;
+
+import java.util.Arrays;
+
+/**
+ * <p>This class implements the propagation of the hard paired constraints of a problem instance over the domains of its
+ * classes (see {@link ClassDomains}): an option of a class is removed when, for some hard constraint of the class,
+ * another class of the constraint has no option left that is compatible with it. The propagation runs to a fixed point
+ * (arc consistency), in the style of AC-3 with residual supports (AC-3rm): the last support found for every option
+ * along every arc is remembered and checked first. Unlike the supports of AC-2001, the residues are only hints and
+ * stay valid after an undo, so they never need to be restored.</p>
+ * <p>The propagated constraints are the hard paired constraints whose check only depends on either the times or the
+ * rooms of their classes, through their {@link CompatibilityTable}s, which are precompiled (within a memory budget)
+ * when the propagator is created. The other hard constraints (e.g. SameAttendees, MaxDays) are not propagated.
+ * <strong>The precompiled tables are stored in the constraints of the problem instance, so create the propagator before
+ * the problem instance is shared between threads.</strong></p>
+ * <p>Search is supported by tentative assignments: {@link #assign(int, int, int)} reduces the domain of a class to the
+ * assigned options and propagates incrementally (only from the changed classes), and {@link #undo()} restores the
+ * domains from the trail of {@link ClassDomains} to their state before the last assignment.</p>
+ */
+public class Propagator {
+    private final Class[] classes;
+    private final ClassDomains domains;
+    private final ClassConstraintIndex constraintIndex;
+    private final CompatibilityTable[] tables; // The table of each hard constraint id; null if it is not propagated
+    private final DistributionConstraint[] constraints;
+    private final int[][][] residues; // [constraint][position pair][option]: the last support found, lazily created
+    private final int[] queue;
+    private final boolean[] queued;
+    private int queueHead, queueSize;
+    private int[] marks = new int[16];
+    private int depth;
+    private long revisionCount, removalCount;
+
+    /**
+     * Constructs a propagator of the hard paired constraints of the given problem instance over the given domains.
+     *
+     * @param instance     The problem instance.
+     * @param domains      The domains of the classes of the problem instance, which are changed by the propagation.
+     * @param memoryBudget The maximal total size in bytes of the compatibility tables to precompile (see
+     *                     {@link CompatibilityTable#precompile(DistributionConstraint, long)}).
+     */
+    public Propagator(ProblemInstance instance, ClassDomains domains, long memoryBudget) {
+        classes = instance.classes();
+        this.domains = domains;
+        constraintIndex = instance.constraintIndex();
+        int hardCount = instance.hardConstraints().length;
+        tables = new CompatibilityTable[hardCount];
+        constraints = new DistributionConstraint[hardCount];
+        residues = new int[hardCount][][];
+        long used = 0;
+        for (int k = 0; k < hardCount; k++) {
+            constraints[k] = instance.hardConstraints()[k].constraint();
+            used += CompatibilityTable.precompile(constraints[k], memoryBudget - used);
+            tables[k] = CompatibilityTable.of(constraints[k]);
+        }
+        queue = new int[classes.length];
+        queued = new boolean[classes.length];
+    }
+
+    /**
+     * Constructs a propagator of the same constraints as the given propagator over other domains. The compatibility
+     * tables are not precompiled again, so unlike {@link #Propagator(ProblemInstance, ClassDomains, long)} this
+     * constructor is safe to call from several threads at the same time.
+     *
+     * @param propagator The propagator whose constraints to propagate.
+     * @param domains    The domains of the classes of the problem instance, which are changed by the propagation.
+     */
+    public Propagator(Propagator propagator, ClassDomains domains) {
+        classes = propagator.classes;
+        this.domains = domains;
+        constraintIndex = propagator.constraintIndex;
+        tables = propagator.tables;
+        constraints = propagator.constraints;
+        residues = new int[tables.length][][];
+        queue = new int[classes.length];
+        queued = new boolean[classes.length];
+    }
+
+    /**
+     * Gets the domains of this propagator.
+     *
+     * @return The (propagated) domains of the classes.
+     */
+    public ClassDomains getDomains() {
+        return domains;
+    }
+
+    /**
+     * Gets the number of tentative assignments that have not been undone.
+     *
+     * @return The current search depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the total number of arc revisions made by this propagator.
+     *
+     * @return The revision count.
+     */
+    public long getRevisionCount() {
+        return revisionCount;
+    }
+
+    /**
+     * Gets the total number of options removed by this propagator (including the removals that were undone).
+     *
+     * @return The removal count.
+     */
+    public long getRemovalCount() {
+        return removalCount;
+    }
+
+    /**
+     * Propagates all the constraints from scratch, i.e. makes the domains arc consistent. The classes whose domains
+     * are already empty are left out, as they violate some constraint whatever their options are.
+     *
+     * @return true if no domain was wiped out by the propagation; false otherwise.
+     */
+    public boolean propagate() {
+        for (int c = 0; c < classes.length; c++)
+            enqueue(c);
+        return run();
+    }
+
+    /**
+     * Tentatively assigns the given time option (and room option) to the given class and propagates the change. The
+     * assignment can be undone with {@link #undo()}, which must also be called if this method fails.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The index of the time in the possible times of the class.
+     * @param roomOption The index of the room in the possible rooms of the class; -1 to keep all the allowed rooms.
+     * @return true if every domain is still non-empty; false if the assignment leads to a wipe-out.
+     */
+    public boolean assign(int classIndex, int timeOption, int roomOption) {
+        if (depth == marks.length) marks = Arrays.copyOf(marks, depth * 2);
+        marks[depth++] = domains.mark();
+        for (int t = domains.nextTime(classIndex, 0); t >= 0; t = domains.nextTime(classIndex, t + 1))
+            if (t != timeOption) domains.removeTime(classIndex, t);
+        if (roomOption >= 0)
+            for (int r = domains.nextRoom(classIndex, 0); r >= 0; r = domains.nextRoom(classIndex, r + 1))
+                if (r != roomOption) domains.removeRoom(classIndex, r);
+        if (domains.isEmpty(classIndex) || !domains.hasTime(classIndex, timeOption)) return false;
+        enqueue(classIndex);
+        return run();
+    }
+
+    /**
+     * Removes the given time option from the domain of the given class and propagates the change, as part of the last
+     * tentative assignment (e.g. to refute an assignment that failed).
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The index of the time in the possible times of the class.
+     * @return true if every domain is still non-empty; false if the removal leads to a wipe-out.
+     */
+    public boolean excludeTime(int classIndex, int timeOption) {
+        if (!domains.removeTime(classIndex, timeOption)) return true;
+        if (domains.isEmpty(classIndex)) return false;
+        enqueue(classIndex);
+        return run();
+    }
+
+    /**
+     * Undoes the last tentative assignment (and the exclusions made after it), restoring the domains to their state
+     * before it.
+     *
+     * @throws IllegalStateException If there is no assignment to undo.
+     */
+    public void undo() throws IllegalStateException {
+        if (depth == 0) throw new IllegalStateException("There is no tentative assignment to undo!");
+        domains.undo(marks[--depth]);
+    }
+
+    private void enqueue(int classIndex) {
+        if (queued[classIndex]) return;
+        queued[classIndex] = true;
+        queue[(queueHead + queueSize++) % queue.length] = classIndex;
+    }
+
+    private void clearQueue() {
+        while (queueSize > 0) {
+            queued[queue[queueHead]] = false;
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+        }
+    }
+
+    /**
+     * Revises the arcs towards the queued classes until no domain changes anymore.
+     */
+    private boolean run() {
+        while (queueSize > 0) {
+            int changed = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            queued[changed] = false;
+            if (domains.isEmpty(changed)) continue; // Its options are all violating, so they support nothing
+            Class changedClass = classes[changed];
+            for (int entry = constraintIndex.start(changedClass); entry < constraintIndex.end(changedClass); entry++) {
+                int k = constraintIndex.constraintId(entry);
+                if (!constraintIndex.isHard(k) || tables[k] == null) continue;
+                int position = constraintIndex.position(entry);
+                Class[] constraintClasses = constraints[k].getClasses();
+                for (int p = 0; p < constraintClasses.length; p++) {
+                    if (p == position) continue;
+                    int revised = constraintClasses[p].id() - 1;
+                    if (revised == changed || !revise(k, p, position)) continue;
+                    if (domains.isEmpty(revised)) {
+                        clearQueue();
+                        return false;
+                    }
+                    enqueue(revised);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the options of the class at position p of the given constraint that have no compatible option left in
+     * the class at position q.
+     *
+     * @return true if the domain of the class at position p changed; false otherwise.
+     */
+    private boolean revise(int k, int p, int q) {
+        revisionCount++;
+        CompatibilityTable table = tables[k];
+        Class[] constraintClasses = constraints[k].getClasses();
+        int revised = constraintClasses[p].id() - 1, support = constraintClasses[q].id() - 1;
+        boolean overRooms = table.isOverRooms();
+        int[] arcResidues = residues(k, p, q, constraintClasses);
+        boolean changed = false;
+        for (int x = next(revised, 0, overRooms); x >= 0; x = next(revised, x + 1, overRooms)) {
+            int residue = arcResidues[x];
+            if (residue >= 0 && contains(support, residue, overRooms) && isCompatible(table, p, q, x, residue))
+                continue;
+            int y = next(support, 0, overRooms);
+            while (y >= 0 && !isCompatible(table, p, q, x, y))
+                y = next(support, y + 1, overRooms);
+            if (y >= 0) arcResidues[x] = y;
+            else {
+                if (overRooms) domains.removeRoom(revised, x);
+                else domains.removeTime(revised, x);
+                removalCount++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private int[] residues(int k, int p, int q, Class[] constraintClasses) {
+        int n = constraintClasses.length;
+        if (residues[k] == null) residues[k] = new int[n * n][];
+        int[] arcResidues = residues[k][p * n + q];
+        if (arcResidues == null) {
+            Class revised = constraintClasses[p];
+            arcResidues = new int[tables[k].isOverRooms() ? revised.possibleRooms().length : revised.possibleTimes().length];
+            Arrays.fill(arcResidues, -1);
+            residues[k][p * n + q] = arcResidues;
+        }
+        return arcResidues;
+    }
+
+    private int next(int classIndex, int from, boolean overRooms) {
+        return overRooms ? domains.nextRoom(classIndex, from) : domains.nextTime(classIndex, from);
+    }
+
+    private boolean contains(int classIndex, int option, boolean overRooms) {
+        return overRooms ? domains.hasRoom(classIndex, option) : domains.hasTime(classIndex, option);
+    }
+
+    /**
+     * Checks the option x of the class at position p against the option y of the class at position q, in the order of
+     * the positions, as some checks (e.g. precedence) are not symmetric.
+     */
+    private static boolean isCompatible(CompatibilityTable table, int p, int q, int x, int y) {
+        return p < q ? table.isCompatible(p, q, x, y) : table.isCompatible(q, p, y, x);
+    }
+}
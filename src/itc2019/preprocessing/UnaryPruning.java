@@ -0,0 +1,93 @@
+package itc2019.preprocessing;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.dataset.constraints.DistributionConstraint;
+import itc2019.dataset.constraints.HardConstraint;
+import itc2019.dataset.constraints.MaxDayLoad;
+import itc2019.dataset.constraints.MaxDays;
+import utils.LogicalOperators;
+
+/**
+ * <p>This class implements the unary pruning of the domains of the classes of a problem instance, i.e. the removal of
+ * the time and room options (and (time, room) pairs) of a class that can never be part of a feasible solution, judged
+ * by the class alone:</p>
+ * <ul>
+ *     <li>A room whose capacity is below the limit of the class. If no possible room of a class is large enough, none
+ *     of them is removed, as the class has to be placed in one of them anyway.</li>
+ *     <li>A (time, room) pair where the room is unavailable at some meeting of the time.</li>
+ *     <li>A time with more days than a hard MaxDays(D) constraint of the class allows, or longer than a hard
+ *     MaxDayLoad(S) constraint of the class allows on a single day, as the class alone already violates the
+ *     constraint.</li>
+ * </ul>
+ * <p>Removing a time or a room also removes the options left without any allowed pair (see {@link ClassDomains}).
+ * Checks between two or more classes are left to the propagation of the binary constraints.</p>
+ */
+public class UnaryPruning {
+    /**
+     * Computes the unary-pruned domains of the classes of the given problem instance.
+     *
+     * @param instance The problem instance.
+     * @return The reduced domains. A class with an empty domain cannot be scheduled without violating a hard
+     * constraint or a room unavailability.
+     */
+    public static ClassDomains prune(ProblemInstance instance) {
+        ClassDomains domains = new ClassDomains(instance);
+        for (Class aClass : instance.classes()) {
+            if (aClass.possibleRooms() != null) {
+                pruneRoomCapacities(aClass, domains);
+                pruneRoomUnavailabilities(aClass, domains);
+            }
+        }
+        for (HardConstraint hardConstraint : instance.hardConstraints())
+            pruneTimes(hardConstraint.constraint(), domains);
+        return domains;
+    }
+
+    private static void pruneRoomCapacities(Class aClass, ClassDomains domains) {
+        RoomAssignment[] possibleRooms = aClass.possibleRooms();
+        boolean anyLargeEnough = false;
+        for (RoomAssignment roomAssignment : possibleRooms)
+            anyLargeEnough |= roomAssignment.room().capacity() >= aClass.limit();
+        if (!anyLargeEnough) return;
+        for (int r = 0; r < possibleRooms.length; r++)
+            if (possibleRooms[r].room().capacity() < aClass.limit()) domains.removeRoom(aClass.id() - 1, r);
+    }
+
+    private static void pruneRoomUnavailabilities(Class aClass, ClassDomains domains) {
+        RoomAssignment[] possibleRooms = aClass.possibleRooms();
+        TimeAssignment[] possibleTimes = aClass.possibleTimes();
+        for (int r = 0; r < possibleRooms.length; r++) {
+            Time[] unavailable = possibleRooms[r].room().unavailable();
+            if (unavailable.length == 0 || !domains.hasRoom(aClass.id() - 1, r)) continue;
+            for (int t = 0; t < possibleTimes.length; t++)
+                if (overlapsAny(possibleTimes[t].time(), unavailable)) domains.removePair(aClass.id() - 1, t, r);
+        }
+    }
+
+    private static boolean overlapsAny(Time time, Time[] unavailable) {
+        for (Time other : unavailable)
+            if (other.start() < time.end() && time.start() < other.end()
+                    && !LogicalOperators.areExclusive(other.daysMask(), time.daysMask())
+                    && !LogicalOperators.areExclusive(other.weeksMask(), time.weeksMask()))
+                return true;
+        return false;
+    }
+
+    /**
+     * Removes the times of the classes of the given hard constraint that violate the constraint on their own.
+     */
+    private static void pruneTimes(DistributionConstraint constraint, ClassDomains domains) {
+        int maxDays = constraint instanceof MaxDays ? constraint.getParameters()[0] : Integer.MAX_VALUE;
+        int maxDayLoad = constraint instanceof MaxDayLoad ? constraint.getParameters()[0] : Integer.MAX_VALUE;
+        if (maxDays == Integer.MAX_VALUE && maxDayLoad == Integer.MAX_VALUE) return;
+        for (Class aClass : constraint.getClasses()) {
+            TimeAssignment[] possibleTimes = aClass.possibleTimes();
+            for (int t = 0; t < possibleTimes.length; t++) {
+                Time time = possibleTimes[t].time();
+                if (Long.bitCount(time.daysMask()) > maxDays || time.duration() > maxDayLoad)
+                    domains.removeTime(aClass.id() - 1, t);
+            }
+        }
+    }
+}
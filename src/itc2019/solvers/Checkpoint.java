@@ -0,0 +1,169 @@
+package itc2019.solvers;
+
+import itc2019.dataset.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>This class stores the search state of the chains of a {@link SimulatedAnnealing} run in a compact binary file and
+ * loads it back, so that a killed run can be resumed from its last checkpoint instead of from scratch.</p>
+ * <p>The file is a 16 byte header (magic number, format version, payload size in bytes and the CRC32C checksum of the
+ * payload) followed by a little-endian payload: the name, class count and student count of the problem instance, then
+ * for every chain its counters, random seed and temperature schedule, the time and room options of its current and
+ * best timetables, and the enrollments of its current timetable in the compressed form of {@link CompactSolution}. The
+ * file is written next to its final path first and then moved in place, so a crash while writing leaves the previous
+ * checkpoint intact.</p>
+ */
+public final class Checkpoint {
+    private static final int MAGIC = 0x4954434B; // "ITCK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * The search state of a single annealing chain.
+     *
+     * @param current            The current timetable of the chain, including its enrollments.
+     * @param bestTimes          The time options of the events in the best timetable of the chain.
+     * @param bestRooms          The room options of the events in the best timetable of the chain (-1 if not needed).
+     * @param cost               The annealed cost of the current timetable.
+     * @param bestCost           The annealed cost of the best timetable.
+     * @param iterations         The number of iterations made by the chain.
+     * @param seed               The seed of the random generator of the chain from this state on.
+     * @param initialTemperature The initial temperature of the chain.
+     * @param progress           The fraction of the temperature schedule that has elapsed, from 0 to 1.
+     */
+    public record ChainState(CompactSolution current, int[] bestTimes, int[] bestRooms, long cost, long bestCost,
+                             long iterations, long seed, double initialTemperature, double progress) {
+    }
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Writes the given chain states of a run on the given problem instance to the given file, replacing it.
+     *
+     * @param instance The problem instance of the run.
+     * @param chains   The states of all the chains of the run.
+     * @param file     The path of the checkpoint file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(ProblemInstance instance, ChainState[] chains, Path file) throws IOException {
+        int classCount = instance.classes().length, studentCount = instance.students().length;
+        byte[] name = Objects.toString(instance.instanceName(), "").getBytes(StandardCharsets.UTF_8);
+        long size = 4L + name.length + 12;
+        for (ChainState chain : chains)
+            size += 6 * Long.BYTES + 4L * (4 * classCount + studentCount + 1 + chain.current().enrollmentCount());
+        if (HEADER_SIZE + size > Integer.MAX_VALUE) throw new IOException("The checkpoint is too large!");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_SIZE);
+        buffer.putInt(name.length).put(name).putInt(classCount).putInt(studentCount).putInt(chains.length);
+        for (ChainState chain : chains) {
+            buffer.putLong(chain.cost()).putLong(chain.bestCost()).putLong(chain.iterations()).putLong(chain.seed())
+                    .putDouble(chain.initialTemperature()).putDouble(chain.progress());
+            CompactSolution current = chain.current();
+            for (int c = 0; c < classCount; c++) buffer.putInt(current.getTimeOption(c));
+            for (int c = 0; c < classCount; c++) buffer.putInt(current.getRoomOption(c));
+            for (int c = 0; c < classCount; c++) buffer.putInt(chain.bestTimes()[c]);
+            for (int c = 0; c < classCount; c++) buffer.putInt(chain.bestRooms()[c]);
+            for (int s = 0; s < studentCount; s++) buffer.putInt(current.enrollmentStart(s));
+            buffer.putInt(current.enrollmentCount());
+            for (int e = 0; e < current.enrollmentCount(); e++) buffer.putInt(current.getEnrolledClass(e));
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, (int) size));
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, (int) size).putInt(12, (int) crc.getValue());
+        buffer.position(0);
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false); // The checkpoint must be on the disk before it replaces the previous one
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the chain states stored in the given checkpoint file of a run on the given problem instance.
+     *
+     * @param instance The problem instance of the run.
+     * @param file     The path of the checkpoint file.
+     * @return The states of all the chains of the run.
+     * @throws IOException If the file cannot be read, is not a checkpoint of this version or of the given problem
+     *                     instance, or is damaged.
+     */
+    public static ChainState[] read(ProblemInstance instance, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException(file + " is not a checkpoint file!");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(file + " is of the unsupported checkpoint version " + buffer.getInt(4) + "!");
+        int size = buffer.getInt(8);
+        if (size < 0 || HEADER_SIZE + (long) size != buffer.limit()) throw new IOException(file + " is truncated!");
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, size));
+        if ((int) crc.getValue() != buffer.getInt(12)) throw new IOException(file + " is damaged (checksum mismatch)!");
+        buffer.position(HEADER_SIZE);
+        try {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            int classCount = buffer.getInt(), studentCount = buffer.getInt();
+            if (!new String(name, StandardCharsets.UTF_8).equals(Objects.toString(instance.instanceName(), ""))
+                    || classCount != instance.classes().length || studentCount != instance.students().length)
+                throw new IOException(file + " is a checkpoint of another problem instance!");
+            ChainState[] chains = new ChainState[buffer.getInt()];
+            for (int i = 0; i < chains.length; i++)
+                chains[i] = readChain(instance, buffer);
+            if (buffer.hasRemaining()) throw new IOException(file + " has unexpected data after the chains!");
+            return chains;
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException |
+                 IndexOutOfBoundsException e) {
+            throw new IOException(file + " holds an invalid checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the state of a chain. The current timetable is rebuilt from the stored options and enrollments, which
+     * validates the enrollments (limits, capacities and parent classes) on the way.
+     */
+    private static ChainState readChain(ProblemInstance instance, ByteBuffer buffer) {
+        long cost = buffer.getLong(), bestCost = buffer.getLong(), iterations = buffer.getLong(), seed = buffer.getLong();
+        double initialTemperature = buffer.getDouble(), progress = buffer.getDouble();
+        int classCount = instance.classes().length;
+        Timetable timetable = new Timetable(instance);
+        Event[] events = timetable.getEvents();
+        for (Event event : events) event.setTimeOption(buffer.getInt());
+        for (Event event : events) {
+            int roomOption = buffer.getInt();
+            if (roomOption >= 0) event.setRoomOption(roomOption);
+        }
+        int[] bestTimes = new int[classCount], bestRooms = new int[classCount];
+        buffer.asIntBuffer().get(bestTimes);
+        buffer.position(buffer.position() + 4 * classCount);
+        buffer.asIntBuffer().get(bestRooms);
+        buffer.position(buffer.position() + 4 * classCount);
+        Student[] students = instance.students();
+        int[] offsets = new int[students.length + 1];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + 4 * offsets.length);
+        for (int s = 0; s < students.length; s++)
+            for (int e = offsets[s]; e < offsets[s + 1]; e++)
+                events[buffer.getInt()].addStudent(students[s], timetable);
+        return new ChainState(new CompactSolution(instance, timetable), bestTimes, bestRooms, cost, bestCost,
+                iterations, seed, initialTemperature, progress);
+    }
+}
@@ -0,0 +1,206 @@
+package itc2019.solvers;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.preprocessing.ClassDomains;
+import itc2019.preprocessing.Propagator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * <p>This class creates random initial timetables (candidate solutions) for the local search methods. Every event gets
+ * a random time and room from the possible times and rooms of its class, and the students are then sectioned greedily:
+ * for each requested course, the student is enrolled in one class of every subpart of a configuration of the course,
+ * respecting the parent-child relations of the classes, the class limits and the room capacities.</p>
+ * <p>A student is not enrolled in a course if no configuration of the course has room for the student. Such a timetable
+ * is not a valid ITC 2019 solution, but its times and rooms can still be optimized.</p>
+ * <p>The times and rooms can also be drawn from reduced domains (see {@link itc2019.preprocessing.UnaryPruning}), in
+ * which case every event gets an allowed (time, room) pair, unless the domain of its class is empty. With a
+ * {@link Propagator}, the classes are assigned most constrained first and every assignment is propagated to the domains
+ * of the remaining classes, so that they only get options that are still compatible with the hard paired constraints of
+ * the classes assigned before them.</p>
+ */
+public class InitialSolution {
+    /**
+     * Creates a random timetable of the given problem instance and sections its students.
+     *
+     * @param instance The problem instance.
+     * @param random   The random generator.
+     * @return The fully scheduled timetable.
+     */
+    public static Timetable create(ProblemInstance instance, SplittableRandom random) {
+        return create(instance, new ClassDomains(instance), random);
+    }
+
+    /**
+     * Creates a random timetable of the given problem instance whose times and rooms are drawn from the given domains,
+     * and sections its students.
+     *
+     * @param instance The problem instance.
+     * @param domains  The (reduced) domains of the classes of the problem instance.
+     * @param random   The random generator.
+     * @return The fully scheduled timetable.
+     */
+    public static Timetable create(ProblemInstance instance, ClassDomains domains, SplittableRandom random) {
+        Timetable timetable = new Timetable(instance);
+        for (Event event : timetable.getEvents()) {
+            Class aClass = event.getTheClass();
+            int classIndex = aClass.id() - 1;
+            if (domains.isEmpty(classIndex)) { // Every assignment violates something, so any one will do
+                event.setTimeOption(random.nextInt(aClass.possibleTimes().length));
+                if (aClass.possibleRooms() != null) event.setRoomOption(random.nextInt(aClass.possibleRooms().length));
+                continue;
+            }
+            int[] timeOptions = domains.getTimeOptions(classIndex);
+            int timeOption = timeOptions[random.nextInt(timeOptions.length)];
+            event.setTimeOption(timeOption);
+            if (aClass.possibleRooms() != null)
+                event.setRoomOption(randomRoom(aClass, domains, timeOption, random));
+        }
+        for (Student student : instance.students())
+            for (Course course : student.courses())
+                enroll(student, course, timetable, random);
+        return timetable;
+    }
+
+    /**
+     * Creates a timetable of the given problem instance by assigning the classes one at a time with propagation, and
+     * sections its students. The next class is always one with the fewest (time, room) options left in the domains of
+     * the propagator, and its times are tried in a random order (each with a random allowed room) until one of them
+     * propagates without a wipe-out. A class whose every time fails gets a random option of its remaining domain (or
+     * of all its options, if its domain is empty) without propagation, so the construction never backtracks beyond the
+     * current class. The domains of the propagator are restored when the timetable is complete.
+     *
+     * @param instance   The problem instance.
+     * @param propagator The propagator of the hard constraints over the (reduced) domains of the classes.
+     * @param random     The random generator.
+     * @return The fully scheduled timetable.
+     */
+    public static Timetable create(ProblemInstance instance, Propagator propagator, SplittableRandom random) {
+        ClassDomains domains = propagator.getDomains();
+        int depth = propagator.getDepth();
+        Timetable timetable = new Timetable(instance);
+        Event[] events = timetable.getEvents();
+        boolean[] assigned = new boolean[events.length];
+        for (int step = 0; step < events.length; step++) {
+            int classIndex = -1;
+            long fewest = Long.MAX_VALUE;
+            for (int c = 0; c < events.length; c++) {
+                long size = (long) domains.getTimeCount(c) * Math.max(1, domains.getRoomCount(c));
+                if (!assigned[c] && size < fewest) {
+                    classIndex = c;
+                    fewest = size;
+                }
+            }
+            assigned[classIndex] = true;
+            Event event = events[classIndex];
+            Class aClass = event.getTheClass();
+            if (domains.isEmpty(classIndex)) {
+                event.setTimeOption(random.nextInt(aClass.possibleTimes().length));
+                if (aClass.possibleRooms() != null) event.setRoomOption(random.nextInt(aClass.possibleRooms().length));
+                continue;
+            }
+            int[] timeOptions = domains.getTimeOptions(classIndex);
+            shuffle(timeOptions, random);
+            int timeOption = timeOptions[0], roomOption = -1;
+            if (aClass.possibleRooms() != null) roomOption = randomRoom(aClass, domains, timeOption, random);
+            for (int option : timeOptions) {
+                int room = aClass.possibleRooms() == null ? -1 : randomRoom(aClass, domains, option, random);
+                if (propagator.assign(classIndex, option, room)) {
+                    timeOption = option;
+                    roomOption = room;
+                    break;
+                }
+                propagator.undo();
+            }
+            event.setTimeOption(timeOption);
+            if (roomOption >= 0) event.setRoomOption(roomOption);
+        }
+        while (propagator.getDepth() > depth)
+            propagator.undo();
+        for (Student student : instance.students())
+            for (Course course : student.courses())
+                enroll(student, course, timetable, random);
+        return timetable;
+    }
+
+    private static void shuffle(int[] options, SplittableRandom random) {
+        for (int i = options.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1), option = options[i];
+            options[i] = options[j];
+            options[j] = option;
+        }
+    }
+
+    /**
+     * Enrolls the given student in one class of every subpart of the first configuration (starting from a random one)
+     * of the given course that has room for the student.
+     *
+     * @return true if the student was enrolled; false if no configuration has room for the student.
+     */
+    private static boolean enroll(Student student, Course course, Timetable timetable, SplittableRandom random) {
+        Config[] configs = course.configs();
+        int first = random.nextInt(configs.length);
+        for (int i = 0; i < configs.length; i++) {
+            List<Class> chosen = choose(configs[(first + i) % configs.length], timetable, random);
+            if (chosen != null) {
+                for (Class aClass : chosen) // The parents are chosen, and so enrolled, before their children
+                    timetable.getEvent(aClass).addStudent(student, timetable);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chooses one class with free space from every subpart of the given configuration, so that the parent of every
+     * chosen class is chosen as well.
+     *
+     * @return The chosen classes in the order they can be enrolled in; null if there is no such choice.
+     */
+    private static List<Class> choose(Config config, Timetable timetable, SplittableRandom random) {
+        Subpart[] subparts = config.subparts();
+        Class[] choice = new Class[subparts.length];
+        List<Class> chosen = new ArrayList<>(subparts.length);
+        boolean progress = true;
+        while (chosen.size() < subparts.length && progress) {
+            progress = false;
+            for (int s = 0; s < subparts.length; s++) {
+                if (choice[s] != null) continue;
+                List<Class> candidates = new ArrayList<>();
+                boolean waiting = false; // A candidate whose parent may still be chosen from a later subpart
+                for (Class aClass : subparts[s].classes())
+                    if (hasSpace(timetable.getEvent(aClass))) {
+                        if (aClass.parent() == null || chosen.contains(aClass.parent())) candidates.add(aClass);
+                        else waiting = true;
+                    }
+                if (!candidates.isEmpty()) {
+                    choice[s] = candidates.get(random.nextInt(candidates.size()));
+                    chosen.add(choice[s]);
+                    progress = true;
+                } else if (!waiting) return null;
+            }
+        }
+        return chosen.size() == subparts.length ? chosen : null;
+    }
+
+    /**
+     * Picks a random room option of the given class that is allowed together with the given time option.
+     *
+     * @return The picked room option; -1 if no room option is allowed with the time option.
+     */
+    static int randomRoom(Class aClass, ClassDomains domains, int timeOption, SplittableRandom random) {
+        int picked = -1, count = 0;
+        for (int r = 0; r < aClass.possibleRooms().length; r++)
+            if (domains.isAllowed(aClass.id() - 1, timeOption, r) && random.nextInt(++count) == 0) picked = r;
+        return picked;
+    }
+
+    private static boolean hasSpace(Event event) {
+        int size = event.getStudentCount();
+        return size < event.getTheClass().limit()
+                && (event.getRoomAssignment() == null || size < event.getRoomAssignment().room().capacity());
+    }
+}
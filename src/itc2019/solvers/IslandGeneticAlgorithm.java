@@ -0,0 +1,404 @@
+package itc2019.solvers;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.evaluation.Evaluator;
+import itc2019.evaluation.IncrementalEvaluator;
+import itc2019.preprocessing.ClassDomains;
+import itc2019.preprocessing.Propagator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+/**
+ * <p>This class implements an island-model genetic algorithm for the ITC 2019. Every island evolves its own population
+ * of {@link CompactSolution}s on its own thread, so hundreds of timetables per island only take a few primitive arrays
+ * each, and the populations are evaluated in parallel. Every migration interval (in generations), an island sends
+ * copies of its best members to the next island of a ring through a lock-free {@link ConcurrentLinkedQueue}, and every
+ * island takes in the migrants queued for it at the start of each generation, so the islands never wait for each
+ * other.</p>
+ * <p>A generation makes as many children as there are members. The parents are picked by binary tournaments, and the
+ * crossover takes every course as a whole from one of them: the times and rooms of all the classes of the course and
+ * the enrollments of all the students in the course. As the classes, configurations and parent-child relations of a
+ * course never mix between the parents, the sectioning of every child stays valid (one class of every subpart of a
+ * single configuration, within the class limits and room capacities). A few random time or room changes drawn from the
+ * reduced domains of the classes (like the moves of {@link SimulatedAnnealing}) then mutate the child.</p>
+ * <p>The fitness of a child is the cost minimized by {@link SimulatedAnnealing} and {@link TabuSearch} as well,
+ * hardWeight * (hard violations + room conflicts) + total penalty. Every island builds all its children in a single
+ * timetable kept evaluated by an {@link IncrementalEvaluator}, which still holds the previous child. The crossover only
+ * moves the classes whose time or room differs from the picked parent of their course and only re-enrolls the
+ * students sectioned differently in it, and the mutations are applied as moves, so the evaluation of a child takes
+ * time in proportion to what it changes rather than to the size of the problem instance. A child replaces the worst member of the population if
+ * it is better, unless it has the cost of one of its parents (as it is then most likely a copy).</p>
+ * <p><strong>Precompile the compatibility tables of the problem instance (if desired) before solving, as the problem
+ * instance is shared between the threads.</strong></p>
+ */
+public class IslandGeneticAlgorithm {
+    private static final int MUTATIONS = 2; // The number of random time or room changes tried on every child
+    private final ProblemInstance instance;
+    private final int islandCount, populationSize, migrationInterval, migrantCount;
+    private final long seed;
+    private final SearchSpace space; // The allowed options of each class and the fitness, shared by the islands
+    private final int[] courses; // The index of the course of each class
+    private final Propagator propagator; // Copied by every island to construct its initial population
+
+    /**
+     * A copy of a member of a population sent to another island.
+     *
+     * @param solution The copied member.
+     * @param cost     The fitness of the member.
+     */
+    private record Migrant(CompactSolution solution, long cost) {
+    }
+
+    /**
+     * Constructs an island-model genetic algorithm with one island per available processor, 100 members per island,
+     * 2 migrants every 10 generations and a hard constraint weight of 10000.
+     *
+     * @param instance The problem instance to solve.
+     * @param seed     The seed of the random generators of the islands.
+     */
+    public IslandGeneticAlgorithm(ProblemInstance instance, long seed) {
+        this(instance, Runtime.getRuntime().availableProcessors(), 100, 10, 2, seed, 10_000);
+    }
+
+    /**
+     * Constructs an island-model genetic algorithm over the domains of the classes reduced by
+     * {@link itc2019.preprocessing.UnaryPruning} and {@link Propagator}.
+     *
+     * @param instance          The problem instance to solve.
+     * @param islandCount       The number of islands, each evolved by its own thread.
+     * @param populationSize    The number of members of the population of every island.
+     * @param migrationInterval The number of generations between two migrations.
+     * @param migrantCount      The number of best members every island sends to the next one in a migration.
+     * @param seed              The seed of the random generators of the islands.
+     * @param hardWeight        The weight of a hard constraint violation or room conflict relative to the total
+     *                          penalty.
+     * @throws IllegalArgumentException If the island count, the migration interval or the hard weight is not positive,
+     *                                  the population has less than 2 members, or the migrant count is negative or not
+     *                                  less than the population size.
+     */
+    public IslandGeneticAlgorithm(ProblemInstance instance, int islandCount, int populationSize, int migrationInterval,
+                                  int migrantCount, long seed, long hardWeight) throws IllegalArgumentException {
+        this(instance, islandCount, populationSize, migrationInterval, migrantCount, seed, hardWeight,
+                SimulatedAnnealing.reduce(instance));
+    }
+
+    /**
+     * Constructs an island-model genetic algorithm that searches the given domains of the classes.
+     *
+     * @param instance          The problem instance to solve.
+     * @param islandCount       The number of islands, each evolved by its own thread.
+     * @param populationSize    The number of members of the population of every island.
+     * @param migrationInterval The number of generations between two migrations.
+     * @param migrantCount      The number of best members every island sends to the next one in a migration.
+     * @param seed              The seed of the random generators of the islands.
+     * @param hardWeight        The weight of a hard constraint violation or room conflict relative to the total
+     *                          penalty.
+     * @param domains           The (reduced) domains of the classes, which must not be changed while solving. The
+     *                          classes with an empty domain are searched over all their possible times and rooms.
+     * @throws IllegalArgumentException If the island count, the migration interval or the hard weight is not positive,
+     *                                  the population has less than 2 members, or the migrant count is negative or not
+     *                                  less than the population size.
+     */
+    public IslandGeneticAlgorithm(ProblemInstance instance, int islandCount, int populationSize, int migrationInterval,
+                                  int migrantCount, long seed, long hardWeight, ClassDomains domains)
+            throws IllegalArgumentException {
+        if (islandCount < 1) throw new IllegalArgumentException("The number of islands must be positive!");
+        if (populationSize < 2) throw new IllegalArgumentException("The population must have at least 2 members!");
+        if (migrationInterval < 1) throw new IllegalArgumentException("The migration interval must be positive!");
+        if (migrantCount < 0 || migrantCount >= populationSize)
+            throw new IllegalArgumentException("The number of migrants must be in [0, population size)!");
+        if (hardWeight < 1) throw new IllegalArgumentException("The hard constraint weight must be positive!");
+        this.instance = instance;
+        this.islandCount = islandCount;
+        this.populationSize = populationSize;
+        this.migrationInterval = migrationInterval;
+        this.migrantCount = migrantCount;
+        this.seed = seed;
+        space = new SearchSpace(instance, domains, hardWeight);
+        courses = new int[instance.classes().length];
+        Course[] instanceCourses = instance.courses();
+        for (int i = 0; i < instanceCourses.length; i++)
+            for (Config config : instanceCourses[i].configs())
+                for (Subpart subpart : config.subparts())
+                    for (Class aClass : subpart.classes())
+                        courses[aClass.id() - 1] = i;
+        propagator = new Propagator(instance, domains, SimulatedAnnealing.PROPAGATION_BUDGET);
+    }
+
+    private static boolean fits(Class aClass, int roomOption, Event event) {
+        return aClass.possibleRooms()[roomOption].room().capacity() >= event.getStudentCount();
+    }
+
+    /**
+     * Evolves the islands until the given time limit is reached and returns the best timetable found by any of them.
+     *
+     * @param timeLimit The wall-clock time limit of the run, including the creation of the initial populations.
+     * @return The best timetable found, its evaluation, and the number of evaluated children.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the islands.
+     * @throws ExecutionException   If an island fails.
+     */
+    public SolverResult solve(Duration timeLimit) throws InterruptedException, ExecutionException {
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Queue<Migrant>> inboxes = new ArrayList<>(islandCount);
+        for (int i = 0; i < islandCount; i++)
+            inboxes.add(new ConcurrentLinkedQueue<>());
+        List<Island> islands = new ArrayList<>(islandCount);
+        for (int i = 0; i < islandCount; i++)
+            islands.add(new Island(random.split(), deadline, inboxes.get(i), inboxes.get((i + 1) % islandCount)));
+        ExecutorService executor = Executors.newFixedThreadPool(islandCount);
+        try {
+            CompactSolution best = null;
+            long bestCost = Long.MAX_VALUE, children = 0;
+            for (Future<Island> future : executor.invokeAll(islands)) {
+                Island island = future.get();
+                children += island.children;
+                int member = island.best();
+                if (island.costs[member] < bestCost) {
+                    best = island.population[member];
+                    bestCost = island.costs[member];
+                }
+            }
+            Timetable timetable = best.toTimetable(instance);
+            return new SolverResult(timetable, Evaluator.evaluate(instance, timetable), children);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A single island with its population.
+     */
+    private class Island implements Callable<Island> {
+        private final SplittableRandom random;
+        private final long deadline;
+        private final Queue<Migrant> inbox, outbox; // The migrants sent to this island and to the next one
+        private final CompactSolution[] population = new CompactSolution[populationSize];
+        private final long[] costs = new long[populationSize];
+        private final int[] changedStudents = new int[instance.students().length]; // The students re-enrolled in a course
+        private int size; // The number of members, less than the population size only if the time ran out
+        private CompactSolution child; // The spare member the children are stored in
+        private Timetable timetable; // The timetable the children are built in, holding the last child
+        private IncrementalEvaluator evaluator; // The evaluator of the timetable
+        private long cost; // The cost of the timetable
+        private long children;
+
+        private Island(SplittableRandom random, long deadline, Queue<Migrant> inbox, Queue<Migrant> outbox) {
+            this.random = random;
+            this.deadline = deadline;
+            this.inbox = inbox;
+            this.outbox = outbox;
+        }
+
+        @Override
+        public Island call() {
+            Propagator islandPropagator = new Propagator(propagator, new ClassDomains(space.getDomains()));
+            do {
+                timetable = InitialSolution.create(instance, islandPropagator, random);
+                population[size] = new CompactSolution(instance, timetable);
+                costs[size++] = space.cost(timetable);
+            } while (size < populationSize && !isOver());
+            child = new CompactSolution(population[0]);
+            evaluator = new IncrementalEvaluator(instance, timetable);
+            cost = costs[size - 1];
+            for (long generation = 1; !isOver(); generation++) {
+                for (Migrant migrant = inbox.poll(); migrant != null; migrant = inbox.poll()) {
+                    int worst = worst();
+                    if (migrant.cost() < costs[worst]) {
+                        population[worst] = migrant.solution();
+                        costs[worst] = migrant.cost();
+                    }
+                }
+                for (int i = 0; i < size && !isOver(); i++)
+                    breed();
+                if (generation % migrationInterval == 0 && islandCount > 1) migrate();
+            }
+            return this;
+        }
+
+        private boolean isOver() {
+            return System.nanoTime() >= deadline || Thread.currentThread().isInterrupted();
+        }
+
+        /**
+         * Makes a child of two parents picked by tournaments, and lets it replace the worst member if it is better.
+         */
+        private void breed() {
+            int first = tournament(), second = tournament();
+            crossover(first, second);
+            Event[] events = timetable.getEvents();
+            for (int i = 0; i < MUTATIONS; i++)
+                mutate(events[random.nextInt(events.length)]);
+            children++;
+            int worst = worst();
+            if (cost >= costs[worst] || cost == costs[first] || cost == costs[second]) return;
+            child.copyFrom(timetable);
+            CompactSolution replaced = population[worst];
+            population[worst] = child;
+            costs[worst] = cost;
+            child = replaced;
+        }
+
+        private int tournament() {
+            int first = random.nextInt(size), second = random.nextInt(size);
+            return costs[first] <= costs[second] ? first : second;
+        }
+
+        /**
+         * Turns the timetable of this island into a child of the given members that takes every course from a random
+         * one of them. Only the parts of a course that the timetable does not already hold as they are in that member
+         * are copied: the times and rooms of the classes that differ, and the enrollments of the students sectioned
+         * differently.
+         */
+        private void crossover(int first, int second) {
+            for (int course = 0; course < instance.courses().length; course++)
+                copyCourse(course, population[random.nextBoolean() ? first : second]);
+        }
+
+        /**
+         * Makes the classes of the given course in the timetable equal to those of the given member. The students
+         * sectioned differently are removed first, so that the rooms can be set whatever their capacity (the other
+         * students of a class are in it in the member as well), and then enrolled in the classes they attend in the
+         * member, whose enrollments are ordered parents first.
+         */
+        private void copyCourse(int course, CompactSolution parent) {
+            StudentClassIndex index = instance.studentClassIndex();
+            Event[] events = timetable.getEvents();
+            Student[] students = instance.students();
+            Class aClass = events[index.courseClass(index.classStart(course))].getTheClass();
+            int changedCount = 0;
+            boolean sectionedAlike = isSectionedAlike(course, parent);
+            for (int e = index.candidateStart(aClass); e < index.candidateEnd(aClass) && !sectionedAlike; e++) {
+                int s = index.candidateStudent(e);
+                if (heldClasses(students[s], course, parent) == countClasses(students[s], course)) continue;
+                changedStudents[changedCount++] = s;
+                for (int k = index.classStart(course); k < index.classEnd(course); k++) {
+                    Event event = events[index.courseClass(k)];
+                    if (event.hasStudent(students[s])) cost += evaluator.removeStudent(event, students[s]);
+                }
+            }
+            for (int k = index.classStart(course); k < index.classEnd(course); k++) {
+                int c = index.courseClass(k);
+                if (events[c].getTimeOption() != parent.getTimeOption(c) || events[c].getRoomOption() != parent.getRoomOption(c))
+                    cost += space.apply(evaluator, events[c], parent.getTimeOption(c), parent.getRoomOption(c));
+            }
+            for (int i = 0; i < changedCount; i++) {
+                int s = changedStudents[i];
+                for (int k = parent.enrollmentStart(s); k < parent.enrollmentEnd(s); k++) {
+                    int c = parent.getEnrolledClass(k);
+                    if (courses[c] == course) cost += evaluator.addStudent(events[c], students[s]);
+                }
+            }
+        }
+
+        /**
+         * Checks if all the students of the given course attend the same classes of it in the timetable and in the given
+         * member, i.e. if the timetable holds every enrollment of the member in the course and no other one.
+         */
+        private boolean isSectionedAlike(int course, CompactSolution parent) {
+            StudentClassIndex index = instance.studentClassIndex();
+            Event[] events = timetable.getEvents();
+            Student[] students = instance.students();
+            int count = 0;
+            for (int k = index.classStart(course); k < index.classEnd(course); k++)
+                count += events[index.courseClass(k)].getStudentCount();
+            Class aClass = events[index.courseClass(index.classStart(course))].getTheClass();
+            for (int e = index.candidateStart(aClass); e < index.candidateEnd(aClass); e++) {
+                int held = heldClasses(students[index.candidateStudent(e)], course, parent);
+                if (held < 0) return false;
+                count -= held;
+            }
+            return count == 0;
+        }
+
+        /**
+         * Counts the classes of the given course the given student attends in the given member.
+         *
+         * @return The number of classes; -1 if the student does not attend one of them in the timetable.
+         */
+        private int heldClasses(Student student, int course, CompactSolution parent) {
+            Event[] events = timetable.getEvents();
+            int s = student.id() - 1, count = 0;
+            for (int k = parent.enrollmentStart(s); k < parent.enrollmentEnd(s); k++) {
+                int c = parent.getEnrolledClass(k);
+                if (courses[c] != course) continue;
+                if (!events[c].hasStudent(student)) return -1;
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Counts the classes of the given course the given student attends in the timetable.
+         */
+        private int countClasses(Student student, int course) {
+            StudentClassIndex index = instance.studentClassIndex();
+            Event[] events = timetable.getEvents();
+            int count = 0;
+            for (int k = index.classStart(course); k < index.classEnd(course); k++)
+                if (events[index.courseClass(k)].hasStudent(student)) count++;
+            return count;
+        }
+
+        /**
+         * Changes the time or the room of the given event to a random allowed one, unless the room is too small.
+         */
+        private void mutate(Event event) {
+            Class aClass = event.getTheClass();
+            int classIndex = aClass.id() - 1;
+            int[] times = space.getTimeOptions(classIndex), rooms = space.getRoomOptions(classIndex);
+            if (rooms != null && rooms.length > 1 && (times.length < 2 || random.nextBoolean())) {
+                int option = rooms[random.nextInt(rooms.length)];
+                if (space.isAllowed(classIndex, event.getTimeOption(), option) && fits(aClass, option, event))
+                    move(event, event.getTimeOption(), option);
+            } else if (times.length > 1) {
+                int option = times[random.nextInt(times.length)];
+                if (rooms == null || space.isAllowed(classIndex, option, event.getRoomOption())) {
+                    move(event, option, event.getRoomOption());
+                    return;
+                }
+                int roomOption = space.randomRoom(aClass, option, random);
+                if (roomOption >= 0 && fits(aClass, roomOption, event)) move(event, option, roomOption);
+            }
+        }
+
+        private void move(Event event, int timeOption, int roomOption) {
+            if (timeOption == event.getTimeOption() && roomOption == event.getRoomOption()) return;
+            cost += space.apply(evaluator, event, timeOption, roomOption);
+        }
+
+        /**
+         * Sends copies of the best members of the population to the next island.
+         */
+        private void migrate() {
+            boolean[] sent = new boolean[size];
+            for (int i = 0; i < Math.min(migrantCount, size); i++) {
+                int best = -1;
+                for (int m = 0; m < size; m++)
+                    if (!sent[m] && (best < 0 || costs[m] < costs[best])) best = m;
+                sent[best] = true;
+                outbox.offer(new Migrant(new CompactSolution(population[best]), costs[best]));
+            }
+        }
+
+        private int best() {
+            int best = 0;
+            for (int m = 1; m < size; m++)
+                if (costs[m] < costs[best]) best = m;
+            return best;
+        }
+
+        private int worst() {
+            int worst = 0;
+            for (int m = 1; m < size; m++)
+                if (costs[m] > costs[worst]) worst = m;
+            return worst;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package itc2019.solvers;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.evaluation.Evaluator;
+import itc2019.evaluation.IncrementalEvaluator;
+import itc2019.evaluation.PenaltyBreakdown;
+import itc2019.preprocessing.ClassDomains;
+
+import java.util.SplittableRandom;
+
+/**
+ * <p>This class represents what the solvers share: the times and rooms they may give every class, drawn from the
+ * (reduced) domains of the classes, and the cost they minimize, hardWeight * (hard violations + room
+ * conflicts) + total penalty. A class with an empty domain may get any of its possible times and rooms, as every
+ * assignment of it violates something anyway.</p>
+ * <p>A search space is immutable once constructed, so the threads of a solver share a single one.</p>
+ */
+final class SearchSpace {
+    private final ProblemInstance instance;
+    private final ClassDomains domains;
+    private final long hardWeight;
+    private final int[][] timeOptions, roomOptions; // The allowed options of each class
+
+    /**
+     * Constructs the search space of the given domains.
+     *
+     * @param instance   The problem instance of the domains.
+     * @param domains    The (reduced) domains of the classes, which must not be changed while this space is used.
+     * @param hardWeight The weight of a hard constraint violation or room conflict relative to the total penalty.
+     */
+    SearchSpace(ProblemInstance instance, ClassDomains domains, long hardWeight) {
+        this.instance = instance;
+        this.domains = domains;
+        this.hardWeight = hardWeight;
+        Class[] classes = instance.classes();
+        timeOptions = new int[classes.length][];
+        roomOptions = new int[classes.length][];
+        for (int c = 0; c < classes.length; c++) {
+            if (domains.isEmpty(c)) {
+                timeOptions[c] = allOptions(classes[c].possibleTimes().length);
+                if (classes[c].possibleRooms() != null) roomOptions[c] = allOptions(classes[c].possibleRooms().length);
+            } else {
+                timeOptions[c] = domains.getTimeOptions(c);
+                roomOptions[c] = domains.getRoomOptions(c);
+            }
+        }
+    }
+
+    private static int[] allOptions(int count) {
+        int[] options = new int[count];
+        for (int i = 0; i < count; i++)
+            options[i] = i;
+        return options;
+    }
+
+    /**
+     * Gets the domains of this space.
+     *
+     * @return The (reduced) domains of the classes.
+     */
+    ClassDomains getDomains() {
+        return domains;
+    }
+
+    /**
+     * Gets the allowed time options of a class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return The allowed time options, in ascending order. <strong>Do not change the returned array.</strong>
+     */
+    int[] getTimeOptions(int classIndex) {
+        return timeOptions[classIndex];
+    }
+
+    /**
+     * Gets the allowed room options of a class.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @return The allowed room options, in ascending order; null if the class does not need a room. <strong>Do not
+     * change the returned array.</strong>
+     */
+    int[] getRoomOptions(int classIndex) {
+        return roomOptions[classIndex];
+    }
+
+    /**
+     * Checks if a class may get the given time and room options together.
+     *
+     * @param classIndex The index (id - 1) of the class.
+     * @param timeOption The time option.
+     * @param roomOption The room option.
+     * @return true if the pair is allowed; false otherwise.
+     */
+    boolean isAllowed(int classIndex, int timeOption, int roomOption) {
+        return domains.isEmpty(classIndex) || domains.isAllowed(classIndex, timeOption, roomOption);
+    }
+
+    /**
+     * Picks a random room option of the given class that is allowed together with the given time option.
+     *
+     * @param aClass     A class that needs a room.
+     * @param timeOption The time option.
+     * @param random     The random generator.
+     * @return The picked room option; -1 if no room option is allowed with the time option.
+     */
+    int randomRoom(Class aClass, int timeOption, SplittableRandom random) {
+        if (domains.isEmpty(aClass.id() - 1)) return random.nextInt(aClass.possibleRooms().length);
+        return InitialSolution.randomRoom(aClass, domains, timeOption, random);
+    }
+
+    /**
+     * Gets the cost of the timetable of the given evaluator.
+     *
+     * @param evaluator The incremental evaluator of the timetable.
+     * @return hardWeight * (hard violations + room conflicts) + total penalty.
+     */
+    long cost(IncrementalEvaluator evaluator) {
+        return hardWeight * (evaluator.getHardViolations() + evaluator.getTimetable().getRoomOccupancy().conflictCount())
+                + evaluator.getTotalPenalty();
+    }
+
+    /**
+     * Evaluates the given timetable from scratch and gets its cost, for the solvers that do not move single events.
+     *
+     * @param timetable A fully scheduled timetable of the problem instance of this space.
+     * @return hardWeight * (hard violations + room conflicts) + total penalty.
+     */
+    long cost(Timetable timetable) {
+        PenaltyBreakdown breakdown = Evaluator.evaluate(instance, timetable);
+        return hardWeight * (breakdown.hardViolations() + breakdown.roomConflicts())
+                + breakdown.totalPenalty(instance);
+    }
+
+    /**
+     * Calculates the change of the cost if the given event is moved to the given time and room options.
+     *
+     * @param evaluator  The incremental evaluator of the timetable of the event.
+     * @param event      The event to move.
+     * @param timeOption The new time option of the event.
+     * @param roomOption The new room option of the event (-1 if its class does not need a room).
+     * @return The change of the cost.
+     */
+    long delta(IncrementalEvaluator evaluator, Event event, int timeOption, int roomOption) {
+        long penaltyDelta = evaluator.evaluate(event, timeOption, roomOption);
+        return hardWeight * (evaluator.getLastHardDelta() + roomDelta(evaluator, event, timeOption, roomOption)) + penaltyDelta;
+    }
+
+    /**
+     * Moves the given event to the given time and room options and updates the given evaluator.
+     *
+     * @param evaluator  The incremental evaluator of the timetable of the event.
+     * @param event      The event to move.
+     * @param timeOption The new time option of the event.
+     * @param roomOption The new room option of the event (-1 if its class does not need a room).
+     * @return The change of the cost.
+     */
+    long apply(IncrementalEvaluator evaluator, Event event, int timeOption, int roomOption) {
+        int roomDelta = roomDelta(evaluator, event, timeOption, roomOption);
+        long penaltyDelta = evaluator.apply(event, timeOption, roomOption);
+        return hardWeight * (evaluator.getLastHardDelta() + roomDelta) + penaltyDelta;
+    }
+
+    private static int roomDelta(IncrementalEvaluator evaluator, Event event, int timeOption, int roomOption) {
+        if (roomOption < 0) return 0;
+        Class aClass = event.getTheClass();
+        RoomOccupancy occupancy = evaluator.getTimetable().getRoomOccupancy();
+        return roomConflicts(occupancy, event, aClass.possibleTimes()[timeOption], aClass.possibleRooms()[roomOption])
+                - roomConflicts(occupancy, event, event.getTimeAssignment(), event.getRoomAssignment());
+    }
+
+    private static int roomConflicts(RoomOccupancy occupancy, Event event, TimeAssignment time, RoomAssignment room) {
+        return occupancy.countClashes(room.room(), time.time(), event) + (occupancy.isAvailable(room.room(), time.time()) ? 0 : 1);
+    }
+}
@@ -0,0 +1,397 @@
+package itc2019.solvers;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.evaluation.Evaluator;
+import itc2019.evaluation.IncrementalEvaluator;
+import itc2019.preprocessing.ClassDomains;
+import itc2019.preprocessing.Propagator;
+import itc2019.preprocessing.UnaryPruning;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>This class implements a multi-threaded simulated annealing for the ITC 2019. It runs several independent annealing
+ * chains, one per thread, each with its own timetable, {@link IncrementalEvaluator} and random generator split from a
+ * single seeded {@link SplittableRandom}, so that the chains share no mutable state and the throughput grows linearly
+ * with the number of cores. The best timetable of all the chains is returned when the wall-clock time limit is
+ * reached.</p>
+ * <p>A move changes either the time or the room of a random event to another one of the possible times or rooms of its
+ * class. The annealing minimizes hardWeight * (hard violations + room conflicts) + total penalty, with a temperature
+ * that decreases geometrically with the elapsed time from an initial temperature estimated from random moves down to
+ * 1/10000 of it. The students stay in the classes chosen by {@link InitialSolution}, so moves to rooms that are too
+ * small for the students of the event are skipped.</p>
+ * <p>The times and rooms are drawn from the reduced domains of the classes (by default, the {@link UnaryPruning} of the
+ * problem instance, made arc consistent by a {@link Propagator}), so the chains never spend moves on (time, room) pairs
+ * that cannot be feasible. A time change whose pair with the current room is not allowed moves the event to a random
+ * allowed room of the new time as well. Every chain constructs its initial timetable with propagation (see
+ * {@link InitialSolution#create(ProblemInstance, Propagator, SplittableRandom)}).</p>
+ * <p>A long run can be checkpointed and resumed after the process is killed (see
+ * {@link #solve(Duration, Path, Duration)} and {@link Checkpoint}).</p>
+ * <p><strong>Precompile the compatibility tables of the problem instance (if desired) before solving, as the problem
+ * instance is shared between the threads.</strong></p>
+ */
+public class SimulatedAnnealing {
+    private static final int SAMPLE_MOVES = 200; // The number of random moves used to estimate the initial temperature
+    private static final int CHECK_INTERVAL = 256; // The number of iterations between two checks of the clock
+    private static final double FINAL_TEMPERATURE_RATIO = 1e-4;
+    static final long PROPAGATION_BUDGET = 64L << 20; // The memory budget of the compatibility tables in bytes
+    private final ProblemInstance instance;
+    private final int chainCount;
+    private final long seed;
+    private final long hardWeight;
+    private final SearchSpace space; // The allowed options of each class and the annealed cost, shared by the chains
+    private final Propagator propagator; // Copied by every chain to construct its initial timetable
+
+    /**
+     * Constructs a simulated annealing with one chain per available processor and a hard constraint weight of 10000.
+     *
+     * @param instance The problem instance to solve.
+     * @param seed     The seed of the random generators of the chains.
+     */
+    public SimulatedAnnealing(ProblemInstance instance, long seed) {
+        this(instance, Runtime.getRuntime().availableProcessors(), seed, 10_000);
+    }
+
+    /**
+     * Constructs a simulated annealing.
+     *
+     * @param instance   The problem instance to solve.
+     * @param chainCount The number of independent chains, each run by its own thread.
+     * @param seed       The seed of the random generators of the chains.
+     * @param hardWeight The weight of a hard constraint violation or room conflict relative to the total penalty.
+     * @throws IllegalArgumentException If the chain count or the hard weight is not positive.
+     */
+    public SimulatedAnnealing(ProblemInstance instance, int chainCount, long seed, long hardWeight) throws IllegalArgumentException {
+        this(instance, chainCount, seed, hardWeight, reduce(instance));
+    }
+
+    /**
+     * Prunes the domains of the classes of the given problem instance and propagates its hard paired constraints over
+     * them. The propagation is discarded if it wipes out a domain, as the pruned domains then serve the search better.
+     */
+    static ClassDomains reduce(ProblemInstance instance) {
+        ClassDomains domains = UnaryPruning.prune(instance), propagated = new ClassDomains(domains);
+        return new Propagator(instance, propagated, PROPAGATION_BUDGET).propagate() ? propagated : domains;
+    }
+
+    /**
+     * Constructs a simulated annealing that searches the given domains of the classes.
+     *
+     * @param instance   The problem instance to solve.
+     * @param chainCount The number of independent chains, each run by its own thread.
+     * @param seed       The seed of the random generators of the chains.
+     * @param hardWeight The weight of a hard constraint violation or room conflict relative to the total penalty.
+     * @param domains    The (reduced) domains of the classes, which must not be changed while solving. The classes with
+     *                   an empty domain are searched over all their possible times and rooms.
+     * @throws IllegalArgumentException If the chain count or the hard weight is not positive.
+     */
+    public SimulatedAnnealing(ProblemInstance instance, int chainCount, long seed, long hardWeight, ClassDomains domains) throws IllegalArgumentException {
+        if (chainCount < 1)
+            throw new IllegalArgumentException("The number of chains must be positive!");
+        if (hardWeight < 1)
+            throw new IllegalArgumentException("The hard constraint weight must be positive!");
+        this.instance = instance;
+        this.chainCount = chainCount;
+        this.seed = seed;
+        this.hardWeight = hardWeight;
+        space = new SearchSpace(instance, domains, hardWeight);
+        propagator = new Propagator(instance, domains, PROPAGATION_BUDGET);
+    }
+
+    /**
+     * Runs the chains until the given time limit is reached and returns the best timetable found by any of them.
+     *
+     * @param timeLimit The wall-clock time limit of the run, including the creation of the initial timetables.
+     * @return The best timetable found and its evaluation.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the chains.
+     * @throws ExecutionException   If a chain fails.
+     */
+    public SolverResult solve(Duration timeLimit) throws InterruptedException, ExecutionException {
+        return run(timeLimit, null, null);
+    }
+
+    /**
+     * Runs the chains like {@link #solve(Duration)}, but resumes the run saved in the given checkpoint file if it
+     * exists, and saves the state of the chains to it every given interval and at the end of the run (see
+     * {@link Checkpoint}). The checkpoints are written by a background thread from copies of the states, so the chains
+     * only stop for the copy. A resumed run continues the temperature schedule of every chain from where it was saved
+     * to its end over the given time limit, so resume with the same problem instance, chain count and hard weight.
+     *
+     * @param timeLimit          The wall-clock time limit of this (part of the) run.
+     * @param checkpointFile     The path of the checkpoint file.
+     * @param checkpointInterval The time between two checkpoints.
+     * @return The best timetable found and its evaluation.
+     * @throws IOException              If the checkpoint file cannot be read or is of another run, or if the last
+     *                                  checkpoint cannot be written (failed periodic checkpoints are only reported).
+     * @throws IllegalArgumentException If the checkpoint interval is not positive.
+     * @throws InterruptedException     If the calling thread is interrupted while waiting for the chains.
+     * @throws ExecutionException       If a chain fails.
+     */
+    public SolverResult solve(Duration timeLimit, Path checkpointFile, Duration checkpointInterval) throws IOException,
+            IllegalArgumentException, InterruptedException, ExecutionException {
+        if (checkpointInterval.isNegative() || checkpointInterval.isZero())
+            throw new IllegalArgumentException("The checkpoint interval must be positive!");
+        Checkpoint.ChainState[] resumed = null;
+        if (Files.exists(checkpointFile)) {
+            resumed = Checkpoint.read(instance, checkpointFile);
+            if (resumed.length != chainCount)
+                throw new IOException(checkpointFile + " is a checkpoint of a run with " + resumed.length + " chains!");
+        }
+        CheckpointWriter writer = new CheckpointWriter(checkpointFile, checkpointInterval, resumed);
+        SolverResult result;
+        try {
+            result = run(timeLimit, resumed, writer);
+        } finally {
+            writer.shutdown();
+        }
+        writer.write();
+        return result;
+    }
+
+    private SolverResult run(Duration timeLimit, Checkpoint.ChainState[] resumed, CheckpointWriter writer)
+            throws InterruptedException, ExecutionException {
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Chain> chains = new ArrayList<>(chainCount);
+        for (int i = 0; i < chainCount; i++)
+            chains.add(new Chain(i, random.split(), deadline, resumed == null ? null : resumed[i], writer));
+        ExecutorService executor = Executors.newFixedThreadPool(chainCount);
+        try {
+            Chain best = null;
+            long iterations = 0;
+            for (Future<Chain> future : executor.invokeAll(chains)) {
+                Chain chain = future.get();
+                iterations += chain.iterations;
+                if (best == null || chain.bestCost < best.bestCost) best = chain;
+            }
+            Timetable timetable = best.restoreBest();
+            return new SolverResult(timetable, Evaluator.evaluate(instance, timetable), iterations);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The writer of the checkpoints of a run. Every chain publishes a copy of its state when its checkpoint is due,
+     * and the latest states of all the chains are written by a single background thread, at most one write being
+     * queued at any time.
+     */
+    private class CheckpointWriter {
+        private final Path file;
+        private final long intervalNanos;
+        private final AtomicReferenceArray<Checkpoint.ChainState> states;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private CheckpointWriter(Path file, Duration interval, Checkpoint.ChainState[] resumed) {
+            this.file = file;
+            intervalNanos = interval.toNanos();
+            states = resumed == null ? new AtomicReferenceArray<>(chainCount) : new AtomicReferenceArray<>(resumed);
+        }
+
+        private void publish(int chain, Checkpoint.ChainState state) {
+            states.set(chain, state);
+            if (pending.compareAndSet(false, true)) executor.execute(this::writeQuietly);
+        }
+
+        private void writeQuietly() {
+            pending.set(false);
+            try {
+                write();
+            } catch (IOException e) { // A failed checkpoint must not stop the run
+                System.err.println("The checkpoint could not be written to " + file + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Writes the latest states of the chains, unless a chain has not published any state yet.
+         */
+        private synchronized void write() throws IOException {
+            Checkpoint.ChainState[] snapshot = new Checkpoint.ChainState[chainCount];
+            for (int i = 0; i < chainCount; i++)
+                if ((snapshot[i] = states.get(i)) == null) return;
+            Checkpoint.write(instance, snapshot, file);
+        }
+
+        private void shutdown() throws InterruptedException {
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                System.err.println("The last periodic checkpoint to " + file + " is still being written!");
+        }
+    }
+
+    /**
+     * A single annealing chain.
+     */
+    private class Chain implements Callable<Chain> {
+        private final int index;
+        private final long deadline;
+        private final Checkpoint.ChainState resumed; // The state to resume from; null to start from scratch
+        private final CheckpointWriter checkpointWriter; // null if the run is not checkpointed
+        private SplittableRandom random;
+        private Timetable timetable;
+        private Event[] events;
+        private IncrementalEvaluator evaluator;
+        private int newTimeOption, newRoomOption; // The move picked by randomNeighbor
+        private int[] bestTimes, bestRooms; // The time and room options of the events in the best timetable
+        private long cost, bestCost, iterations;
+        private double initialTemperature, progress;
+
+        private Chain(int index, SplittableRandom random, long deadline, Checkpoint.ChainState resumed,
+                      CheckpointWriter checkpointWriter) {
+            this.index = index;
+            this.random = random;
+            this.deadline = deadline;
+            this.resumed = resumed;
+            this.checkpointWriter = checkpointWriter;
+        }
+
+        @Override
+        public Chain call() {
+            if (resumed == null)
+                timetable = InitialSolution.create(instance, new Propagator(propagator, new ClassDomains(space.getDomains())), random);
+            else {
+                timetable = resumed.current().toTimetable(instance);
+                random = new SplittableRandom(resumed.seed());
+                iterations = resumed.iterations();
+            }
+            events = timetable.getEvents();
+            evaluator = new IncrementalEvaluator(instance, timetable); // The caches are rebuilt rather than stored
+            cost = space.cost(evaluator);
+            if (resumed == null) {
+                bestTimes = new int[events.length];
+                bestRooms = new int[events.length];
+                saveBest();
+                initialTemperature = initialTemperature();
+            } else {
+                bestTimes = resumed.bestTimes().clone();
+                bestRooms = resumed.bestRooms().clone();
+                bestCost = resumed.bestCost();
+                initialTemperature = resumed.initialTemperature();
+                progress = resumed.progress();
+            }
+            long start = System.nanoTime();
+            long nextCheckpoint = checkpointWriter == null ? Long.MAX_VALUE : start + checkpointWriter.intervalNanos;
+            double startProgress = progress;
+            double temperature = initialTemperature * Math.pow(FINAL_TEMPERATURE_RATIO, progress);
+            while (true) {
+                if (iterations % CHECK_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline || Thread.currentThread().isInterrupted()) break;
+                    progress = startProgress + (1 - startProgress) * (now - start) / (deadline - start);
+                    temperature = initialTemperature * Math.pow(FINAL_TEMPERATURE_RATIO, progress);
+                    if (now >= nextCheckpoint) {
+                        checkpoint();
+                        nextCheckpoint = now + checkpointWriter.intervalNanos;
+                    }
+                }
+                iterations++;
+                Event event = events[random.nextInt(events.length)];
+                if (!randomNeighbor(event)) continue;
+                long delta = space.delta(evaluator, event, newTimeOption, newRoomOption);
+                if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                    evaluator.apply(event, newTimeOption, newRoomOption);
+                    cost += delta;
+                    if (cost < bestCost) saveBest();
+                }
+            }
+            if (checkpointWriter != null) checkpoint();
+            return this;
+        }
+
+        /**
+         * Publishes a copy of the state of this chain to the checkpoint writer. The random generator is reseeded from
+         * itself, as its state cannot be read, so that the stored seed continues the search exactly from here.
+         */
+        private void checkpoint() {
+            long seed = random.nextLong();
+            random = new SplittableRandom(seed);
+            checkpointWriter.publish(index, new Checkpoint.ChainState(new CompactSolution(instance, timetable),
+                    bestTimes.clone(), bestRooms.clone(), cost, bestCost, iterations, seed, initialTemperature, progress));
+        }
+
+        /**
+         * Picks a random time or room change of the given event into newTimeOption and newRoomOption.
+         *
+         * @return true if a valid move was found; false otherwise.
+         */
+        private boolean randomNeighbor(Event event) {
+            Class aClass = event.getTheClass();
+            int classIndex = aClass.id() - 1;
+            newTimeOption = event.getTimeOption();
+            newRoomOption = event.getRoomOption();
+            int[] times = space.getTimeOptions(classIndex), rooms = space.getRoomOptions(classIndex);
+            boolean changeRoom = rooms != null && rooms.length > 1 && (times.length == 1 || random.nextBoolean());
+            if (changeRoom) {
+                int option = rooms[random.nextInt(rooms.length)];
+                if (option == event.getRoomOption() || !space.isAllowed(classIndex, event.getTimeOption(), option)) return false;
+                newRoomOption = option;
+            } else {
+                if (times.length == 0) return false;
+                int option = times[random.nextInt(times.length)];
+                if (option == event.getTimeOption()) return false;
+                newTimeOption = option;
+                if (rooms != null && !space.isAllowed(classIndex, option, event.getRoomOption())) {
+                    int roomOption = space.randomRoom(aClass, option, random);
+                    if (roomOption < 0) return false;
+                    newRoomOption = roomOption;
+                }
+            }
+            return newRoomOption < 0 || aClass.possibleRooms()[newRoomOption].room().capacity() >= event.getStudentCount();
+        }
+
+        /**
+         * Estimates the initial temperature as the average cost increase of random moves, so that such a move is
+         * initially accepted with a probability of about 1/e.
+         */
+        private double initialTemperature() {
+            long sum = 0;
+            int count = 0;
+            for (int i = 0; i < SAMPLE_MOVES; i++) {
+                Event event = events[random.nextInt(events.length)];
+                if (!randomNeighbor(event)) continue;
+                long delta = space.delta(evaluator, event, newTimeOption, newRoomOption);
+                if (delta > 0) {
+                    sum += Math.min(delta, hardWeight); // Hard violations must not dominate the estimate
+                    count++;
+                }
+            }
+            return count == 0 ? 1 : Math.max(1, (double) sum / count);
+        }
+
+        private void saveBest() {
+            bestCost = cost;
+            for (int i = 0; i < events.length; i++) {
+                bestTimes[i] = events[i].getTimeOption();
+                bestRooms[i] = events[i].getRoomOption();
+            }
+        }
+
+        /**
+         * Sets the events of the timetable of this chain back to the best timetable of the chain.
+         *
+         * @return The timetable of this chain.
+         */
+        private Timetable restoreBest() {
+            for (int i = 0; i < events.length; i++) {
+                events[i].setTimeOption(bestTimes[i]);
+                if (bestRooms[i] >= 0) events[i].setRoomOption(bestRooms[i]);
+            }
+            return timetable;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package itc2019.solvers;
+
+import itc2019.dataset.Timetable;
+import itc2019.evaluation.PenaltyBreakdown;
+
+/**
+ * <p>This class represents the outcome of a run of a solver: the best timetable (candidate solution) found and its
+ * evaluation.</p>
+ *
+ * @param timetable  The best timetable found.
+ * @param breakdown  The penalty breakdown of the best timetable.
+ * @param iterations The total number of iterations (evaluated moves) of all the threads of the solver.
+ */
+public record SolverResult(Timetable timetable, PenaltyBreakdown breakdown, long iterations) {
+    /**
+     * Checks if the best timetable satisfies all the hard constraints.
+     *
+     * @return true if there is no hard constraint violation and no room conflict; false otherwise.
+     */
+    public boolean isFeasible() {
+        return breakdown.isFeasible();
+    }
+}
@@ -0,0 +1,97 @@
+package itc2019.solvers;
+
+import utils.IntIntHashMap;
+
+/**
+ * <p>This class implements the tabu list of a {@link TabuSearch}: a set of move attributes (e.g. "class c at time
+ * option t") that stay tabu for a fixed number of iterations (the tenure). The attributes are the keys of an
+ * open-addressing {@link IntIntHashMap} whose values are their expiry iterations, and a ring buffer holds the added
+ * attributes in the order they expire, so that the expired ones are removed from the head of the ring. Checking,
+ * adding and expiring an attribute thus take O(1) time and create no objects, whatever the tenure, and the map only
+ * holds the attributes that are currently tabu.</p>
+ * <p>The iterations are ints that may overflow: they are only compared through their differences, which is exact as
+ * long as the tenure is less than 2^30.</p>
+ */
+class TabuList {
+    private final int tenure;
+    private final IntIntHashMap expiries; // The expiry iteration of every tabu attribute
+    private int[] ringAttributes, ringExpiries; // The added attributes, in the order they were added (and expire)
+    private int head, size;
+
+    /**
+     * Constructs an empty tabu list.
+     *
+     * @param tenure The number of iterations an added attribute stays tabu.
+     * @throws IllegalArgumentException If the tenure is not positive or too large.
+     */
+    TabuList(int tenure) throws IllegalArgumentException {
+        if (tenure < 1 || tenure >= 1 << 30) throw new IllegalArgumentException("The tabu tenure must be in [1, 2^30)!");
+        this.tenure = tenure;
+        int capacity = Integer.highestOneBit(Math.min(tenure, 1 << 16) * 2 - 1) << 1;
+        expiries = new IntIntHashMap(capacity);
+        ringAttributes = new int[capacity];
+        ringExpiries = new int[capacity];
+    }
+
+    /**
+     * Checks if the given attribute is tabu. Call {@link #expire(int)} first in every iteration.
+     *
+     * @param attribute A non-negative attribute.
+     * @return true if the attribute is tabu; false otherwise.
+     */
+    boolean isTabu(int attribute) {
+        return expiries.containsKey(attribute);
+    }
+
+    /**
+     * Makes the given attribute tabu for the tenure from the given iteration on (again, if it already is).
+     *
+     * @param attribute A non-negative attribute.
+     * @param iteration The current iteration.
+     */
+    void add(int attribute, int iteration) {
+        int expiry = iteration + tenure;
+        expiries.put(attribute, expiry);
+        if (size == ringAttributes.length) grow();
+        int tail = (head + size++) & (ringAttributes.length - 1);
+        ringAttributes[tail] = attribute;
+        ringExpiries[tail] = expiry;
+    }
+
+    private void grow() { // Unrolling the ring into arrays of twice the size
+        int capacity = ringAttributes.length;
+        int[] attributes = new int[capacity * 2], attributeExpiries = new int[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            attributes[i] = ringAttributes[(head + i) & (capacity - 1)];
+            attributeExpiries[i] = ringExpiries[(head + i) & (capacity - 1)];
+        }
+        ringAttributes = attributes;
+        ringExpiries = attributeExpiries;
+        head = 0;
+    }
+
+    /**
+     * Removes the attributes whose tenure is over at the given iteration.
+     *
+     * @param iteration The current iteration.
+     */
+    void expire(int iteration) {
+        while (size > 0 && ringExpiries[head] - iteration <= 0) {
+            int attribute = ringAttributes[head];
+            // The attribute may have been added again later, in which case it is still tabu
+            if (expiries.get(attribute, ringExpiries[head] + 1) == ringExpiries[head])
+                expiries.remove(attribute, 0);
+            head = (head + 1) & (ringAttributes.length - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Gets the number of tabu attributes.
+     *
+     * @return The number of attributes that are currently tabu.
+     */
+    int size() {
+        return expiries.size();
+    }
+}
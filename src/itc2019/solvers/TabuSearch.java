@@ -0,0 +1,195 @@
+package itc2019.solvers;
+
+import itc2019.dataset.*;
+import itc2019.dataset.Class;
+import itc2019.evaluation.Evaluator;
+import itc2019.evaluation.IncrementalEvaluator;
+import itc2019.preprocessing.ClassDomains;
+import itc2019.preprocessing.Propagator;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * <p>This class implements a tabu search for the ITC 2019. In every iteration, it samples a bounded candidate list of
+ * random moves, each changing the time, the room, or both of a random event, evaluates them with an
+ * {@link IncrementalEvaluator}, and applies the best admissible one, even if it makes the timetable worse. A move is
+ * not admissible if it gives its class back a time or room that the class left less than tenure iterations ago
+ * (see {@link TabuList}), unless it leads to a timetable better than the best one found so far (aspiration by best
+ * penalty). The search minimizes hardWeight * (hard violations + room conflicts) + total penalty, like
+ * {@link SimulatedAnnealing}, and draws the times and rooms from the same reduced domains of the classes.</p>
+ * <p>The tabu list is a primitive hash of (class, option) attributes, so the cost of an iteration only depends on the
+ * size of the candidate list, and not on the tenure.</p>
+ */
+public class TabuSearch {
+    private static final int CHECK_INTERVAL = 16; // The number of iterations between two checks of the clock
+    private final ProblemInstance instance;
+    private final long seed;
+    private final int tenure, candidateCount;
+    private final SearchSpace space; // The allowed options of each class and the searched cost
+    private final Propagator propagator;
+    private final int[] timeAttributes, roomAttributes; // The first attribute of the times and rooms of each class
+    // The move sampled by sampleMove and the best candidate of the iteration, as an event and its new options
+    private Event moveEvent, bestEvent;
+    private int moveTimeOption, moveRoomOption, bestTimeOption, bestRoomOption;
+
+    /**
+     * Constructs a tabu search with a tenure of 20 iterations, 100 candidates per iteration and a hard constraint
+     * weight of 10000.
+     *
+     * @param instance The problem instance to solve.
+     * @param seed     The seed of the random generator.
+     */
+    public TabuSearch(ProblemInstance instance, long seed) {
+        this(instance, seed, 20, 100, 10_000);
+    }
+
+    /**
+     * Constructs a tabu search over the domains of the classes reduced by {@link itc2019.preprocessing.UnaryPruning}
+     * and {@link Propagator}.
+     *
+     * @param instance       The problem instance to solve.
+     * @param seed           The seed of the random generator.
+     * @param tenure         The number of iterations a class cannot get back a time or room it left.
+     * @param candidateCount The number of moves sampled and evaluated in every iteration.
+     * @param hardWeight     The weight of a hard constraint violation or room conflict relative to the total penalty.
+     * @throws IllegalArgumentException If the tenure, the candidate count or the hard weight is not positive.
+     */
+    public TabuSearch(ProblemInstance instance, long seed, int tenure, int candidateCount, long hardWeight) throws IllegalArgumentException {
+        this(instance, seed, tenure, candidateCount, hardWeight, SimulatedAnnealing.reduce(instance));
+    }
+
+    /**
+     * Constructs a tabu search that searches the given domains of the classes.
+     *
+     * @param instance       The problem instance to solve.
+     * @param seed           The seed of the random generator.
+     * @param tenure         The number of iterations a class cannot get back a time or room it left.
+     * @param candidateCount The number of moves sampled and evaluated in every iteration.
+     * @param hardWeight     The weight of a hard constraint violation or room conflict relative to the total penalty.
+     * @param domains        The (reduced) domains of the classes, which must not be changed while solving. The classes
+     *                       with an empty domain are searched over all their possible times and rooms.
+     * @throws IllegalArgumentException If the tenure, the candidate count or the hard weight is not positive.
+     */
+    public TabuSearch(ProblemInstance instance, long seed, int tenure, int candidateCount, long hardWeight,
+                      ClassDomains domains) throws IllegalArgumentException {
+        if (tenure < 1) throw new IllegalArgumentException("The tabu tenure must be positive!");
+        if (candidateCount < 1) throw new IllegalArgumentException("The number of candidates must be positive!");
+        if (hardWeight < 1) throw new IllegalArgumentException("The hard constraint weight must be positive!");
+        this.instance = instance;
+        this.seed = seed;
+        this.tenure = tenure;
+        this.candidateCount = candidateCount;
+        space = new SearchSpace(instance, domains, hardWeight);
+        propagator = new Propagator(instance, domains, SimulatedAnnealing.PROPAGATION_BUDGET);
+        Class[] classes = instance.classes();
+        timeAttributes = new int[classes.length];
+        roomAttributes = new int[classes.length];
+        int attributes = 0;
+        for (int c = 0; c < classes.length; c++) {
+            timeAttributes[c] = attributes;
+            attributes += classes[c].possibleTimes().length;
+            roomAttributes[c] = attributes;
+            if (classes[c].possibleRooms() != null) attributes += classes[c].possibleRooms().length;
+        }
+    }
+
+    /**
+     * Runs the search until the given time limit is reached and returns the best timetable found.
+     *
+     * @param timeLimit The wall-clock time limit of the run, including the creation of the initial timetable.
+     * @return The best timetable found, its evaluation, and the number of evaluated moves.
+     */
+    public SolverResult solve(Duration timeLimit) {
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+        SplittableRandom random = new SplittableRandom(seed);
+        Timetable timetable = InitialSolution.create(instance, new Propagator(propagator, new ClassDomains(space.getDomains())), random);
+        Event[] events = timetable.getEvents();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(instance, timetable);
+        TabuList tabuList = new TabuList(tenure);
+        long cost = space.cost(evaluator);
+        long bestCost = cost, evaluatedMoves = 0;
+        int[] bestTimes = new int[events.length], bestRooms = new int[events.length];
+        saveBest(events, bestTimes, bestRooms);
+        for (int iteration = 0; ; iteration++) {
+            if (iteration % CHECK_INTERVAL == 0
+                    && (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted())) break;
+            tabuList.expire(iteration);
+            long bestDelta = Long.MAX_VALUE;
+            for (int k = 0; k < candidateCount; k++) {
+                if (!sampleMove(events, random)) continue;
+                evaluatedMoves++;
+                long delta = space.delta(evaluator, moveEvent, moveTimeOption, moveRoomOption);
+                if (delta >= bestDelta || isTabu(tabuList) && cost + delta >= bestCost) continue;
+                bestDelta = delta;
+                bestEvent = moveEvent;
+                bestTimeOption = moveTimeOption;
+                bestRoomOption = moveRoomOption;
+            }
+            if (bestDelta == Long.MAX_VALUE) continue; // No admissible candidate was sampled
+            int classIndex = bestEvent.getTheClass().id() - 1;
+            if (bestTimeOption != bestEvent.getTimeOption())
+                tabuList.add(timeAttributes[classIndex] + bestEvent.getTimeOption(), iteration);
+            if (bestRoomOption != bestEvent.getRoomOption())
+                tabuList.add(roomAttributes[classIndex] + bestEvent.getRoomOption(), iteration);
+            evaluator.apply(bestEvent, bestTimeOption, bestRoomOption);
+            cost += bestDelta;
+            if (cost < bestCost) {
+                bestCost = cost;
+                saveBest(events, bestTimes, bestRooms);
+            }
+        }
+        for (int i = 0; i < events.length; i++) {
+            events[i].setTimeOption(bestTimes[i]);
+            if (bestRooms[i] >= 0) events[i].setRoomOption(bestRooms[i]);
+        }
+        return new SolverResult(timetable, Evaluator.evaluate(instance, timetable), evaluatedMoves);
+    }
+
+    private static void saveBest(Event[] events, int[] bestTimes, int[] bestRooms) {
+        for (int i = 0; i < events.length; i++) {
+            bestTimes[i] = events[i].getTimeOption();
+            bestRooms[i] = events[i].getRoomOption();
+        }
+    }
+
+    /**
+     * Samples a random move of a random event into moveEvent, moveTimeOption and moveRoomOption: a new time (with a
+     * new room if the current room is not allowed with it), a new room, or both.
+     *
+     * @return true if a valid move was sampled; false otherwise.
+     */
+    private boolean sampleMove(Event[] events, SplittableRandom random) {
+        Event event = events[random.nextInt(events.length)];
+        Class aClass = event.getTheClass();
+        int classIndex = aClass.id() - 1;
+        int[] times = space.getTimeOptions(classIndex), rooms = space.getRoomOptions(classIndex);
+        int roomCount = rooms == null ? 0 : rooms.length;
+        int kind = times.length < 2 ? 1 : roomCount < 2 ? 0 : random.nextInt(3); // 0: time, 1: room, 2: both
+        if (kind == 1 && roomCount < 2) return false;
+        moveEvent = event;
+        moveTimeOption = event.getTimeOption();
+        moveRoomOption = event.getRoomOption();
+        if (kind != 1) {
+            moveTimeOption = times[random.nextInt(times.length)];
+            if (moveTimeOption == event.getTimeOption()) return false;
+            if (kind == 2 || roomCount > 0 && !space.isAllowed(classIndex, moveTimeOption, moveRoomOption)) {
+                moveRoomOption = space.randomRoom(aClass, moveTimeOption, random);
+                if (moveRoomOption < 0) return false;
+            }
+        } else {
+            moveRoomOption = space.randomRoom(aClass, moveTimeOption, random);
+            if (moveRoomOption < 0 || moveRoomOption == event.getRoomOption()) return false;
+        }
+        return moveRoomOption < 0 || aClass.possibleRooms()[moveRoomOption].room().capacity() >= event.getStudentCount();
+    }
+
+    /**
+     * Checks if the sampled move gives the class of its event back a tabu time or room.
+     */
+    private boolean isTabu(TabuList tabuList) {
+        int classIndex = moveEvent.getTheClass().id() - 1;
+        return moveTimeOption != moveEvent.getTimeOption() && tabuList.isTabu(timeAttributes[classIndex] + moveTimeOption)
+                || moveRoomOption != moveEvent.getRoomOption() && tabuList.isTabu(roomAttributes[classIndex] + moveRoomOption);
+    }
+}
@@ -0,0 +1,151 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * <p>This class implements a hash map from int keys to int values with open addressing (linear probing) over primitive
+ * arrays, so that no object is created per entry and the get, put and remove operations take O(1) expected time.
+ * Removed entries are deleted by shifting the following entries of their probe sequence back, so the map never fills
+ * up with tombstones.</p>
+ * <p>The key {@link Integer#MIN_VALUE} is reserved to mark the empty slots and cannot be stored.</p>
+ */
+public class IntIntHashMap {
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private int[] keys, values;
+    private int size, mask;
+
+    /**
+     * Constructs an empty map.
+     */
+    public IntIntHashMap() {
+        this(8);
+    }
+
+    /**
+     * Constructs an empty map with room for the given number of entries before it grows.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    public IntIntHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9; // Fibonacci hashing spreads consecutive ids over the table
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Gets the value of the given key.
+     *
+     * @param key          The key.
+     * @param defaultValue The value to return if the key is not in this map.
+     * @return The value of the key, or the default value if the key is not in this map.
+     */
+    public int get(int key, int defaultValue) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == EMPTY) return defaultValue;
+        }
+    }
+
+    /**
+     * Checks if this map contains the given key.
+     *
+     * @param key The key.
+     * @return true if the key is in this map; false otherwise.
+     */
+    public boolean containsKey(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return true;
+            if (keys[i] == EMPTY) return false;
+        }
+    }
+
+    /**
+     * Associates the given value with the given key, replacing its previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @throws IllegalArgumentException If the key is the reserved Integer.MIN_VALUE.
+     */
+    public void put(int key, int value) throws IllegalArgumentException {
+        if (key == EMPTY) throw new IllegalArgumentException("The key Integer.MIN_VALUE cannot be stored!");
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                while (keys[i] != EMPTY)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+    }
+
+    /**
+     * Removes the given key from this map.
+     *
+     * @param key          The key.
+     * @param defaultValue The value to return if the key is not in this map.
+     * @return The value the key had, or the default value if the key was not in this map.
+     */
+    public int remove(int key, int defaultValue) {
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return defaultValue;
+            i = (i + 1) & mask;
+        }
+        int value = values[i];
+        size--;
+        // Shifting back the following entries that would not be found anymore after emptying the slot
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        return value;
+    }
+
+    /**
+     * Gets the number of entries of this map.
+     *
+     * @return The number of keys in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the entries of this map, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+}
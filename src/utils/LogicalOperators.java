@@ -77,4 +77,136 @@ public class LogicalOperators {
             if (booleanArray[i]) return i;
         throw new NoSuchElementException("The passed boolean array does not contain a true value!");
     }
+
+    /**
+     * Packs the passed boolean array into a bitmask of 64-bit words. Bit i of the result (bit i % 64 of word i / 64) is
+     * set if and only if booleanArray[i] is true.
+     *
+     * @param booleanArray The boolean array to pack.
+     * @return A new bitmask holding ceil(booleanArray.length / 64) words (at least one).
+     */
+    public static long[] pack(boolean[] booleanArray) {
+        long[] mask = new long[Math.max(1, (booleanArray.length + 63) >>> 6)];
+        for (int i = 0; i < booleanArray.length; i++)
+            if (booleanArray[i]) mask[i >>> 6] |= 1L << i;
+        return mask;
+    }
+
+    /**
+     * Checks if the two passed bitmasks are subsets, i.e. ((mask1 OR mask2) = mask1) OR ((mask1 OR mask2) = mask2). This
+     * is the bitmask equivalent of {@link #areSubsets(boolean[], boolean[])}.
+     *
+     * @param mask1 The first bitmask.
+     * @param mask2 The second bitmask.
+     * @return true if mask1 and mask2 are in a mutual subset relationship; false otherwise.
+     */
+    public static boolean areSubsets(long mask1, long mask2) {
+        long orMask = mask1 | mask2;
+        return orMask == mask1 || orMask == mask2;
+    }
+
+    /**
+     * Checks if the two passed multi-word bitmasks are subsets. This is the bitmask equivalent of
+     * {@link #areSubsets(boolean[], boolean[])} and does not allocate.
+     *
+     * @param mask1 The first bitmask.
+     * @param mask2 The second bitmask.
+     * @return true if mask1 and mask2 are in a mutual subset relationship; false otherwise.
+     * @throws IllegalArgumentException If mask1 and mask2 are of different lengths.
+     */
+    public static boolean areSubsets(long[] mask1, long[] mask2) throws IllegalArgumentException {
+        if (mask1.length != mask2.length)
+            throw new IllegalArgumentException("The two passed bitmasks are of different lengths!");
+        boolean firstContainsSecond = true, secondContainsFirst = true;
+        for (int i = 0; i < mask1.length; i++) {
+            firstContainsSecond &= (mask2[i] & ~mask1[i]) == 0;
+            secondContainsFirst &= (mask1[i] & ~mask2[i]) == 0;
+        }
+        return firstContainsSecond || secondContainsFirst;
+    }
+
+    /**
+     * Performs a logical OR operation on the two passed bitmasks.
+     *
+     * @param mask1 The first bitmask.
+     * @param mask2 The second bitmask.
+     * @return The result of the logical OR operation.
+     */
+    public static long logicalOr(long mask1, long mask2) {
+        return mask1 | mask2;
+    }
+
+    /**
+     * Performs a logical OR operation on the two passed multi-word bitmasks and stores it in the passed result array,
+     * so that no new array is allocated. The result array may be one of the operands.
+     *
+     * @param mask1  The first bitmask.
+     * @param mask2  The second bitmask.
+     * @param result The array to store the result of the logical OR operation in.
+     * @return The passed result array.
+     * @throws IllegalArgumentException If mask1, mask2 and result are not all of the same length.
+     */
+    public static long[] logicalOr(long[] mask1, long[] mask2, long[] result) throws IllegalArgumentException {
+        if (mask1.length != mask2.length || mask1.length != result.length)
+            throw new IllegalArgumentException("The passed bitmasks are of different lengths!");
+        for (int i = 0; i < mask1.length; i++)
+            result[i] = mask1[i] | mask2[i];
+        return result;
+    }
+
+    /**
+     * Checks if the two passed bitmasks have no common set bits, i.e. (mask1 AND mask2) = 0. This is the bitmask
+     * equivalent of {@link #areExclusive(boolean[], boolean[])}.
+     *
+     * @param mask1 The first bitmask.
+     * @param mask2 The second bitmask.
+     * @return true if the two bitmasks have no common set bits; false otherwise.
+     */
+    public static boolean areExclusive(long mask1, long mask2) {
+        return (mask1 & mask2) == 0;
+    }
+
+    /**
+     * Checks if the two passed multi-word bitmasks have no common set bits. This is the bitmask equivalent of
+     * {@link #areExclusive(boolean[], boolean[])}.
+     *
+     * @param mask1 The first bitmask.
+     * @param mask2 The second bitmask.
+     * @return true if the two bitmasks have no common set bits; false otherwise.
+     * @throws IllegalArgumentException If mask1 and mask2 are of different lengths.
+     */
+    public static boolean areExclusive(long[] mask1, long[] mask2) throws IllegalArgumentException {
+        if (mask1.length != mask2.length)
+            throw new IllegalArgumentException("The two passed bitmasks are of different lengths!");
+        for (int i = 0; i < mask1.length; i++)
+            if ((mask1[i] & mask2[i]) != 0) return false;
+        return true;
+    }
+
+    /**
+     * Returns the index of the lowest set bit in the given bitmask. This is the bitmask equivalent of
+     * {@link #firstTrueIndex(boolean[])}.
+     *
+     * @param mask The bitmask in which to search for the first set bit.
+     * @return The index of the first set bit.
+     * @throws NoSuchElementException If no bit is set in the bitmask.
+     */
+    public static int firstTrueIndex(long mask) throws NoSuchElementException {
+        if (mask == 0) throw new NoSuchElementException("The passed bitmask does not contain a set bit!");
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Returns the index of the lowest set bit in the given multi-word bitmask. This is the bitmask equivalent of
+     * {@link #firstTrueIndex(boolean[])}.
+     *
+     * @param mask The bitmask in which to search for the first set bit.
+     * @return The index of the first set bit.
+     * @throws NoSuchElementException If no bit is set in the bitmask.
+     */
+    public static int firstTrueIndex(long[] mask) throws NoSuchElementException {
+        for (int i = 0; i < mask.length; i++)
+            if (mask[i] != 0) return (i << 6) + Long.numberOfTrailingZeros(mask[i]);
+        throw new NoSuchElementException("The passed bitmask does not contain a set bit!");
+    }
 }
\ No newline at end of file